@@ -1,4 +1,5 @@
-import { spawnSync } from "child_process";
+import { ChildProcess, spawn } from "child_process";
+import { createInterface } from "readline";
 import { TextDocument } from "vscode-languageserver-textdocument";
 import { EOL } from "os";
 import {
@@ -19,12 +20,13 @@ import {
     CompletionItem,
     CompletionItemKind,
 } from "vscode-languageserver/node";
-import { ast, parsedData } from "./types";
+import { ast, coreQuickfix, ndjsonLine, parsedData, quickfixNode } from "./types";
 import {
     getLineRange,
     isBarChar,
     findRule,
     getLineRangeFromOffset,
+    linkModules,
     search,
 } from "./utils";
 
@@ -133,9 +135,10 @@ function getDocumentSettings(resource: string): Thenable<ExampleSettings> {
     return result;
 }
 
-// Only keep settings for open documents
+// Only keep settings (and checks) for open documents
 documents.onDidClose((e) => {
     documentSettings.delete(e.document.uri);
+    stopCheck(e.document.uri);
 });
 
 // Map that contains diagnostics encoded with line numbers and error message and
@@ -151,77 +154,192 @@ documents.onDidChangeContent((change) => {
     validateTextDocument(change.document);
 });
 
+// A check of a document by sasylf core. Once the check is done, the process
+// keeps its results and answers quick fix requests from them, in order.
+type checkProcess = {
+    process: ChildProcess;
+    version: number;
+    pending: ((fixes: coreQuickfix[]) => void)[];
+    done: boolean;
+    idle?: ReturnType<typeof setTimeout>;
+};
+
+// At most this many finished checks are kept to answer quick fix requests;
+// the least recently used are stopped first
+const maxCheckers = 3;
+// A finished check not used for this long (in ms) is stopped
+const checkerIdleTime = 5 * 60 * 1000;
+
+// The most recent check of each document, least recently used first;
+// superseded checks are stopped and any output they have already written
+// is ignored
+const currentChecks: Map<string, checkProcess> = new Map();
+
+function stopCheck(uri: string) {
+    const check = currentChecks.get(uri);
+    if (check == null) return;
+    currentChecks.delete(uri);
+    clearTimeout(check.idle);
+    check.process.kill();
+}
+
+// Makes a check the most recently used, restarts its idle time, and stops
+// the least recently used finished checks if there are too many
+function useCheck(uri: string, check: checkProcess) {
+    currentChecks.delete(uri);
+    currentChecks.set(uri, check);
+    clearTimeout(check.idle);
+    if (check.done) {
+        check.idle = setTimeout(() => {
+            if (currentChecks.get(uri) === check) stopCheck(uri);
+        }, checkerIdleTime);
+    }
+    let finished = 0;
+    currentChecks.forEach((c) => {
+        if (c.done) ++finished;
+    });
+    for (const [u, c] of currentChecks) {
+        if (finished <= maxCheckers) break;
+        if (!c.done) continue;
+        stopCheck(u);
+        --finished;
+    }
+}
+
+// Asks sasylf core for the quick fixes of a line (starting at 0) of the
+// document, computed from the results of checking it.  If the check was
+// stopped to save memory, the document is checked again.
+async function requestQuickfixes(
+    textDocument: TextDocument,
+    line: number,
+): Promise<coreQuickfix[]> {
+    const uri = textDocument.uri;
+    if (!currentChecks.has(uri)) await validateTextDocument(textDocument);
+    const check = currentChecks.get(uri);
+    if (check == null || check.version != textDocument.version) return [];
+    useCheck(uri, check);
+    return new Promise((resolve) => {
+        check.pending.push(resolve);
+        check.process.stdin?.write(`${line + 1}\n`);
+    });
+}
+
+// Turns a diagnostic from sasylf core into an LSP diagnostic, recording its
+// quickfix information under the given code. Returns null for info reports.
+function toDiagnostic(element: quickfixNode, code: number): Diagnostic | null {
+    const severity = element.severity;
+    if (severity == "info") return null;
+    const start = {
+        line: element.begin_line - 1,
+        character: element.begin_column - 1,
+    };
+    const end = {
+        line: element.end_line - 1,
+        character: element.end_column - 1,
+    };
+    const range = { start: start, end: end };
+    if (severity == "error") {
+        quickfixes.set(code, {
+            error_severity: severity,
+            error_type: element.error_type,
+            error_info: element.error_info,
+            range: range,
+        });
+    }
+    return {
+        severity:
+            severity == "warning"
+                ? DiagnosticSeverity.Warning
+                : DiagnosticSeverity.Error,
+        range: range,
+        message: element.error_message,
+        source: "sasylf",
+        code: code,
+    };
+}
+
 // Gives diagonistics based on output of sasylf cli
 async function validateTextDocument(textDocument: TextDocument): Promise<void> {
-    // Parses json output from sasylf core and turns them into corresponding
-    // diagnostics and quickfixes
+    // Parses json lines from sasylf core as they are written and turns them
+    // into corresponding diagnostics and quickfixes, so that diagnostics for
+    // early theorems are shown while later ones are still being checked
     const settings = await getDocumentSettings(textDocument.uri);
+    const uri = textDocument.uri;
 
     const diagnostics: Diagnostic[] = [];
     const text = textDocument.getText();
-    const command = spawnSync(
-        `java -jar ${__dirname}/../src/SASyLF.jar`,
-        ["--lsp", "--stdin"],
-        {
-            input: text,
-            shell: true,
-        },
-    );
+    // run java directly (not through a shell) so that kill stops the check
+    const command = spawn("java", [
+        "-jar",
+        `${__dirname}/../src/SASyLF.jar`,
+        "--lsp",
+        "--ndjson",
+        "--quickfixes",
+        "--stdin",
+    ]);
+    stopCheck(uri);
+    const check: checkProcess = {
+        process: command,
+        version: textDocument.version,
+        pending: [],
+        done: false,
+    };
+    useCheck(uri, check);
+
+    let count = 0;
+    const addDiagnostic = (element: quickfixNode) => {
+        if (count >= settings.maxNumberOfProblems - 1) return;
+        if (count == 0) quickfixes.clear();
+        const diagnostic = toDiagnostic(element, count++);
+        if (diagnostic != null) diagnostics.push(diagnostic);
+    };
 
-    let parsedJson: parsedData;
+    const lines = createInterface({ input: command.stdout });
+    lines.on("line", (line: string) => {
+        if (currentChecks.get(uri) !== check) return;
 
-    try {
-        parsedJson = JSON.parse(command.stdout.toString());
-    } catch (e) {
-        console.log("Error during parsing: ", e);
-        return;
-    }
+        let parsedJson: ndjsonLine | parsedData;
 
-    const output = parsedJson.quickfixes;
-    compUnit = parsedJson.ast;
+        try {
+            parsedJson = JSON.parse(line);
+        } catch (e) {
+            console.log("Error during parsing: ", e);
+            return;
+        }
 
-    quickfixes.clear();
-    for (
-        let i = 0;
-        i < output.length && i < settings.maxNumberOfProblems - 1;
-        ++i
-    ) {
-        const element = output[i];
-        const severity = element["severity"];
-        if (severity == "info") continue;
-        const start = {
-            line: element["begin_line"] - 1,
-            character: element["begin_column"] - 1,
-        };
-        const end = {
-            line: element["end_line"] - 1,
-            character: element["end_column"] - 1,
-        };
-        const message = element["error_message"];
-        const range = { start: start, end: end };
-        if (severity == "error") {
-            quickfixes.set(i, {
-                error_severity: severity,
-                error_type: element["error_type"],
-                error_info: element["error_info"],
-                range: range,
-            });
+        if ("quickfixes" in parsedJson) {
+            // an older sasylf core writes everything at the end
+            parsedJson.quickfixes.forEach(addDiagnostic);
+            compUnit = linkModules(parsedJson.ast, parsedJson.module_table);
+        } else if (parsedJson.kind == "fixes") {
+            check.pending.shift()?.(parsedJson.fixes);
+            return;
+        } else if (parsedJson.kind == "ast") {
+            // the check is done; the process stays to answer quick fix requests
+            compUnit = linkModules(parsedJson.ast, parsedJson.module_table);
+            if (count == 0) quickfixes.clear();
+            check.done = true;
+            useCheck(uri, check);
+        } else {
+            addDiagnostic(parsedJson);
         }
-        const diagnostic: Diagnostic = {
-            severity:
-                severity == "warning"
-                    ? DiagnosticSeverity.Warning
-                    : DiagnosticSeverity.Error,
-            range: range,
-            message: message,
-            source: "sasylf",
-            code: i,
-        };
-        diagnostics.push(diagnostic);
-    }
 
-    // Send the computed diagnostics to VSCode.
-    connection.sendDiagnostics({ uri: textDocument.uri, diagnostics });
+        // Send the diagnostics computed so far to VSCode.
+        connection.sendDiagnostics({ uri: uri, diagnostics });
+    });
+
+    command.on("close", () => {
+        check.pending.splice(0).forEach((resolve) => resolve([]));
+        if (currentChecks.get(uri) !== check) return;
+        stopCheck(uri);
+        if (count == 0) quickfixes.clear();
+        // Send the final diagnostics (perhaps none) to VSCode.
+        connection.sendDiagnostics({ uri: uri, diagnostics });
+    });
+
+    // writing fails if the check has been stopped already
+    command.stdin.on("error", () => {});
+    command.stdin.write(JSON.stringify(text) + "\n");
 }
 
 // Implements go to definition
@@ -595,7 +713,9 @@ connection.onDidChangeWatchedFiles((change) => {
     connection.console.log("We received an file change event");
 });
 
-// Looks for quickfixes in the `quickfixes` map and returns them if they exist
+// Asks sasylf core for the quick fixes of the selected diagnostics, which it
+// computes from the results of the last check; the few errors that sasylf
+// core does not fix are fixed here from their error_info
 connection.onCodeAction(async (params) => {
     const textDocument: TextDocument | undefined = documents.get(
         params.textDocument.uri,
@@ -604,84 +724,158 @@ connection.onCodeAction(async (params) => {
 
     const codeActions: CodeAction[] = [];
 
-    const eolSetting = await connection.workspace.getConfiguration({
-        section: "files",
-    });
-    const nl = eolSetting.eol == "auto" ? EOL : eolSetting.eol;
+    // sasylf core is asked once for each line with a selected diagnostic
+    const lineFixes: Map<number, Promise<coreQuickfix[]>> = new Map();
 
-    // For each diagnostic, try to find a quick fix
     for (const diagnostic of params.context.diagnostics) {
         const code: string | number | undefined = diagnostic.code;
         if (code == null) continue;
         if (!quickfixes.has(code)) continue;
         const quickfix = quickfixes.get(code);
-        const errorType: string = quickfix.error_type;
-        const errorInfo: string = quickfix.error_info;
-        const range = quickfix.range;
-        const line = range.start.line;
-        let extraIndent = "";
-        if (errorType == null || errorInfo == null || line == 0) continue;
-        if (range.start.line != range.end.line) {
-            continue;
+        const line: number = quickfix.range.start.line;
+        let requested = lineFixes.get(line);
+        if (requested == null) {
+            requested = requestQuickfixes(textDocument, line);
+            lineFixes.set(line, requested);
+        }
+        const fixes = (await requested).filter(
+            (fix) => fix.error_type == quickfix.error_type,
+        );
+        for (const fix of fixes) {
+            codeActions.push({
+                title: fix.title,
+                kind: "quickfix",
+                diagnostics: [diagnostic],
+                edit: {
+                    changes: {
+                        [textDocument.uri]: [
+                            {
+                                range: {
+                                    start: textDocument.positionAt(fix.charStart),
+                                    end: textDocument.positionAt(fix.charEnd),
+                                },
+                                newText: fix.newText,
+                            },
+                        ],
+                    },
+                },
+            });
         }
-        // Range that includes the entire line at line number `line`, 0 indexed
-        const lineInfo: Range = getLineRange(line);
+        if (fixes.length == 0) {
+            codeActions.push(
+                ...(await localQuickfixes(textDocument, diagnostic, quickfix)),
+            );
+        }
+    }
+    return codeActions;
+});
 
-        const lineText: string = textDocument.getText(lineInfo);
+// Builds the quick fixes for the errors that sasylf core does not fix
+async function localQuickfixes(
+    textDocument: TextDocument,
+    diagnostic: Diagnostic,
+    quickfix: any,
+): Promise<CodeAction[]> {
+    const codeActions: CodeAction[] = [];
 
-        const split = errorInfo.split(/\r?\n/, -1);
+    const eolSetting = await connection.workspace.getConfiguration({
+        section: "files",
+    });
+    const nl = eolSetting.eol == "auto" ? EOL : eolSetting.eol;
 
-        let lineIndent: string;
-        {
-            let i;
-            for (i = 0; i < lineText.length; ++i) {
-                const ch = lineText.charAt(i);
-                if (ch == " " || ch == "\t") continue;
-                break;
-            }
-            lineIndent = lineText.substring(0, i);
-        }
-        const indentAmount =
-            textDocument.getText(getLineRange(line)).length -
-            textDocument.getText(getLineRange(line)).trimStart().length;
+    const errorType: string = quickfix.error_type;
+    const errorInfo: string = quickfix.error_info;
+    const range = quickfix.range;
+    const line = range.start.line;
+    if (errorType == null || errorInfo == null || line == 0) return codeActions;
+    if (range.start.line != range.end.line) {
+        return codeActions;
+    }
+    // Range that includes the entire line at line number `line`, 0 indexed
+    const lineInfo: Range = getLineRange(line);
+
+    const lineText: string = textDocument.getText(lineInfo);
+
+    const split = errorInfo.split(/\r?\n/, -1);
 
-        let indent = "    ";
-        if (indentAmount >= 0 && indentAmount <= 8) {
-            indent = "        ".substring(0, indentAmount);
+    let lineIndent: string;
+    {
+        let i;
+        for (i = 0; i < lineText.length; ++i) {
+            const ch = lineText.charAt(i);
+            if (ch == " " || ch == "\t") continue;
+            break;
         }
+        lineIndent = lineText.substring(0, i);
+    }
+    const indentAmount =
+        textDocument.getText(getLineRange(line)).length -
+        textDocument.getText(getLineRange(line)).trimStart().length;
 
-        const ind = textDocument
-            .getText(getLineRange(line, Number.MAX_VALUE, 0, Number.MAX_VALUE))
-            .indexOf(split[0]);
+    let indent = "    ";
+    if (indentAmount >= 0 && indentAmount <= 8) {
+        indent = "        ".substring(0, indentAmount);
+    }
 
-        let old: Range | null = null;
+    const ind = textDocument
+        .getText(getLineRange(line, Number.MAX_VALUE, 0, Number.MAX_VALUE))
+        .indexOf(split[0]);
 
-        if (ind != -1) {
-            old = getLineRangeFromOffset(
-                ind + textDocument.offsetAt(lineInfo.start),
-                split[0].length,
-                textDocument,
-            );
-        }
+    let old: Range | null = null;
 
-        if (old == null) {
-            if (split[0] == lineText) {
-                old = lineInfo;
-            }
+    if (ind != -1) {
+        old = getLineRangeFromOffset(
+            ind + textDocument.offsetAt(lineInfo.start),
+            split[0].length,
+            textDocument,
+        );
+    }
+
+    if (old == null) {
+        if (split[0] == lineText) {
+            old = lineInfo;
         }
+    }
 
-        switch (errorType) {
-            case "MISSING_CASE":
-                let newText = "";
-                if (errorInfo.indexOf("\n\n") == -1) {
-                    // syntax case
-                    const n = split.length - 1;
-                    for (let i = 0; i < n; ++i) {
+    switch (errorType) {
+        case "MISSING_CASE":
+            let newText = "";
+            if (errorInfo.indexOf("\n\n") == -1) {
+                // syntax case
+                const n = split.length - 1;
+                for (let i = 0; i < n; ++i) {
+                    newText = newText.concat(lineIndent);
+                    newText = newText.concat(indent);
+                    newText = newText.concat("case ");
+                    newText = newText.concat(split[i]);
+                    newText = newText.concat(" is");
+                    newText = newText.concat(nl);
+                    newText = newText.concat(lineIndent);
+                    newText = newText.concat(indent);
+                    newText = newText.concat(indent);
+                    newText = newText.concat("proof by unproved");
+                    newText = newText.concat(nl);
+                    newText = newText.concat(lineIndent);
+                    newText = newText.concat(indent);
+                    newText = newText.concat("end case");
+                    newText = newText.concat(nl);
+                    newText = newText.concat(nl);
+                }
+            } else {
+                let startCase = true;
+                const n = split.length - 1; // extra line at end
+                for (let i = 0; i < n; ++i) {
+                    if (startCase) {
                         newText = newText.concat(lineIndent);
                         newText = newText.concat(indent);
-                        newText = newText.concat("case ");
-                        newText = newText.concat(split[i]);
-                        newText = newText.concat(" is");
+                        newText = newText.concat("case rule");
+                        newText = newText.concat(nl);
+                        startCase = false;
+                    }
+                    if (split[i].length == 0) {
+                        newText = newText.concat(lineIndent);
+                        newText = newText.concat(indent);
+                        newText = newText.concat("is");
                         newText = newText.concat(nl);
                         newText = newText.concat(lineIndent);
                         newText = newText.concat(indent);
@@ -693,124 +887,75 @@ connection.onCodeAction(async (params) => {
                         newText = newText.concat("end case");
                         newText = newText.concat(nl);
                         newText = newText.concat(nl);
+                        startCase = true;
+                        continue;
                     }
-                } else {
-                    let startCase = true;
-                    const n = split.length - 1; // extra line at end
-                    for (let i = 0; i < n; ++i) {
-                        if (startCase) {
-                            newText = newText.concat(lineIndent);
-                            newText = newText.concat(indent);
-                            newText = newText.concat("case rule");
-                            newText = newText.concat(nl);
-                            startCase = false;
-                        }
-                        if (split[i].length == 0) {
-                            newText = newText.concat(lineIndent);
-                            newText = newText.concat(indent);
-                            newText = newText.concat("is");
-                            newText = newText.concat(nl);
-                            newText = newText.concat(lineIndent);
-                            newText = newText.concat(indent);
-                            newText = newText.concat(indent);
-                            newText = newText.concat("proof by unproved");
-                            newText = newText.concat(nl);
-                            newText = newText.concat(lineIndent);
-                            newText = newText.concat(indent);
-                            newText = newText.concat("end case");
-                            newText = newText.concat(nl);
-                            newText = newText.concat(nl);
-                            startCase = true;
-                            continue;
-                        }
-                        newText = newText.concat(lineIndent);
-                        newText = newText.concat(indent);
-                        newText = newText.concat(indent);
-                        if (split[i].startsWith("---")) {
-                            const ruleName = split[i].split(" ")[1];
-                            const rule = findRule(compUnit, ruleName);
-                            if (rule !== null) {
-                                let ruleText = textDocument.getText(getLineRange(rule.line));
-                                let lexicalInfo = "";
-                                for (const c of ruleText) {
-                                    if (isBarChar(c)) {
-                                        lexicalInfo += c;
-                                    } else {
-                                        break;
-                                    }
-                                }
-                                if (lexicalInfo.length >= 3) {
-                                    split[i] =
-                                        lexicalInfo.substring(0, 3) +
-                                        lexicalInfo.substring(0, 3) +
-                                        lexicalInfo +
-                                        " " +
-                                        ruleName;
+                    newText = newText.concat(lineIndent);
+                    newText = newText.concat(indent);
+                    newText = newText.concat(indent);
+                    if (split[i].startsWith("---")) {
+                        const ruleName = split[i].split(" ")[1];
+                        const rule = findRule(compUnit, ruleName);
+                        if (rule !== null) {
+                            let ruleText = textDocument.getText(getLineRange(rule.line));
+                            let lexicalInfo = "";
+                            for (const c of ruleText) {
+                                if (isBarChar(c)) {
+                                    lexicalInfo += c;
+                                } else {
+                                    break;
                                 }
                             }
-                        } else {
-                            newText = newText.concat("_: ");
+                            if (lexicalInfo.length >= 3) {
+                                split[i] =
+                                    lexicalInfo.substring(0, 3) +
+                                    lexicalInfo.substring(0, 3) +
+                                    lexicalInfo +
+                                    " " +
+                                    ruleName;
+                            }
                         }
-                        newText = newText.concat(split[i]);
-                        newText = newText.concat(nl);
+                    } else {
+                        newText = newText.concat("_: ");
                     }
+                    newText = newText.concat(split[i]);
+                    newText = newText.concat(nl);
                 }
-                if (
-                    lineText.includes("by contradiction on") &&
-                    !lineText.includes("by case analysis on")
-                ) {
-                    // XXX: Could be confused by a comment
-                    let lo = lineText.indexOf("contradiction");
-                    let parts = lineText.split("\\s+");
-                    const l = parts.length;
-                    // try to avoid dangerous changes
-                    if (l > 3 && parts[l - 2] === "on") {
-                        let derivName = parts[l - 1];
-                        newText =
-                            "case analysis on " +
-                            derivName +
-                            ":" +
-                            nl +
-                            newText +
-                            lineIndent +
-                            "end case analysis";
-                        let offset = textDocument.offsetAt(lineInfo.start) + lo;
-                        codeActions.push({
-                            title: "convert to case analysis with missing case(s)",
-                            kind: "quickfix",
-                            diagnostics: [diagnostic],
-                            edit: {
-                                changes: {
-                                    [textDocument.uri]: [
-                                        {
-                                            range: {
-                                                start: textDocument.positionAt(offset),
-                                                end: textDocument.positionAt(
-                                                    offset + lineText.length - lo,
-                                                ),
-                                            },
-                                            newText: newText,
-                                        },
-                                    ],
-                                },
-                            },
-                        });
-                    }
-                } else {
+            }
+            if (
+                lineText.includes("by contradiction on") &&
+                !lineText.includes("by case analysis on")
+            ) {
+                // XXX: Could be confused by a comment
+                let lo = lineText.indexOf("contradiction");
+                let parts = lineText.split("\\s+");
+                const l = parts.length;
+                // try to avoid dangerous changes
+                if (l > 3 && parts[l - 2] === "on") {
+                    let derivName = parts[l - 1];
+                    newText =
+                        "case analysis on " +
+                        derivName +
+                        ":" +
+                        nl +
+                        newText +
+                        lineIndent +
+                        "end case analysis";
+                    let offset = textDocument.offsetAt(lineInfo.start) + lo;
                     codeActions.push({
-                        title: "insert missing case(s)",
+                        title: "convert to case analysis with missing case(s)",
                         kind: "quickfix",
                         diagnostics: [diagnostic],
                         edit: {
                             changes: {
                                 [textDocument.uri]: [
                                     {
-                                        range: getLineRange(
-                                            lineInfo.start.line + 1,
-                                            lineInfo.end.line + 1,
-                                            0,
-                                            0,
-                                        ),
+                                        range: {
+                                            start: textDocument.positionAt(offset),
+                                            end: textDocument.positionAt(
+                                                offset + lineText.length - lo,
+                                            ),
+                                        },
                                         newText: newText,
                                     },
                                 ],
@@ -818,101 +963,61 @@ connection.onCodeAction(async (params) => {
                         },
                     });
                 }
-                break;
-            case "ABSTRACT_NOT_PERMITTED_HERE":
-            case "ILLEGAL_ASSUMES":
-            case "EXTRANEOUS_ASSUMES":
-                if (old != null) {
-                    codeActions.push({
-                        title: `remove '${split[0]}'`,
-                        kind: "quickfix",
-                        diagnostics: [diagnostic],
-                        edit: {
-                            changes: {
-                                [textDocument.uri]: [{ range: old, newText: "" }],
-                            },
-                        },
-                    });
-                }
-            /* falls through */
-            case "RULE_NOT_THEOREM":
-            case "THEOREM_NOT_RULE":
-            case "THEOREM_KIND_WRONG":
-            case "THEOREM_KIND_MISSING":
-            case "INDUCTION_REPEAT":
-            case "WRONG_END":
-            case "WRONG_MODULE_NAME":
-            case "PARTIAL_CASE_ANALYSIS":
-                if (old != null) {
-                    if (split.length > 1 && split[1].length > 0) {
-                        codeActions.push({
-                            title: `replace '${split[0]}' with '${split[1]}'`,
-                            kind: "quickfix",
-                            diagnostics: [diagnostic],
-                            edit: {
-                                changes: {
-                                    [textDocument.uri]: [{ range: old, newText: split[1] }],
+            } else {
+                codeActions.push({
+                    title: "insert missing case(s)",
+                    kind: "quickfix",
+                    diagnostics: [diagnostic],
+                    edit: {
+                        changes: {
+                            [textDocument.uri]: [
+                                {
+                                    range: getLineRange(
+                                        lineInfo.start.line + 1,
+                                        lineInfo.end.line + 1,
+                                        0,
+                                        0,
+                                    ),
+                                    newText: newText,
                                 },
-                            },
-                        });
-                    }
-                }
-                break;
-            case "WRONG_PACKAGE":
-                if (split[0].length == 0) {
+                            ],
+                        },
+                    },
+                });
+            }
+            break;
+        case "ABSTRACT_NOT_PERMITTED_HERE":
+        case "ILLEGAL_ASSUMES":
+        case "EXTRANEOUS_ASSUMES":
+            if (old != null) {
+                codeActions.push({
+                    title: `remove '${split[0]}'`,
+                    kind: "quickfix",
+                    diagnostics: [diagnostic],
+                    edit: {
+                        changes: {
+                            [textDocument.uri]: [{ range: old, newText: "" }],
+                        },
+                    },
+                });
+                if (split.length > 1 && split[1].length > 0) {
                     codeActions.push({
-                        title: `insert '${split[1]}'`,
+                        title: `replace '${split[0]}' with '${split[1]}'`,
                         kind: "quickfix",
                         diagnostics: [diagnostic],
                         edit: {
                             changes: {
-                                [textDocument.uri]: [
-                                    {
-                                        range: getLineRange(
-                                            lineInfo.start.line,
-                                            lineInfo.end.line,
-                                            Number.MAX_VALUE,
-                                            Number.MAX_VALUE,
-                                        ),
-                                        newText: split[1] + nl,
-                                    },
-                                ],
+                                [textDocument.uri]: [{ range: old, newText: split[1] }],
                             },
                         },
                     });
                 }
-                if (old != null && split.length > 1) {
-                    if (split[1].length == 0) {
-                        codeActions.push({
-                            title: `remove '${split[0]}'`,
-                            kind: "quickfix",
-                            diagnostics: [diagnostic],
-                            edit: {
-                                changes: {
-                                    [textDocument.uri]: [{ range: old, newText: "" }],
-                                },
-                            },
-                        });
-                    } else {
-                        codeActions.push({
-                            title: `replace '${split[0]}' with '${split[1]}'`,
-                            kind: "quickfix",
-                            diagnostics: [diagnostic],
-                            edit: {
-                                changes: {
-                                    [textDocument.uri]: [{ range: old, newText: split[1] }],
-                                },
-                            },
-                        });
-                    }
-                }
-                break;
-            case "ASSUMED_ASSUMES":
-                extraIndent = indent;
-            /* falls through */
-            case "MISSING_ASSUMES":
+            }
+            break;
+        case "WRONG_PACKAGE":
+            if (split[0].length == 0) {
                 codeActions.push({
-                    title: `insert '${errorInfo}'`,
+                    title: `insert '${split[1]}'`,
                     kind: "quickfix",
                     diagnostics: [diagnostic],
                     edit: {
@@ -920,146 +1025,49 @@ connection.onCodeAction(async (params) => {
                             [textDocument.uri]: [
                                 {
                                     range: getLineRange(
-                                        lineInfo.start.line + 1,
-                                        lineInfo.end.line + 1,
+                                        lineInfo.start.line,
+                                        lineInfo.end.line,
                                         Number.MAX_VALUE,
                                         Number.MAX_VALUE,
                                     ),
-                                    newText: lineIndent + extraIndent + errorInfo + nl,
+                                    newText: split[1] + nl,
                                 },
                             ],
                         },
                     },
                 });
-
-                break;
-            case "CASE_REDUNDANT":
-            case "CASE_UNNECESSARY":
-                break;
-            case "OTHER_JUSTIFIED":
-                if (lineInfo != null) {
-                    const holeStart = split[0].indexOf("...");
-                    const startPat = split[0].substring(0, holeStart);
-                    const endPat = split[0].substring(holeStart + 3);
-                    const findStart = lineText.indexOf(startPat);
-                    if (findStart < 0) break;
-                    const findEnd = lineText.indexOf(endPat, findStart);
-                    if (findEnd < 0) break;
-                    const oldStart = findStart + startPat.length;
-                    const oldText = lineText.substring(oldStart, findEnd);
+            }
+            if (old != null && split.length > 1) {
+                if (split[1].length == 0) {
                     codeActions.push({
-                        title: `replace '${oldText}' with '${" " + split[1]}'`,
+                        title: `remove '${split[0]}'`,
                         kind: "quickfix",
                         diagnostics: [diagnostic],
                         edit: {
                             changes: {
-                                [textDocument.uri]: [
-                                    {
-                                        range: getLineRangeFromOffset(
-                                            oldStart + textDocument.offsetAt(lineInfo.start),
-                                            oldText.length,
-                                            textDocument,
-                                        ),
-                                        newText: " " + split[1],
-                                    },
-                                ],
+                                [textDocument.uri]: [{ range: old, newText: "" }],
                             },
                         },
                     });
-                }
-                break;
-            case "RULE_CONCLUSION_CONTRADICTION":
-                if (lineInfo != null) {
-                    const findBy = lineText.indexOf(" by ");
-                    if (findBy >= lineIndent.length) {
-                        const oldText = lineText.substring(lineIndent.length, findBy);
-                        codeActions.push({
-                            title: `replace '${oldText}' with '_: contradiction'`,
-                            kind: "quickfix",
-                            diagnostics: [diagnostic],
-                            edit: {
-                                changes: {
-                                    [textDocument.uri]: [
-                                        {
-                                            range: getLineRangeFromOffset(
-                                                lineIndent.length +
-                                                textDocument.offsetAt(lineInfo.start),
-                                                oldText.length,
-                                                textDocument,
-                                            ),
-                                            newText: "_: contradiction",
-                                        },
-                                    ],
-                                },
-                            },
-                        });
-                    }
-                }
-                break;
-            case "DERIVATION_NOT_FOUND": {
-                const colon = split[0].indexOf(":");
-                const useName = textDocument.getText(diagnostic.range);
-                let defName;
-                if (colon >= 0) {
-                    defName = split[0].substring(0, colon);
                 } else {
-                    defName = split[0];
                     codeActions.push({
-                        title: `replace '${lineText}' with '${defName}'`,
+                        title: `replace '${split[0]}' with '${split[1]}'`,
                         kind: "quickfix",
                         diagnostics: [diagnostic],
                         edit: {
                             changes: {
-                                [textDocument.uri]: [{ range: lineInfo, newText: defName }],
+                                [textDocument.uri]: [{ range: old, newText: split[1] }],
                             },
                         },
                     });
-                    break;
                 }
-
-                const newText = nl + indent + split[0] + " by unproved";
-                let extra = "";
-
-                const changes = [
-                    {
-                        range: getLineRange(
-                            lineInfo.start.line,
-                            lineInfo.start.line,
-                            Number.MAX_VALUE,
-                            Number.MAX_VALUE,
-                        ),
-                        newText: newText,
-                    },
-                ];
-
-                if (defName != useName) {
-                    if (useName == "_") {
-                        extra = `, and replace '_' with '${defName}'`;
-                        changes.push({
-                            range: diagnostic.range,
-                            newText: defName,
-                        });
-                    }
-                }
-
-                codeActions.push({
-                    title: `insert '${split[0]} by unproved' before this line ${extra}`,
-                    kind: "quickfix",
-                    diagnostics: [diagnostic],
-                    edit: {
-                        changes: {
-                            [textDocument.uri]: changes,
-                        },
-                    },
-                });
-                break;
             }
-            default:
-                break;
-        }
+            break;
+        default:
+            break;
     }
     return codeActions;
-});
+}
 
 // Make the text document manager listen on the connection
 // for open, change and close text document events
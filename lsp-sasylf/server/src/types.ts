@@ -1,6 +1,23 @@
 export type parsedData = {
     quickfixes: quickfixNode[],
-    ast: ast
+    ast: ast,
+    module_table?: moduleTable
+}
+
+export type moduleTable = { [key: string]: ast };
+
+export type ndjsonLine =
+    | ({ kind: "diagnostic" } & quickfixNode)
+    | { kind: "ast", ast: ast, module_table?: moduleTable }
+    | { kind: "fixes", line: number, fixes: coreQuickfix[] };
+
+// A quick fix computed by sasylf core: replace the text between the offsets
+export type coreQuickfix = {
+    error_type: string,
+    title: string,
+    newText: string,
+    charStart: number,
+    charEnd: number
 }
 
 export type quickfixNode = {
@@ -38,6 +55,7 @@ export type moduleNode = {
     begin_line: number;
     end_line: number;
     file: string;
+    module?: string;
     ast: ast;
 };
 
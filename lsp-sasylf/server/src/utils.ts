@@ -1,6 +1,6 @@
 import { TextDocument } from "vscode-languageserver-textdocument";
 import { Range, Location } from "vscode-languageserver/node";
-import { ast, ruleNode, moduleNode, theoremNode } from "./types";
+import { ast, ruleNode, moduleNode, moduleTable, theoremNode } from "./types";
 import * as path from "path";
 
 export function search(
@@ -110,3 +110,19 @@ export function findRule(compUnit: ast, ruleName: string): ruleNode | null {
 	}
 	return null;
 }
+
+// Replaces the references to imported modules in an ast from sasylf core,
+// which are keys into the module table, with the asts of the modules
+export function linkModules(compUnit: ast, table?: moduleTable): ast {
+	if (compUnit == null || table == null) return compUnit;
+	const link = (node: ast) => {
+		for (const module of node.modules) {
+			if (module.module != null && module.ast == null) {
+				module.ast = table[module.module];
+			}
+		}
+	};
+	link(compUnit);
+	for (const key in table) link(table[key]);
+	return compUnit;
+}
@@ -0,0 +1,309 @@
+package edu.cmu.cs.sasylf;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.cs.sasylf.module.PathModuleFinder;
+import edu.cmu.cs.sasylf.util.Util;
+
+/**
+ * Time the checker on a set of files, and compare against a baseline.
+ * Each file is checked in this process with {@link Proof#parseAndCheck(edu.cmu.cs.sasylf.module.ModuleFinder, String, edu.cmu.cs.sasylf.module.ModuleId, Reader)}
+ * using a new module finder (so that imports are checked again every time).
+ * For each file, we report the time taken, the bytes allocated
+ * and the peak heap use.
+ * <p>
+ * In the single-shot mode, each file is checked once, with no warm up,
+ * which is what a user running the checker from the command line sees.
+ * In the steady-state mode, each file is checked a number of times to warm up,
+ * and then the median of a number of further checks is reported.
+ * <p>
+ * The results can be saved as JSON, and compared against such a saved baseline:
+ * a file is reported as a regression if its time, allocation or peak heap use grew
+ * by more than the threshold (a percentage).  Files that took very little time
+ * in the baseline are not compared by time, since the noise is too great.
+ * The exit status is 1 if there is a regression.
+ */
+public class Benchmark {
+
+	/** Files that took less than this many nanoseconds in the baseline are not compared on time. */
+	public static final long MIN_COMPARED_TIME = 5000000L;
+
+	/**
+	 * The results of checking one file.
+	 */
+	static class Measurement {
+		final long time;
+		final long allocated;
+		final long peakHeap;
+
+		Measurement(long time, long allocated, long peakHeap) {
+			this.time = time;
+			this.allocated = allocated;
+			this.peakHeap = peakHeap;
+		}
+	}
+
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	private static long allocatedBytes() {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private static List<MemoryPoolMXBean> heapPools() {
+		List<MemoryPoolMXBean> result = new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				result.add(pool);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Check a file once and measure it.
+	 * @param file file to check
+	 * @return measurement
+	 * @throws IOException if the file cannot be read
+	 */
+	static Measurement measure(File file) throws IOException {
+		List<MemoryPoolMXBean> pools = heapPools();
+		System.gc();
+		for (MemoryPoolMXBean pool : pools) {
+			pool.resetPeakUsage();
+		}
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		try (Reader r = new InputStreamReader(new FileInputStream(file), "UTF-8")) {
+			Proof.parseAndCheck(new PathModuleFinder(""), file.getPath(), null, r);
+		}
+		long time = System.nanoTime() - start;
+		allocated = allocatedBytes() - allocated;
+		long peak = 0;
+		for (MemoryPoolMXBean pool : pools) {
+			peak += pool.getPeakUsage().getUsed();
+		}
+		return new Measurement(time, allocated, peak);
+	}
+
+	private static long median(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length/2];
+	}
+
+	/**
+	 * Check a file several times and return the median measurements.
+	 * @param file file to check
+	 * @param warmup number of checks to do first without measuring
+	 * @param iterations number of checks to measure, at least one
+	 * @return median time and allocation, and maximum peak heap
+	 * @throws IOException if the file cannot be read
+	 */
+	static Measurement measure(File file, int warmup, int iterations) throws IOException {
+		for (int i=0; i < warmup; ++i) {
+			measure(file);
+		}
+		long[] times = new long[iterations];
+		long[] allocations = new long[iterations];
+		long peak = 0;
+		for (int i=0; i < iterations; ++i) {
+			Measurement m = measure(file);
+			times[i] = m.time;
+			allocations[i] = m.allocated;
+			peak = Math.max(peak, m.peakHeap);
+		}
+		return new Measurement(median(times), median(allocations), peak);
+	}
+
+	/**
+	 * Add the SASyLF files named, looking inside directories (but not subdirectories).
+	 */
+	private static void addFiles(File f, List<File> files) {
+		if (f.isDirectory()) {
+			File[] contents = f.listFiles((dir,name) -> name.endsWith(".slf"));
+			if (contents == null) return;
+			Arrays.sort(contents);
+			files.addAll(Arrays.asList(contents));
+		} else {
+			files.add(f);
+		}
+	}
+
+	private static void writeBaseline(String filename, String mode, Map<String,Measurement> results) throws IOException {
+		try (OutputStream out = new FileOutputStream(filename)) {
+			JsonGenerator g = Proof.createJSONGenerator(out);
+			g.useDefaultPrettyPrinter();
+			g.writeStartObject();
+			g.writeStringField("mode", mode);
+			g.writeObjectFieldStart("files");
+			for (Map.Entry<String,Measurement> e : results.entrySet()) {
+				Measurement m = e.getValue();
+				g.writeObjectFieldStart(e.getKey());
+				g.writeNumberField("time", m.time);
+				g.writeNumberField("allocated", m.allocated);
+				g.writeNumberField("peak", m.peakHeap);
+				g.writeEndObject();
+			}
+			g.writeEndObject();
+			g.writeEndObject();
+			g.flush();
+		}
+	}
+
+	private static Map<String,Measurement> readBaseline(String filename, String mode) throws IOException {
+		Map<String,Measurement> result = new LinkedHashMap<String,Measurement>();
+		JsonNode root = new ObjectMapper().readTree(new File(filename));
+		if (!mode.equals(root.path("mode").asText())) {
+			System.out.println("Warning: baseline " + filename + " was measured in " +
+					root.path("mode").asText() + " mode, not " + mode);
+		}
+		JsonNode files = root.path("files");
+		for (Iterator<Map.Entry<String,JsonNode>> it = files.fields(); it.hasNext();) {
+			Map.Entry<String,JsonNode> e = it.next();
+			JsonNode m = e.getValue();
+			result.put(e.getKey(), new Measurement(m.path("time").asLong(),
+					m.path("allocated").asLong(), m.path("peak").asLong()));
+		}
+		return result;
+	}
+
+	private static boolean exceeds(long value, long base, double threshold) {
+		return base > 0 && value > base * (1 + threshold/100);
+	}
+
+	private static String percent(long value, long base) {
+		return String.format("%+.1f%%", (value - base) * 100.0 / base);
+	}
+
+	/**
+	 * Compare results against a baseline, printing the regressions.
+	 * @param results measurements for each file
+	 * @param baseline earlier measurements for each file
+	 * @param threshold percentage growth permitted
+	 * @return number of regressions found
+	 */
+	static int compare(Map<String,Measurement> results, Map<String,Measurement> baseline, double threshold) {
+		int regressions = 0;
+		for (Map.Entry<String,Measurement> e : results.entrySet()) {
+			Measurement base = baseline.get(e.getKey());
+			if (base == null) continue;
+			Measurement m = e.getValue();
+			if (base.time >= MIN_COMPARED_TIME && exceeds(m.time, base.time, threshold)) {
+				System.out.println(e.getKey() + ": time regressed " + percent(m.time, base.time));
+				++regressions;
+			}
+			if (exceeds(m.allocated, base.allocated, threshold)) {
+				System.out.println(e.getKey() + ": allocation regressed " + percent(m.allocated, base.allocated));
+				++regressions;
+			}
+			if (exceeds(m.peakHeap, base.peakHeap, threshold)) {
+				System.out.println(e.getKey() + ": peak heap regressed " + percent(m.peakHeap, base.peakHeap));
+				++regressions;
+			}
+		}
+		return regressions;
+	}
+
+	public static void main(String[] args) throws IOException {
+		Util.SHOW_TASK_COMMENTS = false;
+		Util.VERBOSE = false;
+		Util.PRINT_ERRORS = false;
+		Util.PRINT_SOLVE = false;
+
+		String mode = "single";
+		int warmup = 5;
+		int iterations = 5;
+		double threshold = 10;
+		String baselineFile = null;
+		String saveFile = null;
+		List<File> files = new ArrayList<File>();
+		for (String s : args) {
+			try {
+				if (s.startsWith("--mode=")) {
+					mode = s.substring(7);
+					if (!mode.equals("single") && !mode.equals("steady")) usage();
+				} else if (s.startsWith("--warmup=")) {
+					warmup = Integer.parseInt(s.substring(9));
+				} else if (s.startsWith("--iterations=")) {
+					iterations = Integer.parseInt(s.substring(13));
+					if (iterations < 1) usage();
+				} else if (s.startsWith("--threshold=")) {
+					threshold = Double.parseDouble(s.substring(12));
+				} else if (s.startsWith("--baseline=")) {
+					baselineFile = s.substring(11);
+				} else if (s.startsWith("--save=")) {
+					saveFile = s.substring(7);
+				} else if (s.startsWith("--")) {
+					usage();
+				} else {
+					addFiles(new File(s), files);
+				}
+			} catch (NumberFormatException ex) {
+				usage();
+			}
+		}
+		if (files.isEmpty()) usage();
+
+		// checking prints the results to standard output, which we don't want
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		System.setErr(System.out);
+		Map<String,Measurement> results = new LinkedHashMap<String,Measurement>();
+		long total = 0;
+		try {
+			out.printf("%-50s %10s %14s %14s%n", "file", "time(ms)", "allocated(KB)", "peak(KB)");
+			for (File f : files) {
+				Measurement m = mode.equals("steady") ? measure(f, warmup, iterations) : measure(f);
+				results.put(f.getPath(), m);
+				total += m.time;
+				out.printf("%-50s %10.3f %14d %14d%n", f.getPath(), m.time / 1e6, m.allocated / 1024, m.peakHeap / 1024);
+			}
+			out.printf("%-50s %10.3f%n", "total", total / 1e6);
+		} finally {
+			System.setOut(out);
+			System.setErr(err);
+		}
+
+		if (saveFile != null) writeBaseline(saveFile, mode, results);
+		if (baselineFile != null) {
+			int regressions = compare(results, readBaseline(baselineFile, mode), threshold);
+			if (regressions > 0) {
+				System.out.println(regressions + " regressions beyond " + threshold + "%");
+				System.exit(1);
+			}
+			System.out.println("No regressions beyond " + threshold + "%");
+		}
+	}
+
+	private static void usage() {
+		System.out.println("usage: java " + Benchmark.class.getName() +
+				" [--mode=single|steady] [--warmup=N] [--iterations=N]" +
+				" [--baseline=file.json] [--threshold=percent] [--save=file.json] file-or-dir...");
+		System.exit(1);
+	}
+}
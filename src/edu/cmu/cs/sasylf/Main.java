@@ -1,6 +1,10 @@
 package edu.cmu.cs.sasylf;
 
-import java.io.BufferedReader;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -9,21 +13,52 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import edu.cmu.cs.sasylf.ast.CompUnit;
 import edu.cmu.cs.sasylf.module.ModuleFinder;
 import edu.cmu.cs.sasylf.module.ModuleId;
+import edu.cmu.cs.sasylf.module.ModuleProvider;
 import edu.cmu.cs.sasylf.module.PathModuleFinder;
 import edu.cmu.cs.sasylf.module.RootModuleFinder;
+import edu.cmu.cs.sasylf.module.RootModuleProvider;
 import edu.cmu.cs.sasylf.parser.DSLToolkitParser;
 import edu.cmu.cs.sasylf.parser.ParseException;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
 import edu.cmu.cs.sasylf.util.Location;
+import edu.cmu.cs.sasylf.util.Profile;
+import edu.cmu.cs.sasylf.util.RedirectablePrintStream;
 import edu.cmu.cs.sasylf.util.SASyLFError;
 import edu.cmu.cs.sasylf.util.TaskReport;
+import edu.cmu.cs.sasylf.util.VSDocument;
 
 public class Main {
 
+	// "text", "json" or "csv", used if profiling
+	private static String profileFormat = "text";
+	// in LSP mode, keep the results of checking standard input to answer quick fix requests
+	private static boolean serveQuickfixes = false;
+
 	/**
 	 * @param args the files to parse and typecheck
 	 * @throws ParseException
@@ -50,10 +85,35 @@ public class Main {
 			System.err.println("   --stdin       pass in slf file via stdin");
 			System.err.println(
 					"   --lsp         lsp interface for completions, quick fixes, etc. note: intended for lsp use only.");
+			System.err.println(
+					"   --ndjson      in lsp mode, write each diagnostic as a JSON line as soon as it is found");
+			System.err.println(
+					"   --quickfixes  in lsp mode with --stdin, read the file as a JSON string, then answer\n" +
+					"                 each line number read afterwards with the quick fixes for that line");
 			System.err.println(
 					"   --debug       debug mode that does not redirect output in lsp mode");
 			System.err.println(
 					"   --path=dir... use the given directories for package/module checking.");
+			System.err.println(
+					"   --jobs=N      check N files at a time (0 = one per processor); output stays in order");
+			System.err.println(
+					"   --files-from=list  also check the files named (one per line) in the given file");
+			System.err.println(
+					"   --watch       keep running, re-checking files when they or their imports change");
+			System.err.println(
+					"   --time-limit=ms    abandon a theorem if checking it takes longer than this");
+			System.err.println(
+					"   --step-limit=N     abandon a theorem after N unification/case analysis/search steps");
+			System.err.println(
+					"   --solve-depth=N    search proofs up to depth N for 'by solve' (default 5)");
+			System.err.println(
+					"   --solve-parallel=N explore the first N levels of choices for 'by solve' in parallel");
+			System.err.println(
+					"   --invariants=off|sampled|incremental|full  how thoroughly to check internal invariants (default incremental)");
+			System.err.println(
+					"   --profile[=json|csv]  report time and work done for each theorem, and the slowest derivations");
+			System.err.println(
+					"   --low-memory  keep only the interfaces (not the proofs) of imported modules once checked");
 			return;
 		}
 		if (args.length >= 1 && args[0].equals("--version")) {
@@ -64,6 +124,11 @@ public class Main {
 		PathModuleFinder mf = null;
 		PathModuleFinder defaultMF = new PathModuleFinder("");
 		boolean debug = false;
+		boolean ndjson = false;
+		int jobs = 1;
+		boolean watch = false;
+		List<String> batchFiles = new ArrayList<>();
+		List<PathModuleFinder> batchFinders = new ArrayList<>();
 		for (int i = 0; i < args.length; ++i) {
 			if (args[i].equals("--debug")) {
 				debug = true;
@@ -83,6 +148,10 @@ public class Main {
 				Proof.setLsp(true);
 				continue;
 			}
+			if (args[i].equals("--ndjson")) {
+				ndjson = true;
+				continue;
+			}
 			if (args[i].equals("--compwhere")) {
 				edu.cmu.cs.sasylf.util.Util.COMP_WHERE = true;
 				continue;
@@ -134,86 +203,515 @@ public class Main {
 				mf = new PathModuleFinder(args[i].substring(7));
 				continue;
 			}
-			String filename = args[i];
-			File file = null;
-			ModuleId id = null;
-			Proof pf = null;
-			if (args[i].startsWith("--stdin")) filename = "stdin";
-			if (mf != null) {
+			if (args[i].equals("--profile") || args[i].startsWith("--profile=")) {
+				String format = args[i].equals("--profile") ? "text" : args[i].substring(10);
+				if (!format.equals("text") && !format.equals("json") && !format.equals("csv")) {
+					System.err.println("Not a profile format: " + format);
+					System.exit(-1);
+				}
+				edu.cmu.cs.sasylf.util.Util.PROFILE = true;
+				profileFormat = format;
+				continue;
+			}
+			if (args[i].equals("--watch")) {
+				watch = true;
+				continue;
+			}
+			if (args[i].equals("--low-memory")) {
+				edu.cmu.cs.sasylf.util.Util.LOW_MEMORY = true;
+				continue;
+			}
+			if (args[i].startsWith("--time-limit=") || args[i].startsWith("--step-limit=")) {
+				String value = args[i].substring(args[i].indexOf('=')+1);
+				long limit;
 				try {
-					id = new ModuleId(filename);
-				} catch (RuntimeException ex) {
-					System.err.println(ex.getMessage());
-					exitCode = -1;
-					continue;
+					limit = Long.parseLong(value);
+				} catch (NumberFormatException ex) {
+					limit = -1;
+				}
+				if (limit < 0) {
+					System.err.println("Not a limit: " + value);
+					System.exit(-1);
 				}
+				if (args[i].startsWith("--time-limit=")) {
+					edu.cmu.cs.sasylf.util.Util.THEOREM_TIME_LIMIT = limit;
+				} else {
+					edu.cmu.cs.sasylf.util.Util.THEOREM_STEP_LIMIT = limit;
+				}
+				continue;
+			}
+			if (args[i].startsWith("--solve-depth=")) {
+				String value = args[i].substring(14);
+				int depth;
 				try {
-					pf = mf.findProof(id, new Location("<commandline>", 0, 0));
-				} catch (SASyLFError e) {
-					// already handled
+					depth = Integer.parseInt(value);
+				} catch (NumberFormatException ex) {
+					depth = -1;
 				}
-			} else {
-				if (!args[i].startsWith("--stdin")) {
-					file = new File(filename);
-					if (!file.canRead()) {
-						System.err.println("Could not open file " + filename);
-						exitCode = -1;
-					}
+				if (depth < 0) {
+					System.err.println("Not a depth: " + value);
+					System.exit(-1);
 				}
+				edu.cmu.cs.sasylf.util.Util.SOLVE_DEPTH = depth;
+				continue;
+			}
+			if (args[i].startsWith("--solve-parallel=")) {
+				String value = args[i].substring(17);
+				int depth;
 				try {
-					/**
-					 * We take the input from stdin and turn
-					 * that into a VSDocument that is needed
-					 * for the quickfixes.
-					 */
-					InputStreamReader r;
-					if (args[i].startsWith("--stdin"))
-						r = new InputStreamReader(System.in);
-					else r = new InputStreamReader(new FileInputStream(file), "UTF-8");
-
-					pf = Proof.parseAndCheck(defaultMF, filename, null, r);
-				} catch (FileNotFoundException ex) {
-					System.err.println("Could not open file " + filename);
+					depth = Integer.parseInt(value);
+				} catch (NumberFormatException ex) {
+					depth = -1;
+				}
+				if (depth < 0) {
+					System.err.println("Not a depth: " + value);
+					System.exit(-1);
+				}
+				edu.cmu.cs.sasylf.util.Util.SOLVE_PARALLEL_DEPTH = depth;
+				continue;
+			}
+			if (args[i].startsWith("--invariants=")) {
+				String value = args[i].substring(13);
+				edu.cmu.cs.sasylf.util.Invariants.Level level = edu.cmu.cs.sasylf.util.Invariants.parse(value);
+				if (level == null) {
+					System.err.println("Not an invariant checking level: " + value);
+					System.exit(-1);
+				}
+				edu.cmu.cs.sasylf.util.Util.INVARIANTS = level;
+				continue;
+			}
+			if (args[i].equals("--quickfixes")) {
+				serveQuickfixes = true;
+				continue;
+			}
+			if (args[i].startsWith("--jobs=")) {
+				try {
+					jobs = Integer.parseInt(args[i].substring(7));
+				} catch (NumberFormatException ex) {
+					jobs = -1;
+				}
+				if (jobs < 0) {
+					System.err.println("Not a number of jobs: " + args[i].substring(7));
+					System.exit(-1);
+				}
+				if (jobs == 0) jobs = Runtime.getRuntime().availableProcessors();
+				continue;
+			}
+			List<String> filenames;
+			if (args[i].startsWith("--files-from=")) {
+				String list = args[i].substring(13);
+				try {
+					filenames = new ArrayList<>();
+					for (String line : Files.readAllLines(new File(list).toPath(), StandardCharsets.UTF_8)) {
+						if (!line.trim().isEmpty()) filenames.add(line.trim());
+					}
+				} catch (IOException ex) {
+					System.err.println("Could not read file list " + list);
 					exitCode = -1;
 					continue;
-				} catch (IOException | RuntimeException e) {
-					// System.err.println("Internal SASyLF
-					// error analyzing " + filename
-					// + " !");
-					e.printStackTrace(); // unexpected
-															 // exception
-					ErrorHandler.recoverableError(Errors.INTERNAL_ERROR, e.toString(),
-																				null); // "recoverable" = "don't
-																							 // throw"
 				}
+			} else {
+				filenames = List.of(args[i]);
 			}
+			for (String filename : filenames) {
+				if ((jobs > 1 || watch) && !Proof.getLsp()) {
+					batchFiles.add(filename);
+					batchFinders.add(mf);
+				} else if (!check(filename, mf, defaultMF, ndjson, out, err)) {
+					exitCode = -1;
+				}
+			}
+		}
+		if (watch && !batchFiles.isEmpty()) {
+			watch(batchFiles, batchFinders, defaultMF, out, err);
+		} else if (!batchFiles.isEmpty() &&
+				!checkAll(batchFiles, batchFinders, defaultMF, jobs, out, err)) {
+			exitCode = -1;
+		}
+		System.exit(exitCode);
+	}
 
-			if (pf == null) continue;
+	/**
+	 * Check a file given on the command line and print the number of errors found.
+	 * In LSP mode, the results are also written as JSON.
+	 * @param arg file name, or "--stdin" to read standard input
+	 * @param mf module finder to find the file as a module, or null to read
+	 *     the file directly (and use the default module finder for imports)
+	 * @param defaultMF module finder to use for imports if mf is null
+	 * @param ndjson whether to write LSP results as JSON lines
+	 * @param out standard output to restore after LSP mode
+	 * @param err standard error to restore after LSP mode
+	 * @return true if the file could be checked and had no errors
+	 * @throws IOException if the JSON results cannot be written
+	 */
+	private static boolean check(String arg, PathModuleFinder mf, PathModuleFinder defaultMF,
+			boolean ndjson, PrintStream out, PrintStream err) throws IOException {
+		Profile profile = edu.cmu.cs.sasylf.util.Util.PROFILE ? new Profile() : null;
+		Profile previousProfile = profile == null ? null : profile.install();
+		try {
+			return check(arg, mf, defaultMF, ndjson, out, err, profile);
+		} finally {
+			if (profile != null) Profile.restore(previousProfile);
+		}
+	}
 
-			int newErrorCount = pf.getErrorCount();
-			int newWarnings = pf.getWarningCount();
-			@SuppressWarnings("resource")
-			PrintStream ps = (newErrorCount == 0) ? System.out : System.err;
-			if (newErrorCount == 0) ps.print(filename + ": No errors");
-			else if (newErrorCount == 1) ps.print(filename + ": 1 error");
-			else ps.print(filename + ": " + newErrorCount + " errors");
-			if (newWarnings > 0) {
-				if (newWarnings > 1) {
-					ps.print(" and " + newWarnings + " warnings");
-				} else {
-					ps.print(" and 1 warning");
+	/**
+	 * Check a file, printing the profile afterwards if one is given.
+	 * @see #check(String, PathModuleFinder, PathModuleFinder, boolean, PrintStream, PrintStream)
+	 */
+	private static boolean check(String arg, PathModuleFinder mf, PathModuleFinder defaultMF,
+			boolean ndjson, PrintStream out, PrintStream err, Profile profile) throws IOException {
+		String filename = arg;
+		boolean ok = true;
+		File file = null;
+		ModuleId id = null;
+		Proof pf = null;
+		NDJSONReportSink sink = null;
+		VSDocument doc = null;
+		JsonParser requests = null;
+		if (arg.startsWith("--stdin")) filename = "stdin";
+		if (ndjson && Proof.getLsp()) sink = new NDJSONReportSink(out);
+		if (mf != null) {
+			try {
+				id = new ModuleId(filename);
+			} catch (RuntimeException ex) {
+				System.err.println(ex.getMessage());
+				return false;
+			}
+			try {
+				pf = mf.findProof(id, new Location("<commandline>", 0, 0));
+			} catch (SASyLFError e) {
+				// already handled
+			}
+		} else {
+			if (!arg.startsWith("--stdin")) {
+				file = new File(filename);
+				if (!file.canRead()) {
+					System.err.println("Could not open file " + filename);
+					ok = false;
 				}
 			}
-			ps.println(" reported.");
-			if (newErrorCount > 0) exitCode = -1;
+			try {
+				/**
+				 * We take the input from stdin and turn
+				 * that into a VSDocument that is needed
+				 * for the quickfixes.
+				 */
+				Reader r;
+				if (arg.startsWith("--stdin") && serveQuickfixes && Proof.getLsp()) {
+					// the text is kept to compute fixes when they are requested
+					requests = Proof.createJSONParser(System.in);
+					doc = readQuickfixDocument(requests);
+					r = new StringReader(doc.getBody());
+				} else if (arg.startsWith("--stdin"))
+					r = new InputStreamReader(System.in);
+				else r = new InputStreamReader(new FileInputStream(file), "UTF-8");
 
+				pf = new Proof(filename, null);
+				pf.parseAndCheck(defaultMF, r, sink);
+			} catch (FileNotFoundException ex) {
+				System.err.println("Could not open file " + filename);
+				return false;
+			} catch (IOException | RuntimeException e) {
+				// System.err.println("Internal SASyLF
+				// error analyzing " + filename
+				// + " !");
+				e.printStackTrace(); // unexpected
+														 // exception
+				ErrorHandler.recoverableError(Errors.INTERNAL_ERROR, e.toString(),
+																			null); // "recoverable" = "don't
+																						 // throw"
+			}
+		}
+
+		if (pf == null) return ok;
+
+		int newErrorCount = pf.getErrorCount();
+		int newWarnings = pf.getWarningCount();
+		@SuppressWarnings("resource")
+		PrintStream ps = (newErrorCount == 0) ? System.out : System.err;
+		if (newErrorCount == 0) ps.print(filename + ": No errors");
+		else if (newErrorCount == 1) ps.print(filename + ": 1 error");
+		else ps.print(filename + ": " + newErrorCount + " errors");
+		if (newWarnings > 0) {
+			if (newWarnings > 1) {
+				ps.print(" and " + newWarnings + " warnings");
+			} else {
+				ps.print(" and 1 warning");
+			}
+		}
+		ps.println(" reported.");
+		if (newErrorCount > 0) ok = false;
+
+		if (Proof.getLsp()) {
 			System.setOut(out);
 			System.setErr(err);
-			if (Proof.getLsp()) {
-				System.out.println(Proof.getJSON());
+		}
+		if (sink != null) {
+			sink.finish(pf);
+		} else if (Proof.getLsp()) {
+			pf.writeJSON(Proof.createJSONGenerator(System.out));
+			System.out.println();
+		}
+		if (profile != null) {
+			// in LSP mode, standard output is reserved for the results
+			@SuppressWarnings("resource")
+			PrintStream pout = Proof.getLsp() ? System.err : System.out;
+			if (profileFormat.equals("json")) {
+				profile.writeJSON(Proof.createJSONGenerator(pout));
+				pout.println();
+			} else if (profileFormat.equals("csv")) {
+				profile.printCSV(pout);
+			} else {
+				profile.print(pout);
+			}
+		}
+		if (doc != null) {
+			answerQuickfixes(pf, doc, requests, System.out);
+		}
+		return ok;
+	}
+
+	/**
+	 * Read the document to check for <code>--quickfixes</code>, a JSON string.
+	 * @param requests parser of the document and the requests that follow it
+	 * @return document read
+	 * @throws IOException if the input cannot be read or is not a string
+	 */
+	static VSDocument readQuickfixDocument(JsonParser requests) throws IOException {
+		if (requests.nextToken() != JsonToken.VALUE_STRING) {
+			throw new IOException("expected the file as a JSON string");
+		}
+		String text = requests.getText();
+		return new VSDocument(text, 4, text.contains("\r\n") ? "\r\n" : "\n");
+	}
+
+	/**
+	 * Answer quick fix requests for a checked document until standard input is closed
+	 * (see <code>--quickfixes</code>).  Each request is a line number, and is answered
+	 * with a line of JSON: an object with "kind" "fixes", the "line" and a "fixes" array
+	 * whose elements give the "error_type" of the report fixed, and the edit to make.
+	 * The fixes are computed from the results already found, without checking again.
+	 * @param pf results of checking the document
+	 * @param doc document checked
+	 * @param requests parser positioned after the document
+	 * @param out stream to write the answers to
+	 * @throws IOException if reading or writing fails
+	 */
+	static void answerQuickfixes(Proof pf, VSDocument doc, JsonParser requests, OutputStream out) throws IOException {
+		JsonToken t;
+		while ((t = requests.nextToken()) != null) {
+			if (t != JsonToken.VALUE_NUMBER_INT) {
+				throw new IOException("expected a line number, not " + requests.getText());
+			}
+			writeQuickfixes(pf, doc, requests.getIntValue(), out);
+		}
+	}
+
+	/**
+	 * Write the quick fixes for a line as a line of JSON.
+	 * @param pf results of checking the document
+	 * @param doc document checked
+	 * @param line line number (starting at 1)
+	 * @param out stream to write the line to
+	 * @throws IOException if writing fails
+	 */
+	private static void writeQuickfixes(Proof pf, VSDocument doc, int line, OutputStream out) throws IOException {
+		JsonGenerator g = Proof.createJSONGenerator(out);
+		g.setRootValueSeparator(null);
+		g.writeStartObject();
+		g.writeStringField("kind", "fixes");
+		g.writeNumberField("line", line);
+		g.writeArrayFieldStart("fixes");
+		for (Map<String,Object> fix : pf.getQuickfixes(doc, line)) {
+			g.writeStartObject();
+			g.writeStringField("error_type", fix.get("errorType").toString());
+			g.writeStringField("title", (String)fix.get("title"));
+			g.writeStringField("newText", (String)fix.get("newText"));
+			g.writeNumberField("charStart", (Integer)fix.get("charStart"));
+			g.writeNumberField("charEnd", (Integer)fix.get("charEnd"));
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+		g.writeEndObject();
+		g.writeRaw('\n');
+		g.flush();
+	}
+
+	/**
+	 * Check several files at a time using a pool of threads.
+	 * Each thread uses its own module finders, sharing the caches of the
+	 * given finders so that imported modules are only checked once.
+	 * The output for each file is collected and printed
+	 * in the same order as the files are given.
+	 * @param filenames files to check, must not be null
+	 * @param finders the module finder (possibly null) for each file
+	 * @param defaultMF module finder for imports from files read directly
+	 * @param jobs number of threads to use
+	 * @param out standard output
+	 * @param err standard error
+	 * @return true if every file could be checked and had no errors
+	 * @throws IOException if the output cannot be collected
+	 */
+	private static boolean checkAll(List<String> filenames, List<PathModuleFinder> finders,
+			PathModuleFinder defaultMF, int jobs, PrintStream out, PrintStream err) throws IOException {
+		RedirectablePrintStream batchOut = new RedirectablePrintStream(out);
+		RedirectablePrintStream batchErr = new RedirectablePrintStream(err);
+		System.setOut(batchOut);
+		System.setErr(batchErr);
+		ExecutorService pool = Executors.newFixedThreadPool(jobs);
+		List<Future<Boolean>> results = new ArrayList<>();
+		List<ByteArrayOutputStream> outputs = new ArrayList<>();
+		List<ByteArrayOutputStream> errors = new ArrayList<>();
+		for (int i=0; i < filenames.size(); ++i) {
+			final String filename = filenames.get(i);
+			final PathModuleFinder mf = finders.get(i);
+			final ByteArrayOutputStream fileOut = new ByteArrayOutputStream();
+			final ByteArrayOutputStream fileErr = new ByteArrayOutputStream();
+			outputs.add(fileOut);
+			errors.add(fileErr);
+			results.add(pool.submit(() -> {
+				batchOut.redirect(new PrintStream(fileOut, true, "UTF-8"));
+				batchErr.redirect(new PrintStream(fileErr, true, "UTF-8"));
+				try {
+					return check(filename, mf == null ? null : new PathModuleFinder(mf),
+							new PathModuleFinder(defaultMF), false, out, err);
+				} finally {
+					batchOut.redirect(null);
+					batchErr.redirect(null);
+				}
+			}));
+		}
+		pool.shutdown();
+		boolean result = true;
+		for (int i=0; i < filenames.size(); ++i) {
+			try {
+				if (!results.get(i).get()) result = false;
+			} catch (ExecutionException ex) {
+				ex.getCause().printStackTrace(new PrintStream(errors.get(i), true, "UTF-8"));
+				result = false;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			outputs.get(i).writeTo(out);
+			errors.get(i).writeTo(err);
+		}
+		System.setOut(out);
+		System.setErr(err);
+		return result;
+	}
+
+	/**
+	 * Check the files, and then keep checking them again as they change.
+	 * The directories of the files, and of the modules they import,
+	 * are watched for changes.  A changed module is removed from the cache
+	 * along with the modules that import it, and only the files whose imports
+	 * were affected (or which changed themselves) are checked again.
+	 * This method only returns if interrupted.
+	 * @param filenames files to check, must not be null
+	 * @param finders the module finder (possibly null) for each file
+	 * @param defaultMF module finder for imports from files read directly
+	 * @param out standard output
+	 * @param err standard error
+	 * @throws IOException if the file system cannot be watched
+	 */
+	private static void watch(List<String> filenames, List<PathModuleFinder> finders,
+			PathModuleFinder defaultMF, PrintStream out, PrintStream err) throws IOException {
+		final int n = filenames.size();
+		Set<PathModuleFinder> allFinders = new LinkedHashSet<>(finders);
+		allFinders.remove(null);
+		allFinders.add(defaultMF);
+		List<PathModuleFinder> used = new ArrayList<>();
+		Set<Integer> todo = new LinkedHashSet<>();
+		for (int i=0; i < n; ++i) {
+			used.add(null);
+			todo.add(i);
+		}
+		WatchService ws = FileSystems.getDefault().newWatchService();
+		Set<Path> watched = new HashSet<>();
+		System.err.println("Watching for changes (interrupt to stop).");
+		while (true) {
+			for (int i : todo) {
+				PathModuleFinder mf = finders.get(i);
+				// a fresh finder (sharing the cache) remembers what this file needed
+				PathModuleFinder user = new PathModuleFinder(mf == null ? defaultMF : mf);
+				check(filenames.get(i), mf == null ? null : user, user, false, out, err);
+				used.set(i, user);
+			}
+
+			Set<Path> dirs = new HashSet<>();
+			for (int i=0; i < n; ++i) {
+				if (finders.get(i) == null && !filenames.get(i).startsWith("--stdin")) {
+					dirs.add(new File(filenames.get(i)).getAbsoluteFile().getParentFile().toPath());
+				}
+			}
+			for (PathModuleFinder mf : allFinders) {
+				for (ModuleProvider p : mf.getProviders()) {
+					if (!(p instanceof RootModuleProvider)) continue;
+					for (File f : ((RootModuleProvider)p).getLoadedFiles()) {
+						dirs.add(f.getParentFile().toPath());
+					}
+				}
+			}
+			for (Path dir : dirs) {
+				if (watched.add(dir.normalize())) {
+					dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				}
+			}
+
+			Set<Path> changed = new HashSet<>();
+			boolean overflow = false;
+			try {
+				WatchKey key = ws.take();
+				// wait briefly for related changes (editors often write several times)
+				while (key != null) {
+					for (WatchEvent<?> e : key.pollEvents()) {
+						if (e.kind() == StandardWatchEventKinds.OVERFLOW) overflow = true;
+						else changed.add(((Path)key.watchable()).resolve((Path)e.context()).toAbsolutePath().normalize());
+					}
+					key.reset();
+					key = ws.poll(100, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException ex) {
+				ws.close();
+				return;
+			}
+
+			for (PathModuleFinder mf : allFinders) {
+				for (ModuleProvider p : mf.getProviders()) {
+					if (!(p instanceof RootModuleProvider)) continue;
+					RootModuleProvider rp = (RootModuleProvider)p;
+					if (overflow) {
+						// we don't know what changed
+						for (File f : rp.getLoadedFiles()) {
+							changed.add(f.toPath());
+						}
+					}
+					for (Path c : changed) {
+						rp.fileChanged(c.toFile());
+					}
+				}
+			}
+			todo.clear();
+			for (int i=0; i < n; ++i) {
+				String filename = filenames.get(i);
+				if (filename.startsWith("--stdin")) continue; // cannot be read again
+				if (overflow || finders.get(i) == null &&
+						changed.contains(new File(filename).toPath().toAbsolutePath().normalize())) {
+					todo.add(i);
+					continue;
+				}
+				PathModuleFinder user = used.get(i);
+				for (ModuleId id : user.getTopLevelRequests()) {
+					if (!user.isCached(id)) {
+						todo.add(i);
+						break;
+					}
+				}
 			}
 		}
-		System.exit(exitCode);
 	}
 
 	/**
@@ -0,0 +1,64 @@
+package edu.cmu.cs.sasylf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import edu.cmu.cs.sasylf.util.Report;
+import edu.cmu.cs.sasylf.util.ReportSink;
+
+/**
+ * A report sink that writes each report as a line of JSON (NDJSON)
+ * as soon as it is logged, so that an LSP client can show diagnostics
+ * for early theorems while later ones are still being checked.
+ * Each line is a JSON object with a "kind" field:
+ * "diagnostic" lines have the same fields as the LSP quickfix objects,
+ * and a single "ast" line is written at the end.
+ */
+public class NDJSONReportSink implements ReportSink {
+	private final JsonGenerator generator;
+
+	/**
+	 * Create a sink writing to the given stream.
+	 * @param out stream to write lines to, must not be null
+	 * @throws IOException if a JSON generator cannot be created
+	 */
+	public NDJSONReportSink(OutputStream out) throws IOException {
+		generator = Proof.createJSONGenerator(out);
+		generator.setRootValueSeparator(null);
+	}
+
+	@Override
+	public synchronized void report(Report r) {
+		try {
+			generator.writeStartObject();
+			generator.writeStringField("kind", "diagnostic");
+			Proof.writeReportFields(generator, r);
+			generator.writeEndObject();
+			endLine();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Write the final line giving the AST of the checked unit
+	 * and the modules it imports.
+	 * @param pf results of checking, must not be null
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void finish(Proof pf) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("kind", "ast");
+		pf.writeASTFields(generator);
+		generator.writeEndObject();
+		endLine();
+	}
+
+	private void endLine() throws IOException {
+		generator.writeRaw('\n');
+		generator.flush();
+	}
+}
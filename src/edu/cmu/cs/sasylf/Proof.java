@@ -1,14 +1,19 @@
 package edu.cmu.cs.sasylf;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import edu.cmu.cs.sasylf.ast.Clause;
 import edu.cmu.cs.sasylf.ast.CompUnit;
@@ -28,14 +33,22 @@ import edu.cmu.cs.sasylf.parser.DSLToolkitParser;
 import edu.cmu.cs.sasylf.parser.ParseException;
 import edu.cmu.cs.sasylf.parser.TokenMgrError;
 import edu.cmu.cs.sasylf.term.FreeVar;
+import edu.cmu.cs.sasylf.term.Term;
+import edu.cmu.cs.sasylf.util.CancellationToken;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.ErrorReport;
 import edu.cmu.cs.sasylf.util.Errors;
 import edu.cmu.cs.sasylf.util.Location;
+import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.Profile;
+import edu.cmu.cs.sasylf.util.Quickfix;
 import edu.cmu.cs.sasylf.util.Report;
+import edu.cmu.cs.sasylf.util.ReportSink;
 import edu.cmu.cs.sasylf.util.SASyLFError;
 import edu.cmu.cs.sasylf.util.Span;
 import edu.cmu.cs.sasylf.util.TokenSpan;
+import edu.cmu.cs.sasylf.util.TransitiveClosure;
+import edu.cmu.cs.sasylf.util.VSDocument;
 
 /**
  * The results of parsing and checking a SASyLF source unit.
@@ -46,6 +59,7 @@ public class Proof {
 	private CompUnit syntaxTree;
 	private List<Report> reports;
 	private int duringParse;
+	private TransitiveClosure<Term> appearsIn; // subordination established by checking
 
 	/**
 	 * Prepare for some results to come later.
@@ -132,6 +146,89 @@ public class Proof {
 				reports.subList(duringParse, reports.size()));
 	}
 
+	/**
+	 * Add the subordination (appears-in) relation established while checking
+	 * this module to the relation of the current thread.  This is needed
+	 * whenever the module is imported, since the relation is kept per thread
+	 * and reset each time a module starts being checked, while a checked module
+	 * may be imported by many others, in other threads.
+	 * The module's own relation is not changed.
+	 */
+	public void addAppearsInToCurrent() {
+		if (appearsIn == null) return;
+		for (Pair<Term,Term> p : appearsIn) {
+			FreeVar.setAppearsIn(p.first, p.second);
+		}
+	}
+
+	/**
+	 * Discard what is not needed by modules importing this one:
+	 * the proofs of theorems, and the links from the reports into the syntax tree
+	 * and to the solutions found by the prover.
+	 * The reports keep their messages, locations and printed solutions.
+	 * @see CompUnit#releaseProofs()
+	 */
+	public void retainInterfaceOnly() {
+		if (syntaxTree != null) syntaxTree.releaseProofs();
+		if (reports != null) {
+			for (Report r : reports) {
+				r.detach();
+			}
+		}
+	}
+
+	/**
+	 * Compute the quick fixes for the reports on a line, for example when
+	 * the user asks for code actions there.  Fixes are only computed on request:
+	 * checking a file records just the information needed (see
+	 * {@link ErrorReport#getExtraInformation()}), which is cheap for files
+	 * with many warnings whose fixes are never asked for.
+	 * @param doc text that was checked to produce these results
+	 * @param line line number (starting at 1) of the reports to fix
+	 * @return list of fixes (see {@link Quickfix#makeQuickfix}), each with
+	 * the "errorType" of the report it fixes, never null
+	 */
+	public List<Map<String,Object>> getQuickfixes(VSDocument doc, int line) {
+		List<Map<String,Object>> result = new ArrayList<Map<String,Object>>();
+		Quickfix quickfix = null;
+		for (Report r : getReports()) {
+			if (!(r instanceof ErrorReport) || r.getSpan() == null) continue;
+			ErrorReport er = (ErrorReport)r;
+			if (er.getSpan().getLocation().getLine() != line || !Quickfix.hasQuickfix(er)) continue;
+			if (quickfix == null) quickfix = new Quickfix();
+			Map<String,Object> fix = quickfix.makeQuickfix(doc, Quickfix.createMarker(doc, er));
+			if (fix == null || fix.isEmpty()) continue;
+			fix.put("errorType", er.getErrorType());
+			result.add(fix);
+		}
+		return result;
+	}
+
+	private CancellationToken cancellationToken;
+	private boolean cancelled;
+
+	/**
+	 * Set the token that can be used to stop checking this proof early.
+	 * This method must be called before {@link #parseAndCheck(ModuleFinder, Reader)}.
+	 * @param token cancellation token, or null if checking cannot be cancelled
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		if (reports != null) {
+			throw new IllegalStateException("Results already determined");
+		}
+		cancellationToken = token;
+	}
+
+	/**
+	 * Return whether checking was stopped early because the cancellation
+	 * token was cancelled.  In this case, the reports are incomplete
+	 * and should not be relied on.
+	 * @return whether this check was cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
 	private int errors = -1;
 	private int warnings = -1;
 
@@ -194,207 +291,278 @@ public class Proof {
 	 * @param mf may be null
 	 * @param r contents to parse; must not be null
 	 */
-	private final static ObjectMapper objectMapper = new ObjectMapper();
-	private static ObjectNode json = objectMapper.createObjectNode();
-
-	public static String getJSON() { return json.toString(); }
-
-	private ObjectNode moduleToJSON(Module module) {
-		ObjectNode astNode = objectMapper.createObjectNode();
-
-		astNode.put("name", module.getName());
-
-		ArrayNode theoremsNode = objectMapper.createArrayNode();
-		ArrayNode modulesNode = objectMapper.createArrayNode();
-		ObjectNode syntaxesNode = objectMapper.createObjectNode();
-		ArrayNode judgmentsNode = objectMapper.createArrayNode();
-
-		astNode.put("theorems", theoremsNode);
-		astNode.put("modules", modulesNode);
-		astNode.put("syntax", syntaxesNode);
-		astNode.put("judgments", judgmentsNode);
-
-		ArrayNode syntaxDeclarationsNode = objectMapper.createArrayNode();
-		ArrayNode syntaxSugarsNode = objectMapper.createArrayNode();
-
-		syntaxesNode.put("syntax_declarations", syntaxDeclarationsNode);
-		syntaxesNode.put("sugars", syntaxSugarsNode);
-
-		List<Node> pieces = new ArrayList<>();
-		module.collectTopLevel(pieces);
-
-		for (Node piece : pieces) {
-			Location startLoc = piece.getLocation();
-			Location endLoc = piece.getEndLocation();
-
-			if (piece instanceof Theorem) {
-				Theorem theorem = (Theorem)piece;
-				ObjectNode theoremNode = objectMapper.createObjectNode();
+	private final static JsonFactory jsonFactory = new JsonFactory();
 
-				theoremsNode.add(theoremNode);
-
-				theoremNode.put("name", theorem.getName());
-				theoremNode.put("column", startLoc.getColumn());
-				theoremNode.put("line", startLoc.getLine());
-				theoremNode.put("file", startLoc.getFile());
-				theoremNode.put("kind", theorem.getKind());
-
-				ArrayNode forallsNode = objectMapper.createArrayNode();
+	/**
+	 * Create a JSON generator writing to the given stream in UTF-8.
+	 * The stream is not closed when the generator is.
+	 * @param out stream to write to, must not be null
+	 * @return new generator
+	 * @throws IOException if the generator cannot be created
+	 */
+	public static JsonGenerator createJSONGenerator(OutputStream out) throws IOException {
+		JsonGenerator g = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+		g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return g;
+	}
 
-				theoremNode.put("foralls", forallsNode);
+	/**
+	 * Create a JSON parser reading a sequence of values from the given stream.
+	 * The stream is not closed when the parser is.
+	 * @param in stream to read from, must not be null
+	 * @return new parser
+	 * @throws IOException if the parser cannot be created
+	 */
+	public static JsonParser createJSONParser(InputStream in) throws IOException {
+		JsonParser p = jsonFactory.createParser(in);
+		p.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		return p;
+	}
 
-				for (Fact forall : theorem.getForalls()) {
-					forallsNode.add(forall.getElement().toString());
-				}
+	/**
+	 * Write the fields of the JSON object for a report used in LSP mode.
+	 * @param g generator, positioned inside an object
+	 * @param rep report to write, must not be null
+	 * @throws IOException if writing fails
+	 */
+	public static void writeReportFields(JsonGenerator g, Report rep) throws IOException {
+		Span s = rep.getSpan();
+		Location begin = s.getLocation();
+		Location end = s.getEndLocation();
 
-				theoremNode.put("conclusion", theorem.getConclusion().getName());
-			} else if (piece instanceof ModulePart) {
-				ModulePart modulePart = (ModulePart)piece;
-				ObjectNode moduleNode = objectMapper.createObjectNode();
+		String severity = "info";
 
-				modulesNode.add(moduleNode);
+		if (rep instanceof ErrorReport) {
+			ErrorReport report = (ErrorReport)(rep);
 
-				moduleNode.put("name", modulePart.getName() + ": " +
-																	 modulePart.getModule().toString());
-				moduleNode.put("begin_column", startLoc.getColumn());
-				moduleNode.put("end_column", endLoc.getColumn());
-				moduleNode.put("begin_line", startLoc.getLine());
-				moduleNode.put("end_line", endLoc.getLine());
-				moduleNode.put("file", startLoc.getFile());
+			g.writeStringField("error_type", report.getErrorType().name());
+			g.writeStringField("error_info", report.getExtraInformation());
 
-				Module m = (Module)modulePart.getModule().resolve(null);
-				moduleNode.put("ast", moduleToJSON(m));
-			} else if (piece instanceof SyntaxDeclaration) {
-				SyntaxDeclaration syntax = (SyntaxDeclaration)piece;
-				ObjectNode syntaxNode = objectMapper.createObjectNode();
+			severity = (report.isError()) ? "error" : "warning";
+		}
 
-				syntaxDeclarationsNode.add(syntaxNode);
+		g.writeStringField("error_message", rep.getMessage());
+		g.writeStringField("severity", severity);
+		g.writeNumberField("begin_line", begin.getLine());
+		g.writeNumberField("begin_column", begin.getColumn());
+		g.writeNumberField("end_line", end.getLine());
+		g.writeNumberField("end_column", end.getColumn());
+	}
 
-				syntaxNode.put("name", syntax.getName());
-				syntaxNode.put("column", startLoc.getColumn());
-				syntaxNode.put("line", startLoc.getLine());
-				syntaxNode.put("file", startLoc.getFile());
+	/**
+	 * Write the LSP JSON for these results: an object with the reports
+	 * (as "quickfixes") and the AST fields (see {@link #writeASTFields(JsonGenerator)}).
+	 * @param g generator to write to
+	 * @throws IOException if writing fails
+	 */
+	public void writeJSON(JsonGenerator g) throws IOException {
+		g.writeStartObject();
+		g.writeArrayFieldStart("quickfixes");
+		for (Report rep : getReports()) {
+			g.writeStartObject();
+			writeReportFields(g, rep);
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+		writeASTFields(g);
+		g.writeEndObject();
+		g.flush();
+	}
 
-				ArrayNode clausesNode = objectMapper.createArrayNode();
+	/**
+	 * Write the "ast" field for the AST of this unit, and a "module_table"
+	 * field giving the AST of every module imported directly or indirectly.
+	 * Each module is written once in the table, and referred to by its key
+	 * (in the "module" field) wherever it is imported.
+	 * @param g generator, positioned inside an object
+	 * @throws IOException if writing fails
+	 */
+	public void writeASTFields(JsonGenerator g) throws IOException {
+		Map<Module,String> moduleIds = new IdentityHashMap<>();
+		List<Module> imported = new ArrayList<>();
+		g.writeFieldName("ast");
+		if (syntaxTree == null) g.writeNull();
+		else writeModuleJSON(g, syntaxTree, moduleIds, imported);
+		g.writeObjectFieldStart("module_table");
+		// the list grows as we write modules that import other modules
+		for (int i=0; i < imported.size(); ++i) {
+			g.writeFieldName(moduleIds.get(imported.get(i)));
+			writeModuleJSON(g, imported.get(i), moduleIds, imported);
+		}
+		g.writeEndObject();
+	}
 
-				syntaxNode.put("clauses", clausesNode);
+	private static void writeLocationFields(JsonGenerator g, Location loc) throws IOException {
+		g.writeNumberField("column", loc.getColumn());
+		g.writeNumberField("line", loc.getLine());
+		g.writeStringField("file", loc.getFile());
+	}
 
-				List<Clause> clauses = syntax.getClauses();
+	private void writeModuleJSON(JsonGenerator g, Module module,
+			Map<Module,String> moduleIds, List<Module> imported) throws IOException {
+		List<Node> pieces = new ArrayList<>();
+		module.collectTopLevel(pieces);
 
-				for (Clause clause : clauses) {
-					ObjectNode clauseNode = objectMapper.createObjectNode();
+		g.writeStartObject();
+		g.writeStringField("name", module.getName());
 
-					clausesNode.add(clauseNode);
+		g.writeArrayFieldStart("theorems");
+		for (Node piece : pieces) {
+			if (!(piece instanceof Theorem)) continue;
+			Theorem theorem = (Theorem)piece;
+			g.writeStartObject();
+			g.writeStringField("name", theorem.getName());
+			writeLocationFields(g, theorem.getLocation());
+			g.writeStringField("kind", theorem.getKind());
+			g.writeArrayFieldStart("foralls");
+			for (Fact forall : theorem.getForalls()) {
+				g.writeString(forall.getElement().toString());
+			}
+			g.writeEndArray();
+			g.writeStringField("conclusion", theorem.getConclusion().getName());
+			g.writeEndObject();
+		}
+		g.writeEndArray();
 
-					clauseNode.put("name", clause.getName());
-					clauseNode.put("column", clause.getLocation().getColumn());
-					clauseNode.put("line", clause.getLocation().getLine());
-					clauseNode.put("file", clause.getLocation().getFile());
+		g.writeArrayFieldStart("modules");
+		for (Node piece : pieces) {
+			if (!(piece instanceof ModulePart)) continue;
+			ModulePart modulePart = (ModulePart)piece;
+			Location startLoc = piece.getLocation();
+			Location endLoc = piece.getEndLocation();
+			g.writeStartObject();
+			g.writeStringField("name", modulePart.getName() + ": " +
+																	modulePart.getModule().toString());
+			g.writeNumberField("begin_column", startLoc.getColumn());
+			g.writeNumberField("end_column", endLoc.getColumn());
+			g.writeNumberField("begin_line", startLoc.getLine());
+			g.writeNumberField("end_line", endLoc.getLine());
+			g.writeStringField("file", startLoc.getFile());
+			Module m = (Module)modulePart.getModule().resolve(null);
+			if (m != null) {
+				String key = moduleIds.get(m);
+				if (key == null) {
+					key = Integer.toString(moduleIds.size());
+					moduleIds.put(m, key);
+					imported.add(m);
 				}
-			} else if (piece instanceof Sugar) {
-				Sugar syntax = (Sugar)piece;
-				ObjectNode syntaxNode = objectMapper.createObjectNode();
-
-				syntaxSugarsNode.add(syntaxNode);
-
-				syntaxNode.put("name", syntax.toString());
-				syntaxNode.put("column", syntax.getLocation().getColumn());
-				syntaxNode.put("line", syntax.getLocation().getLine());
-				syntaxNode.put("file", syntax.getLocation().getFile());
-			} else if (piece instanceof Judgment) {
-				Judgment judgment = (Judgment)piece;
-
-				ObjectNode judgmentNode = objectMapper.createObjectNode();
-
-				judgmentsNode.add(judgmentNode);
-
-				judgmentNode.put("name", judgment.getName());
-				judgmentNode.put("column", judgment.getLocation().getColumn());
-				judgmentNode.put("line", judgment.getLocation().getLine());
-				judgmentNode.put("form", judgment.getForm().getName());
-				judgmentNode.put("file", judgment.getLocation().getFile());
-
-				List<Rule> rules = judgment.getRules();
-
-				ArrayNode rulesNode = objectMapper.createArrayNode();
-
-				judgmentNode.put("rules", rulesNode);
-
-				for (Rule rule : rules) {
-					ObjectNode ruleNode = objectMapper.createObjectNode();
-
-					rulesNode.add(ruleNode);
-
-					ArrayNode premisesNode = objectMapper.createArrayNode();
-
-					ruleNode.put("premises", premisesNode);
+				g.writeStringField("module", key);
+			}
+			g.writeEndObject();
+		}
+		g.writeEndArray();
 
-					for (Clause clause : rule.getPremises()) {
-						premisesNode.add(clause.getName());
-					}
+		g.writeObjectFieldStart("syntax");
+		g.writeArrayFieldStart("syntax_declarations");
+		for (Node piece : pieces) {
+			if (!(piece instanceof SyntaxDeclaration)) continue;
+			SyntaxDeclaration syntax = (SyntaxDeclaration)piece;
+			g.writeStartObject();
+			g.writeStringField("name", syntax.getName());
+			writeLocationFields(g, syntax.getLocation());
+			g.writeArrayFieldStart("clauses");
+			for (Clause clause : syntax.getClauses()) {
+				g.writeStartObject();
+				g.writeStringField("name", clause.getName());
+				writeLocationFields(g, clause.getLocation());
+				g.writeEndObject();
+			}
+			g.writeEndArray();
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+		g.writeArrayFieldStart("sugars");
+		for (Node piece : pieces) {
+			if (!(piece instanceof Sugar)) continue;
+			g.writeStartObject();
+			g.writeStringField("name", piece.toString());
+			writeLocationFields(g, piece.getLocation());
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+		g.writeEndObject();
 
-					ruleNode.put("name", rule.getName());
-					ruleNode.put("conclusion", rule.getConclusion().getName());
-					ruleNode.put("in_file",
-											 rule.getLocation().getFile().equals(filename));
-					ruleNode.put("column", rule.getLocation().getColumn());
-					ruleNode.put("line", rule.getLocation().getLine());
-					ruleNode.put("file", rule.getLocation().getFile());
+		g.writeArrayFieldStart("judgments");
+		for (Node piece : pieces) {
+			if (!(piece instanceof Judgment)) continue;
+			Judgment judgment = (Judgment)piece;
+			g.writeStartObject();
+			g.writeStringField("name", judgment.getName());
+			g.writeNumberField("column", judgment.getLocation().getColumn());
+			g.writeNumberField("line", judgment.getLocation().getLine());
+			g.writeStringField("form", judgment.getForm().getName());
+			g.writeStringField("file", judgment.getLocation().getFile());
+			g.writeArrayFieldStart("rules");
+			for (Rule rule : judgment.getRules()) {
+				g.writeStartObject();
+				g.writeArrayFieldStart("premises");
+				for (Clause clause : rule.getPremises()) {
+					g.writeString(clause.getName());
 				}
+				g.writeEndArray();
+				g.writeStringField("name", rule.getName());
+				g.writeStringField("conclusion", rule.getConclusion().getName());
+				g.writeBooleanField("in_file",
+						rule.getLocation().getFile().equals(filename));
+				writeLocationFields(g, rule.getLocation());
+				g.writeEndObject();
 			}
+			g.writeEndArray();
+			g.writeEndObject();
 		}
+		g.writeEndArray();
 
-		return astNode;
+		g.writeEndObject();
 	}
 
 	public void parseAndCheck(ModuleFinder mf, Reader r) {
+		parseAndCheck(mf, r, null);
+	}
+
+	/**
+	 * Analyze the SASyLF code in the reader and initialize remaining parts of
+	 * results, passing each report to the given sink as soon as it is logged.
+	 * This method can called just once.
+	 * @param mf may be null
+	 * @param r contents to parse; must not be null
+	 * @param sink receives reports while checking, may be null
+	 */
+	public void parseAndCheck(ModuleFinder mf, Reader r, ReportSink sink) {
 		if (reports != null) {
 			throw new IllegalStateException("Results already determined");
 		}
 		// System.out.println(id + ".parseAndCheck()");
-		reports = ErrorHandler.withFreshReports(() -> doParseAndCheck(mf, r));
-
-		if (lsp) {
-			ArrayNode qfArray = objectMapper.createArrayNode();
-
-			json.put("quickfixes", qfArray);
-
-			for (Report rep : reports) {
-				Span s = rep.getSpan();
-				Location begin = s.getLocation();
-				Location end = s.getEndLocation();
-
-				String severity = "info";
-
-				ObjectNode qfNode = objectMapper.createObjectNode();
-
-				qfArray.add(qfNode);
-
-				if (rep instanceof ErrorReport) {
-					ErrorReport report = (ErrorReport)(rep);
-
-					qfNode.put("error_type", report.getErrorType().name());
-					qfNode.put("error_info", report.getExtraInformation());
-
-					severity = (report.isError()) ? "error" : "warning";
+		final CancellationToken token = cancellationToken;
+		CancellationToken previous = token == null ? null : token.install();
+		try {
+			reports = ErrorHandler.withFreshReports(sink, () -> {
+				try {
+					doParseAndCheck(mf, r);
+				} catch (CancellationToken.Cancelled ex) {
+					// imported modules leave it to the proof with the token
+					if (token == null) throw ex;
+					cancelled = true;
 				}
-
-				qfNode.put("error_message", rep.getMessage());
-				qfNode.put("severity", severity);
-				qfNode.put("begin_line", begin.getLine());
-				qfNode.put("begin_column", begin.getColumn());
-				qfNode.put("end_line", end.getLine());
-				qfNode.put("end_column", end.getColumn());
-			}
-
-			json.put("ast", moduleToJSON((Module)syntaxTree));
+			});
+		} finally {
+			if (token != null) CancellationToken.restore(previous);
 		}
 
 		cacheErrorCount();
 	}
 
 	private void doParseAndCheck(ModuleFinder mf, Reader r) {
+		Profile.Entry previousEntry = Profile.enter("module", filename, new Location(filename, 0, 0));
+		try {
+			parseAndCheckProfiled(mf, r);
+		} finally {
+			Profile.exit(previousEntry);
+		}
+	}
+
+	private void parseAndCheckProfiled(ModuleFinder mf, Reader r) {
 		FreeVar.reinit();
+		long start = Profile.now();
 		try {
 			syntaxTree = DSLToolkitParser.read(filename, r);
 		} catch (ParseException e) {
@@ -418,8 +586,14 @@ public class Proof {
 			ErrorHandler.recoverableError(Errors.INTERNAL_ERROR,
 																		"Internal error during parsing: " + e,
 																		errorSpan);
+		} catch (StackOverflowError e) {
+			ErrorHandler.recoverableError(Errors.INTERNAL_ERROR,
+																		": nested too deeply to parse",
+																		new Location(filename, 0, 0));
 		}
 		duringParse = ErrorHandler.getReports().size();
+		if (start != 0) Profile.parsed(start);
+		start = Profile.now();
 		if (syntaxTree != null) {
 			try {
 				if (mf == null) syntaxTree.typecheck(new ResourceModuleFinder(), null);
@@ -434,7 +608,12 @@ public class Proof {
 				ex.printStackTrace();
 				ErrorHandler.recoverableError(Errors.INTERNAL_ERROR,
 																			ex.getLocalizedMessage(), null);
+			} catch (StackOverflowError ex) {
+				ErrorHandler.recoverableError(Errors.INTERNAL_ERROR,
+																			": nested too deeply to check", null);
 			}
 		}
+		if (start != 0) Profile.bodyChecked(start);
+		appearsIn = FreeVar.getAppearsIn();
 	}
 }
@@ -0,0 +1,312 @@
+package edu.cmu.cs.sasylf;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generate large SASyLF files that check without errors, to see how checking
+ * time grows as the files grow in different ways.
+ * The files are written to a directory (relative to where the checker will be run),
+ * whose path is used as the package, so that the checker (or {@link Benchmark})
+ * can be run on the directory as generated.  There is a main module,
+ * and a number of library modules that it imports.  Each module has
+ * <ul>
+ * <li> a syntax <code>t</code> with the given number of productions,
+ *     and a judgment <code>t ok</code> with a rule for each;
+ *     a lemma proves it for every <code>t</code> by induction.
+ * <li> a judgment <code>t ranks</code> with the given number of rules,
+ *     and a lemma that does case analysis on it.
+ * <li> a syntax <code>b</code> with as many cases as the case-analysis breadth,
+ *     and the given number of lemmas each of which does nested case analyses
+ *     on judgments <code>b pick</code> to the given depth.
+ *     Each lemma uses the previous one.
+ * <li> a judgment with a context, and a lemma that builds a derivation
+ *     in a context of the given length.
+ * </ul>
+ * The main module also has a lemma for each library module that uses
+ * one of its lemmas.
+ */
+public class ProofGenerator {
+	private int productions = 4;
+	private int rules = 4;
+	private int lemmas = 10;
+	private int breadth = 4;
+	private int depth = 2;
+	private int context = 10;
+	private int imports = 0;
+
+	private final StringBuilder sb = new StringBuilder();
+
+	private void line(String s) {
+		sb.append(s).append('\n');
+	}
+
+	/**
+	 * Return the name used for the i'th imported syntax: "ua", "ub", ..., "uba", ...
+	 * These may not end in a digit, or they would be taken as variants of each other.
+	 */
+	private static String importedName(int i) {
+		StringBuilder result = new StringBuilder();
+		do {
+			result.insert(0, (char)('a' + i % 26));
+			i /= 26;
+		} while (i > 0);
+		return "u" + result;
+	}
+
+	private String generate(String pkg, int numImports) {
+		sb.setLength(0);
+		line("package " + pkg + ";");
+		line("");
+		StringBuilder terminals = new StringBuilder("terminals z ok ranks pick lam wf");
+		for (int j=1; j < productions; ++j) terminals.append(" k" + j);
+		for (int j=1; j <= breadth; ++j) terminals.append(" p" + j);
+		line(terminals.toString());
+		line("");
+		for (int i=1; i <= numImports; ++i) {
+			line("module L" + i + " = " + pkg + ".Lib" + i);
+		}
+		line("");
+		line("syntax");
+		StringBuilder t = new StringBuilder("  t ::= z");
+		for (int j=1; j < productions; ++j) t.append(" | k" + j + " t");
+		line(t.toString());
+		StringBuilder b = new StringBuilder("  b ::= p1");
+		for (int j=2; j <= breadth; ++j) b.append(" | p" + j);
+		line(b.toString());
+		line("  e ::= x | lam x => e[x] | z");
+		line("  Gamma ::= * | Gamma, x");
+		line("");
+		for (int i=1; i <= numImports; ++i) {
+			String u = importedName(i-1);
+			line("syntax " + u + " = L" + i + ".t");
+			line("judgment ok" + u + " = L" + i + ".ok: " + u + " ok");
+		}
+		line("");
+
+		line("judgment ok: t ok");
+		line("");
+		rule(new String[0], "z ok", "ok-z");
+		for (int j=1; j < productions; ++j) {
+			rule(new String[] {"t ok"}, "k" + j + " t ok", "ok-k" + j);
+		}
+
+		line("judgment ranks: t ranks");
+		line("");
+		for (int j=1; j <= rules; ++j) {
+			rule(new String[] {"t ok"}, "t ranks", "rank-" + j);
+		}
+
+		line("judgment pick: b pick");
+		line("");
+		for (int j=1; j <= breadth; ++j) {
+			rule(new String[0], "p" + j + " pick", "pick-" + j);
+		}
+
+		line("judgment wf: Gamma |- e wf");
+		line("assumes Gamma");
+		line("");
+		rule(new String[0], "Gamma |- z wf", "wf-z");
+		rule(new String[0], "Gamma, x |- x wf", "wf-var");
+		rule(new String[] {"Gamma, x |- e[x] wf"}, "Gamma |- lam x => e[x] wf", "wf-lam");
+
+		generateOkTotal();
+		generateRankOk();
+		for (int i=0; i < lemmas; ++i) {
+			generatePick(i);
+		}
+		if (context > 0) generateContext();
+		for (int i=1; i <= numImports; ++i) {
+			String u = importedName(i-1);
+			line("lemma use-" + i + ": forall " + u + " exists " + u + " ok.");
+			line("proof by lemma L" + i + ".ok-total on " + u);
+			line("end lemma");
+			line("");
+		}
+		return sb.toString();
+	}
+
+	private void rule(String[] premises, String conclusion, String name) {
+		for (String p : premises) {
+			line(p);
+		}
+		line(dashes(conclusion) + " " + name);
+		line(conclusion);
+		line("");
+	}
+
+	private static String dashes(String s) {
+		StringBuilder result = new StringBuilder();
+		for (int i=0; i < Math.max(s.length(), 3); ++i) result.append('-');
+		return result.toString();
+	}
+
+	private void generateOkTotal() {
+		line("lemma ok-total: forall t exists t ok.");
+		line("proof by induction on t:");
+		line("  case z is");
+		line("    proof by rule ok-z");
+		line("  end case");
+		for (int j=1; j < productions; ++j) {
+			line("  case k" + j + " t1 is");
+			line("    d1: t1 ok by induction hypothesis on t1");
+			line("    proof by rule ok-k" + j + " on d1");
+			line("  end case");
+		}
+		line("end induction");
+		line("end lemma");
+		line("");
+	}
+
+	private void generateRankOk() {
+		line("lemma rank-ok: forall d: t ranks exists t ok.");
+		line("proof by case analysis on d:");
+		for (int j=1; j <= rules; ++j) {
+			line("  case rule");
+			line("    d1: t ok");
+			line("    -------- rank-" + j);
+			line("    _: t ranks");
+			line("  is");
+			line("    proof by d1");
+			line("  end case");
+		}
+		line("end case analysis");
+		line("end lemma");
+		line("");
+	}
+
+	/**
+	 * Generate a lemma that does nested case analysis on each of its inputs.
+	 * Only the last case of each analysis has a nested analysis, so that
+	 * the size grows with the product (not the power) of breadth and depth.
+	 */
+	private void generatePick(int n) {
+		StringBuilder header = new StringBuilder("lemma choose-" + n + ":");
+		List<String> inputs = new ArrayList<String>();
+		for (int i=1; i <= depth; ++i) {
+			header.append(" forall d" + i + ": b" + i + " pick");
+			inputs.add("d" + i);
+		}
+		header.append(" exists b1 pick.");
+		line(header.toString());
+		generateCases(n, 1, "", String.join(", ", inputs));
+		line("end lemma");
+		line("");
+	}
+
+	private void generateCases(int n, int level, String indent, String inputs) {
+		line(indent + "proof by case analysis on d" + level + ":");
+		for (int j=1; j <= breadth; ++j) {
+			// b1 is p1 in the first case at the outermost level, and pB after that
+			int result = level == 1 ? j : breadth;
+			line(indent + "  case rule");
+			line(indent + "    ------- pick-" + j);
+			line(indent + "    _: p" + j + " pick");
+			line(indent + "  is");
+			if (j == breadth && level < depth) {
+				generateCases(n, level+1, indent + "    ", inputs);
+			} else if (j == 1 && level == 1 && n > 0) {
+				line(indent + "    proof by lemma choose-" + (n-1) + " on " + inputs);
+			} else {
+				line(indent + "    proof by rule pick-" + result);
+			}
+			line(indent + "  end case");
+		}
+		line(indent + "end case analysis");
+	}
+
+	private void generateContext() {
+		StringBuilder term = new StringBuilder();
+		for (int i=1; i <= context; ++i) {
+			term.append("lam x" + i + " => ");
+		}
+		line("lemma wf-deep: exists * |- " + term + "x" + context + " wf.");
+		StringBuilder gamma = new StringBuilder("*");
+		for (int i=1; i <= context; ++i) gamma.append(", x" + i);
+		String body = "x" + context;
+		line("c" + context + ": " + gamma + " |- " + body + " wf by rule wf-var");
+		for (int i=context; i > 1; --i) {
+			gamma.setLength(gamma.lastIndexOf(","));
+			body = "lam x" + i + " => " + body;
+			line("c" + (i-1) + ": " + gamma + " |- " + body + " wf by rule wf-lam on c" + i);
+		}
+		line("proof by rule wf-lam on c1");
+		line("end lemma");
+		line("");
+	}
+
+	private static void write(File file, String contents) throws IOException {
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			w.write(contents);
+		}
+	}
+
+	/**
+	 * Write the main module and the library modules it imports.
+	 * @param dir relative directory to write to, which gives the package
+	 * @throws IOException if the files cannot be written
+	 */
+	public void generate(File dir) throws IOException {
+		String pkg = dir.getPath().replace(File.separatorChar, '.');
+		for (String part : pkg.split("\\.")) {
+			if (!part.matches("[A-Za-z][A-Za-z0-9_]*")) {
+				throw new IllegalArgumentException("Directory " + dir + " cannot be used as a package");
+			}
+		}
+		dir.mkdirs();
+		for (int i=1; i <= imports; ++i) {
+			write(new File(dir, "Lib" + i + ".slf"), generate(pkg, 0));
+		}
+		write(new File(dir, "Main.slf"), generate(pkg, imports));
+	}
+
+	public static void main(String[] args) throws IOException {
+		ProofGenerator g = new ProofGenerator();
+		File dir = null;
+		for (String s : args) {
+			int eq = s.indexOf('=');
+			if (!s.startsWith("--") || eq < 0) {
+				if (dir != null) usage();
+				dir = new File(s);
+				continue;
+			}
+			String option = s.substring(2, eq);
+			int n;
+			try {
+				n = Integer.parseInt(s.substring(eq+1));
+			} catch (NumberFormatException ex) {
+				usage();
+				return;
+			}
+			if (n < 0) usage();
+			switch (option) {
+			case "productions": g.productions = n; break;
+			case "rules": g.rules = n; break;
+			case "lemmas": g.lemmas = n; break;
+			case "breadth": g.breadth = n; break;
+			case "depth": g.depth = n; break;
+			case "context": g.context = n; break;
+			case "imports": g.imports = n; break;
+			default: usage();
+			}
+		}
+		if (dir == null || dir.isAbsolute() || g.productions < 1 || g.rules < 1 ||
+				g.breadth < 1 || g.depth < 1) {
+			usage();
+		}
+		g.generate(dir);
+	}
+
+	private static void usage() {
+		System.out.println("usage: java " + ProofGenerator.class.getName() +
+				" [--productions=N] [--rules=N] [--lemmas=N] [--breadth=N] [--depth=N]" +
+				" [--context=N] [--imports=N] relative/dir");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,177 @@
+package edu.cmu.cs.sasylf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.cs.sasylf.ast.Node;
+import edu.cmu.cs.sasylf.ast.Theorem;
+import edu.cmu.cs.sasylf.module.ModuleId;
+import edu.cmu.cs.sasylf.module.PathModuleFinder;
+import edu.cmu.cs.sasylf.prover.SolveReport;
+import edu.cmu.cs.sasylf.util.Location;
+import edu.cmu.cs.sasylf.util.Report;
+import edu.cmu.cs.sasylf.util.SimpleTestSuite;
+import edu.cmu.cs.sasylf.util.Util;
+import edu.cmu.cs.sasylf.util.VSDocument;
+
+public class UnitTests extends SimpleTestSuite {
+
+	public UnitTests() { }
+
+	private static final String SOURCE =
+			"package quickfix;\n" +
+			"terminals z s\n" +
+			"syntax\n" +
+			"  n ::= z | s n\n" +
+			"judgment eq: n = n\n" +
+			"  ----- eq\n" +
+			"  n = n\n" +
+			"theorem t: forall n exists n = n.\n" +
+			"  _: n = n by rule eq\n" +
+			"end lemma\n";
+
+	/**
+	 * Drive the --quickfixes protocol as the LSP server does: the document
+	 * as a JSON string, followed by line numbers.
+	 */
+	private void testQuickfixes() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		String input = mapper.writeValueAsString(SOURCE) + "\n10\n3\n";
+		JsonParser requests = Proof.createJSONParser(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+		VSDocument doc = Main.readQuickfixDocument(requests);
+		assertEqual("document read", SOURCE, doc.getBody());
+		Proof pf = Proof.parseAndCheck(null, "quickfix.slf", null, new StringReader(doc.getBody()));
+		assertEqual("errors", 1, pf.getErrorCount());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Main.answerQuickfixes(pf, doc, requests, out);
+		String[] lines = out.toString("UTF-8").split("\n");
+		assertEqual("one line for each request", 2, lines.length);
+
+		JsonNode answer = mapper.readTree(lines[0]);
+		assertEqual("kind", "fixes", answer.path("kind").asText());
+		assertEqual("line", 10, answer.path("line").asInt());
+		assertEqual("fixes", 1, answer.path("fixes").size());
+		JsonNode fix = answer.path("fixes").get(0);
+		assertEqual("error type", "WRONG_END", fix.path("error_type").asText());
+		assertEqual("title", "replace 'lemma' with 'theorem'", fix.path("title").asText());
+		assertEqual("new text", "theorem", fix.path("newText").asText());
+		int start = fix.path("charStart").asInt(-1), end = fix.path("charEnd").asInt(-1);
+		assertEqual("replaced text", "lemma", SOURCE.substring(start, end));
+
+		answer = mapper.readTree(lines[1]);
+		assertEqual("line without errors", 3, answer.path("line").asInt());
+		assertTrue("no fixes", answer.path("fixes").isArray() && answer.path("fixes").size() == 0);
+	}
+
+	private static final String BASE =
+			"package lowmem;\n" +
+			"terminals z s\n" +
+			"syntax\n" +
+			"  n ::= z | s n\n" +
+			"judgment eq: n = n\n" +
+			"  ----- eq\n" +
+			"  n = n\n" +
+			"theorem refl: forall n exists n = n.\n" +
+			"  _: n = n by solve\n" +
+			"end theorem\n";
+
+	private static final String USER =
+			"package lowmem;\n" +
+			"terminals z\n" +
+			"module B = lowmem.base\n" +
+			"syntax m = B.n\n" +
+			"judgment same = B.eq : m = m\n" +
+			"theorem again: forall m exists m = m.\n" +
+			"  _: m = m by theorem B.refl on m\n" +
+			"end theorem\n";
+
+	/**
+	 * Check a module importing another with {@link Util#LOW_MEMORY} set:
+	 * the import must still resolve, while the imported proofs are gone.
+	 */
+	private void testLowMemory() throws IOException {
+		Path dir = Files.createTempDirectory("lowmem");
+		Path pkg = Files.createDirectory(dir.resolve("lowmem"));
+		Files.write(pkg.resolve("base.slf"), BASE.getBytes(StandardCharsets.UTF_8));
+		Files.write(pkg.resolve("user.slf"), USER.getBytes(StandardCharsets.UTF_8));
+		boolean saved = Util.LOW_MEMORY;
+		Util.LOW_MEMORY = true;
+		try {
+			PathModuleFinder mf = new PathModuleFinder(dir.toString());
+			Location here = new Location("UnitTests", 0, 0);
+			Proof user = mf.findProof(new ModuleId("lowmem" + File.separator + "user.slf"), here);
+			assertTrue("importer checked", user != null);
+			assertEqual("importer errors", 0, user.getErrorCount());
+
+			Proof base = mf.findProof(new ModuleId("lowmem" + File.separator + "base.slf"), here);
+			assertTrue("imported module cached", base != null && mf.isCached(new ModuleId("lowmem" + File.separator + "base.slf")));
+			List<Node> things = new ArrayList<Node>();
+			base.getCompilationUnit().collectTopLevel(things);
+			int theorems = 0;
+			for (Node n : things) {
+				if (!(n instanceof Theorem)) continue;
+				++theorems;
+				assertEqual("derivations of " + ((Theorem)n).getName(), 0, ((Theorem)n).getDerivations().size());
+			}
+			assertEqual("theorems kept", 1, theorems);
+			int solutions = 0;
+			for (Report r : base.getReports()) {
+				if (!(r instanceof SolveReport)) continue;
+				++solutions;
+				assertEqual("solution released", null, ((SolveReport)r).getProof());
+				assertTrue("solution still printed", r.getExtraInformation() != null && r.getExtraInformation().contains("eq"));
+				assertTrue("span detached", !(r.getSpan() instanceof Node));
+			}
+			assertEqual("solutions reported", 1, solutions);
+		} finally {
+			Util.LOW_MEMORY = saved;
+			Files.deleteIfExists(pkg.resolve("base.slf"));
+			Files.deleteIfExists(pkg.resolve("user.slf"));
+			Files.deleteIfExists(pkg);
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	private void testBenchmarkCompare() {
+		Map<String,Benchmark.Measurement> baseline = new HashMap<String,Benchmark.Measurement>();
+		baseline.put("a.slf", new Benchmark.Measurement(Benchmark.MIN_COMPARED_TIME, 1000, 1000));
+		Map<String,Benchmark.Measurement> results = new HashMap<String,Benchmark.Measurement>();
+		results.put("a.slf", new Benchmark.Measurement(Benchmark.MIN_COMPARED_TIME, 1000, 1050));
+		assertEqual("peak heap within threshold", 0, Benchmark.compare(results, baseline, 10));
+		results.put("a.slf", new Benchmark.Measurement(Benchmark.MIN_COMPARED_TIME, 1000, 1200));
+		assertEqual("peak heap regression", 1, Benchmark.compare(results, baseline, 10));
+		results.put("a.slf", new Benchmark.Measurement(2 * Benchmark.MIN_COMPARED_TIME, 1200, 1200));
+		assertEqual("all regressions", 3, Benchmark.compare(results, baseline, 10));
+	}
+
+	@Override
+	protected void runTests() {
+		testBenchmarkCompare();
+		try {
+			testQuickfixes();
+			testLowMemory();
+		} catch (IOException ex) {
+			assertTrue("unexpected " + ex, false);
+		}
+	}
+
+	public static void main(String[] args) {
+		new UnitTests().run();
+	}
+
+}
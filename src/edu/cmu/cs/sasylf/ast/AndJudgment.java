@@ -2,9 +2,7 @@ package edu.cmu.cs.sasylf.ast;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import edu.cmu.cs.sasylf.util.Location;
 import edu.cmu.cs.sasylf.util.Span;
@@ -40,7 +38,7 @@ public class AndJudgment extends AndOrJudgment {
 		super.getRules().add(new Rule(l,name,new ArrayList<>(premises),result));
 	}
 
-	private static Map<List<Judgment>,AndJudgment> cache = new HashMap<List<Judgment>,AndJudgment>();
+	private static JudgmentCache<List<Judgment>,AndJudgment> cache = new JudgmentCache<List<Judgment>,AndJudgment>();
 
 	/**
 	 * Generate an "and" judgment for conjoining a series of judgments together.
@@ -49,25 +47,18 @@ public class AndJudgment extends AndOrJudgment {
 	 * @return judgment that is the conjunction of the parts
 	 */
 	public static AndJudgment makeAndJudgment(Location loc, Context ctx, List <Judgment> parts, List<ClauseUse> uses) {
-		AndJudgment result = cache.get(parts);
-		if (result == null) {
-			parts = new ArrayList<Judgment>(parts); // defensive programming
-			result = new AndJudgment(loc,parts,uses);
+		final List<Judgment> key = new ArrayList<Judgment>(parts); // defensive programming
+		return cache.get(key, () -> {
+			AndJudgment result = new AndJudgment(loc,key,uses);
 			result.defineConstructor(ctx);
 			result.typecheck(ctx);
-			cache.put(parts,result);
-		}
-		return result;
+			return result;
+		});
 	}
 
 	public static AndJudgment makeEmptyAndJudgment(Location loc) {
 		List<Judgment> empty = Collections.<Judgment>emptyList();
-		AndJudgment result = cache.get(empty);
-		if (result == null) {
-			result = new AndJudgment(loc,empty,Collections.emptyList());
-			cache.put(empty, result);
-		}
-		return result;
+		return cache.get(empty, () -> new AndJudgment(loc,empty,Collections.emptyList()));
 	}
 
 }
@@ -195,10 +195,13 @@ public abstract class AndOrJudgment extends Judgment {
 		String name = super.getName();
 		name = name.substring(0,name.indexOf('['));
 		key[n] = name.intern();
-		Constant result = typeTerms.get(key);
-		if (result == null) {
-			result = super.computeTypeTerm();
-			typeTerms.put(key, result);
+		Constant result;
+		synchronized (typeTerms) {
+			result = typeTerms.get(key);
+			if (result == null) {
+				result = super.computeTypeTerm();
+				typeTerms.put(key, result);
+			}
 		}
 		// System.out.println("Computed typeTerm for " + getName() + " to be " + result);
 		return result;
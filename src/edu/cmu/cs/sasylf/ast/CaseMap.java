@@ -0,0 +1,174 @@
+package edu.cmu.cs.sasylf.ast;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import edu.cmu.cs.sasylf.term.Substitution;
+import edu.cmu.cs.sasylf.term.Term;
+import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.Profile;
+import edu.cmu.cs.sasylf.util.SASyLFError;
+
+/**
+ * The possibilities of a case analysis, indexed by the rule or clause
+ * that generates them.  Possibilities for each key are computed lazily
+ * the first time the key is looked up (or the map is iterated) and then
+ * remembered.  A case naming a rule thus only causes that rule's
+ * possibilities to be computed; the remaining ones are only generated
+ * if a missing case check iterates over the map.
+ * If computing the possibilities of a key fails, the key leaves the map,
+ * but every later lookup of the key throws the same exception again, so that
+ * later cases for the key are abandoned rather than reported as unnecessary.
+ * The error is only reported once, when it first happens.
+ * An error already reported while iterating is not thrown,
+ * so that the missing case check still covers the other keys.
+ * <p>
+ * As before, the sets are mutable: cases remove possibilities as they are matched.
+ * Keys are iterated in the order they were added.
+ */
+public class CaseMap extends AbstractMap<CanBeCase, Set<Pair<Term,Substitution>>> {
+
+	// values are null for keys whose possibilities have not yet been computed
+	private final Map<CanBeCase, Set<Pair<Term,Substitution>>> computed = new LinkedHashMap<CanBeCase, Set<Pair<Term,Substitution>>>();
+	private final Map<CanBeCase, Supplier<Set<Pair<Term,Substitution>>>> pending = new HashMap<CanBeCase, Supplier<Set<Pair<Term,Substitution>>>>();
+	// keys whose computation threw: they are no longer in computed
+	private final Map<CanBeCase, RuntimeException> failures = new HashMap<CanBeCase, RuntimeException>();
+
+	/**
+	 * Create an empty case map.
+	 */
+	public CaseMap() { }
+
+	/**
+	 * Register a key whose possibilities will be computed on demand.
+	 * If the supplier returns null, the key is removed from the map
+	 * as if it never had been added.
+	 * @param key rule or clause, must not be null
+	 * @param supplier computation of the possibilities, must not be null
+	 */
+	public void putLazy(CanBeCase key, Supplier<Set<Pair<Term,Substitution>>> supplier) {
+		if (supplier == null) throw new NullPointerException("supplier cannot be null");
+		computed.put(key, null);
+		pending.put(key, supplier);
+	}
+
+	/**
+	 * Return the keys that may have possibilities, without computing any.
+	 * Some of these keys may disappear from the map once their possibilities
+	 * are computed.
+	 * @return keys in order (unmodifiable)
+	 */
+	public Set<CanBeCase> candidates() {
+		return Collections.unmodifiableSet(computed.keySet());
+	}
+
+	/**
+	 * Return the number of possibilities in the sets computed so far,
+	 * without computing any more.
+	 * @return number of possibilities currently known
+	 */
+	public int computedSize() {
+		int result = 0;
+		for (Set<Pair<Term,Substitution>> s : computed.values()) {
+			if (s != null) result += s.size();
+		}
+		return result;
+	}
+
+	/**
+	 * Run the supplier for a pending key, remembering any failure.
+	 * @param key key being computed
+	 * @param supplier computation of its possibilities
+	 * @return the possibilities, or null if there are none
+	 * @throws RuntimeException if the computation fails (and will fail again for this key)
+	 */
+	private Set<Pair<Term,Substitution>> compute(CanBeCase key, Supplier<Set<Pair<Term,Substitution>>> supplier) {
+		Set<Pair<Term,Substitution>> result;
+		try {
+			result = supplier.get();
+		} catch (RuntimeException ex) {
+			failures.put(key, ex);
+			throw ex;
+		}
+		if (result != null) Profile.count(Profile.Counter.GENERATED, result.size());
+		return result;
+	}
+
+	private void force(Object key) {
+		RuntimeException failure = failures.get(key);
+		if (failure != null) throw failure;
+		Supplier<Set<Pair<Term,Substitution>>> supplier = pending.remove(key);
+		if (supplier == null) return;
+		Set<Pair<Term,Substitution>> result = null;
+		try {
+			result = compute((CanBeCase)key, supplier);
+		} finally {
+			if (result == null) computed.remove(key);
+			else computed.put((CanBeCase)key, result);
+		}
+	}
+
+	private void forceAll() {
+		if (pending.isEmpty()) return;
+		for (Iterator<CanBeCase> it = computed.keySet().iterator(); it.hasNext();) {
+			CanBeCase key = it.next();
+			Supplier<Set<Pair<Term,Substitution>>> supplier = pending.remove(key);
+			if (supplier == null) continue;
+			Set<Pair<Term,Substitution>> result = null;
+			try {
+				result = compute(key, supplier);
+			} catch (SASyLFError ex) {
+				// already reported: go on with the other keys
+			} finally {
+				if (result == null) it.remove();
+				else computed.put(key, result);
+			}
+		}
+	}
+
+	@Override
+	public Set<Pair<Term,Substitution>> get(Object key) {
+		force(key);
+		return computed.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		force(key);
+		return computed.containsKey(key);
+	}
+
+	@Override
+	public Set<Pair<Term,Substitution>> put(CanBeCase key, Set<Pair<Term,Substitution>> value) {
+		if (value == null) throw new NullPointerException("case possibilities cannot be null");
+		pending.remove(key);
+		failures.remove(key);
+		Profile.count(Profile.Counter.GENERATED, value.size());
+		return computed.put(key, value);
+	}
+
+	@Override
+	public Set<Pair<Term,Substitution>> remove(Object key) {
+		pending.remove(key);
+		failures.remove(key);
+		return computed.remove(key);
+	}
+
+	@Override
+	public int size() {
+		forceAll();
+		return computed.size();
+	}
+
+	@Override
+	public Set<Map.Entry<CanBeCase, Set<Pair<Term,Substitution>>>> entrySet() {
+		forceAll();
+		return computed.entrySet();
+	}
+}
@@ -114,7 +114,7 @@ public class ClauseDef extends Clause {
 
 	static private int uniqueint = 0;
 	static private Set<String> strings = new HashSet<String>();
-	static private String uniqueify(String s) {
+	static synchronized private String uniqueify(String s) {
 		String result = s;
 		if (strings.contains(s)) {
 			result = s + uniqueint++;
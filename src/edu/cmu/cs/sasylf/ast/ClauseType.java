@@ -1,12 +1,6 @@
 package edu.cmu.cs.sasylf.ast;
 
-import java.util.Map;
-import java.util.Set;
-
 import edu.cmu.cs.sasylf.term.Constant;
-import edu.cmu.cs.sasylf.term.Substitution;
-import edu.cmu.cs.sasylf.term.Term;
-import edu.cmu.cs.sasylf.util.Pair;
 
 /** Marker type for all types to which a Clause could refer.
  * Only Syntax and Judgment implement this interface.
@@ -27,7 +21,7 @@ public interface ClauseType extends ElementType {
 	 * @param ctx Current context (must not be null)
 	 * @param target element being analyzed -- must be previously type checked
 	 * @param source location of analysis needs, used for error messages and debugging
-	 * @param map updated with the case analysis
+	 * @param map updated with the case analysis; possibilities may be added lazily
 	 */
-	public void analyze(Context ctx, Element target, Node source, Map<CanBeCase,Set<Pair<Term,Substitution>>> map);
+	public void analyze(Context ctx, Element target, Node source, CaseMap map);
 }
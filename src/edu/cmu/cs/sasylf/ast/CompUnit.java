@@ -12,6 +12,7 @@ import edu.cmu.cs.sasylf.module.Module;
 import edu.cmu.cs.sasylf.module.ModuleFinder;
 import edu.cmu.cs.sasylf.module.ModuleId;
 import edu.cmu.cs.sasylf.module.NullModuleFinder;
+import edu.cmu.cs.sasylf.util.CancellationToken;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
 import edu.cmu.cs.sasylf.util.Location;
@@ -138,6 +139,7 @@ public class CompUnit extends Node implements Module {
 	public void typecheck(Context ctx, ModuleId id) {
 		if (id != null) checkFilename(id);
 		for (Part part : params) {
+			CancellationToken.checkCancelled();
 			try {
 				part.typecheck(ctx);
 				if (part instanceof JudgmentPart) {
@@ -157,6 +159,7 @@ public class CompUnit extends Node implements Module {
 			}
 		}
 		for (Part part : parts) {
+			CancellationToken.checkCancelled();
 			try {
 				part.typecheck(ctx);
 			} catch (SASyLFError ex) {
@@ -219,6 +222,20 @@ public class CompUnit extends Node implements Module {
 		}
 	}
 
+	/**
+	 * Discard the proofs of the theorems in this compilation unit,
+	 * keeping what modules importing it need: syntax, judgments, rules
+	 * and theorem statements.
+	 * @see Theorem#releaseDerivations()
+	 */
+	public void releaseProofs() {
+		List<Node> things = new ArrayList<Node>();
+		collectTopLevel(things);
+		for (Node n : things) {
+			if (n instanceof Theorem) ((Theorem)n).releaseDerivations();
+		}
+	}
+
 	private Map<String,Object> declCache = new HashMap<String,Object>();
 	private int cacheVersion = -1;
 
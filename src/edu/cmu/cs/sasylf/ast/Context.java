@@ -1,8 +1,10 @@
 package edu.cmu.cs.sasylf.ast;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -20,6 +22,7 @@ import edu.cmu.cs.sasylf.term.Substitution;
 import edu.cmu.cs.sasylf.term.Term;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
+import edu.cmu.cs.sasylf.util.Invariants;
 import edu.cmu.cs.sasylf.util.Location;
 import edu.cmu.cs.sasylf.util.Pair;
 import edu.cmu.cs.sasylf.util.Util;
@@ -44,7 +47,7 @@ public class Context implements Cloneable {
 	public Map<String,Module> modMap = new HashMap<String, Module>();
 	public Map<List<ElemType>,ClauseDef> parseMap = new HashMap<List<ElemType>,ClauseDef>();
 	public List<GrmRule> ruleSet = new ArrayList<GrmRule>();
-	private static int version; // incremented to indicate that caches should be abandoned.
+	private static volatile int version; // incremented to indicate that caches should be abandoned.
 	
 	/// The remainder fields represent contextual (local) information
 
@@ -63,8 +66,8 @@ public class Context implements Cloneable {
 	public Set<FreeVar> inputVars;
 	public Set<FreeVar> outputVars;
 	public Map<Fact,Pair<Fact,Integer>> subderivations = new HashMap<Fact,Pair<Fact,Integer>>();
-	public Map<CanBeCase, Set<Pair<Term, Substitution>>> caseTermMap; // entries mutable
-	public Map<String,Map<CanBeCase, Set<Pair<Term,Substitution>>>> savedCaseMap; // entries immutable
+	public CaseMap caseTermMap; // entries mutable
+	public Map<String,CaseMap> savedCaseMap; // entries immutable
 	HashMap<String,NonTerminal> varFreeNTmap= new HashMap<String,NonTerminal>(); 
 	HashMap<NonTerminal,Relaxation> relaxationMap;
 	public Set<FreeVar> relaxationVars;
@@ -86,7 +89,7 @@ public class Context implements Cloneable {
 	 * Updates if a change has happened, thus incrementing
 	 * the version.
 	 */
-	public static void updateVersion() {
+	public static synchronized void updateVersion() {
 		++version;
 	}
 
@@ -107,8 +110,9 @@ public class Context implements Cloneable {
 		if (inputVars != null) result.inputVars = new HashSet<FreeVar>(inputVars);
 		if (outputVars != null) result.outputVars = new HashSet<FreeVar>(outputVars);
 		result.subderivations = new HashMap<Fact,Pair<Fact,Integer>>(subderivations);
-		if (result.caseTermMap != null) result.caseTermMap = new HashMap<CanBeCase, Set<Pair<Term, Substitution>>>(caseTermMap);
-		if (result.savedCaseMap != null) result.savedCaseMap = new HashMap<String,Map<CanBeCase, Set<Pair<Term,Substitution>>>>(savedCaseMap);
+		if (checked != null) result.checked = checked.copy();
+		// caseTermMap is shared: its entries are computed lazily and removals must be seen by the analysis
+		if (result.savedCaseMap != null) result.savedCaseMap = new HashMap<String,CaseMap>(savedCaseMap);
 		result.varFreeNTmap = new HashMap<String,NonTerminal>(varFreeNTmap);
 		if (knownContexts != null) result.knownContexts = new HashSet<NonTerminal>(knownContexts);
 		if (relaxationMap != null) result.relaxationMap = new HashMap<NonTerminal,Relaxation>(relaxationMap);
@@ -368,6 +372,16 @@ public class Context implements Cloneable {
 	}
 
 	public void checkConsistent(Node here) {
+		boolean all = Invariants.checkAll();
+		if (!all && !Invariants.checkChanged()) {
+			removeUnreachableVariables();
+			return;
+		}
+		if (all || checked == null || !checked.isCurrent(this)) {
+			checked = new Checked(this);
+		}
+		Set<FreeVar> newlyBound = new HashSet<FreeVar>();
+		List<Map.Entry<FreeVar,Term>> bindings = checked.uncheckedBindings(currentSub, newlyBound);
 		boolean problem = false;
 		for (FreeVar fv : inputVars) {
 			if (currentSub.getSubstituted(fv) != null) {
@@ -375,15 +389,32 @@ public class Context implements Cloneable {
 				problem = true;
 			}
 		}
-		for (Map.Entry<FreeVar,Term> e : currentSub.getMap().entrySet()) {
+		for (Map.Entry<FreeVar,Term> e : bindings) {
 			if (e.getValue().substitute(currentSub) != e.getValue()) {
 				System.out.println("Internal error: currentSub is not idempotent for " + e.getValue());
 				System.out.println("  " + e.getValue().substitute(currentSub));
 				problem = true;
 			}
 		}
+		if (!newlyBound.isEmpty() && bindings.size() < currentSub.getMap().size()) {
+			// bindings checked before may use the variables just bound
+			Set<FreeVar> changed = new HashSet<FreeVar>();
+			for (Map.Entry<FreeVar,Term> e : bindings) {
+				changed.add(e.getKey());
+			}
+			for (Map.Entry<FreeVar,Term> e : currentSub.getMap().entrySet()) {
+				if (changed.contains(e.getKey())) continue;
+				Set<FreeVar> free = e.getValue().getFreeVariables();
+				free.retainAll(newlyBound);
+				if (!free.isEmpty()) {
+					System.out.println("Internal error: currentSub is not idempotent for " + e.getValue());
+					System.out.println("  uses newly bound " + free);
+					problem = true;
+				}
+			}
+		}
 
-		for (Map.Entry<FreeVar,Term> e : currentSub.getMap().entrySet()) {
+		for (Map.Entry<FreeVar,Term> e : bindings) {
 			Atom key = e.getKey();
 			if (!(key instanceof FreeVar)) {
 				System.out.println("Internal error: binding a constant " + key + " to " + e.getValue());
@@ -391,7 +422,7 @@ public class Context implements Cloneable {
 			}
 		}
 
-		for (Map.Entry<FreeVar,Term> e : currentSub.getMap().entrySet()) {
+		for (Map.Entry<FreeVar,Term> e : bindings) {
 			Set<FreeVar> free = e.getValue().getFreeVariables();
 			if (!inputVars.containsAll(free)) {
 				free.removeAll(inputVars);
@@ -402,6 +433,7 @@ public class Context implements Cloneable {
 		}
 
 		for (Fact d : derivationMap.values()) {
+			if (!checked.facts.add(d)) continue;
 			Set<FreeVar> free = d.getElement().asTerm().getFreeVariables();
 			free.removeAll(inputVars);
 			free.removeAll(outputVars);
@@ -719,4 +751,68 @@ public class Context implements Cloneable {
 
 	private Grammar g;
 	int ruleSize = 0;
+
+	/// What checkConsistent has already checked, when checking incrementally.
+
+	private Checked checked;
+
+	/**
+	 * The bindings and facts found consistent by {@link Context#checkConsistent(Node)}.
+	 * The bindings are compared with those of the current substitution
+	 * (whether it was modified in place or replaced), so that only
+	 * changed bindings need to be checked again.  When the input or output variables
+	 * are changed, everything must be checked again.
+	 */
+	private static class Checked {
+		final Set<FreeVar> inputs, outputs; // not modified
+		final Map<FreeVar,Term> bindings;
+		final Set<Fact> facts;
+
+		Checked(Context ctx) {
+			inputs = ctx.inputVars == null ? Collections.<FreeVar>emptySet() : new HashSet<FreeVar>(ctx.inputVars);
+			outputs = ctx.outputVars == null ? Collections.<FreeVar>emptySet() : new HashSet<FreeVar>(ctx.outputVars);
+			bindings = new HashMap<FreeVar,Term>();
+			facts = Collections.newSetFromMap(new IdentityHashMap<Fact,Boolean>());
+		}
+
+		private Checked(Checked other) {
+			inputs = other.inputs;
+			outputs = other.outputs;
+			bindings = new HashMap<FreeVar,Term>(other.bindings);
+			facts = Collections.newSetFromMap(new IdentityHashMap<Fact,Boolean>());
+			facts.addAll(other.facts);
+		}
+
+		Checked copy() {
+			return new Checked(this);
+		}
+
+		boolean isCurrent(Context ctx) {
+			return inputs.equals(ctx.inputVars == null ? Collections.emptySet() : ctx.inputVars) &&
+					outputs.equals(ctx.outputVars == null ? Collections.emptySet() : ctx.outputVars);
+		}
+
+		/**
+		 * Return the bindings of the substitution not already checked,
+		 * and record them as checked.
+		 * If bindings were removed since the last check, the facts
+		 * must be checked again, since they may have used the removed variables.
+		 * @param sub current substitution
+		 * @param newlyBound set to add the variables bound since the last check
+		 */
+		List<Map.Entry<FreeVar,Term>> uncheckedBindings(Substitution sub, Set<FreeVar> newlyBound) {
+			List<Map.Entry<FreeVar,Term>> result = new ArrayList<Map.Entry<FreeVar,Term>>();
+			Map<FreeVar,Term> map = sub.getMap();
+			for (Map.Entry<FreeVar,Term> e : map.entrySet()) {
+				Term previous = bindings.put(e.getKey(), e.getValue());
+				if (previous != e.getValue()) result.add(e);
+				if (previous == null) newlyBound.add(e.getKey());
+			}
+			if (bindings.size() > map.size()) {
+				bindings.keySet().retainAll(map.keySet());
+				facts.clear();
+			}
+			return result;
+		}
+	}
 }
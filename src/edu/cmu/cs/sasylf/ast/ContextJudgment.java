@@ -1,10 +1,8 @@
 package edu.cmu.cs.sasylf.ast;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import edu.cmu.cs.sasylf.term.Abstraction;
 import edu.cmu.cs.sasylf.term.Application;
@@ -155,16 +153,15 @@ public class ContextJudgment extends Judgment {
 	}
 
 
-	private static Map<Pair<Judgment,ClauseDef>,ContextJudgment> cache = new HashMap<>();
+	private static JudgmentCache<Pair<Judgment,ClauseDef>,ContextJudgment> cache = new JudgmentCache<>();
 	
 	public static ContextJudgment create(Location loc, Context ctx, Judgment base, ClauseUse use, ClauseDef context, ClauseUse contextUse) {
-		ContextJudgment result = cache.get(Pair.create(base,context));
-		if (result != null) return result;
-		result = new ContextJudgment(loc, base, use, context, contextUse);
-		result.defineConstructor(ctx);
-		result.typecheck(ctx);
-		cache.put(Pair.create(base, context),result);
-		return result;
+		return cache.get(Pair.create(base,context), () -> {
+			ContextJudgment result = new ContextJudgment(loc, base, use, context, contextUse);
+			result.defineConstructor(ctx);
+			result.typecheck(ctx);
+			return result;
+		});
 	}
 	
 	/**
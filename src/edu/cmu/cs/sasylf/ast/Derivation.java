@@ -13,10 +13,12 @@ import edu.cmu.cs.sasylf.term.Substitution;
 import edu.cmu.cs.sasylf.term.Term;
 import edu.cmu.cs.sasylf.term.UnificationFailed;
 import edu.cmu.cs.sasylf.term.UnificationIncomplete;
+import edu.cmu.cs.sasylf.util.CancellationToken;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
 import edu.cmu.cs.sasylf.util.Location;
 import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.Profile;
 import edu.cmu.cs.sasylf.util.SASyLFError;
 import edu.cmu.cs.sasylf.util.Util;
 
@@ -58,11 +60,13 @@ public abstract class Derivation extends Fact {
 	 */
 	public final boolean typecheckAndAssume(Context ctx) {
 		boolean result = true;
+		long start = Profile.now();
 		try {
 			this.typecheck(ctx);
 		} catch (SASyLFError error) {
 			result = false;
 		}
+		if (start != 0) Profile.derivationChecked(getName(), getLocation(), start);
 
 		// If the clause doesn't check, then adding this derivation to
 		// the map will cause internal errors later on.
@@ -122,6 +126,7 @@ public abstract class Derivation extends Fact {
 
 		boolean finalOK = false;
 		for (int i=0; i < n; ++i) {
+			CancellationToken.checkCancelled();
 			Derivation d = derivations.get(i);
 			if (d.clause == null) {
 				// we copy over to get the right location for things
@@ -7,7 +7,6 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -20,8 +19,10 @@ import edu.cmu.cs.sasylf.term.Substitution;
 import edu.cmu.cs.sasylf.term.Term;
 import edu.cmu.cs.sasylf.term.UnificationFailed;
 import edu.cmu.cs.sasylf.term.UnificationIncomplete;
+import edu.cmu.cs.sasylf.util.CancellationToken;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
+import edu.cmu.cs.sasylf.util.Events;
 import edu.cmu.cs.sasylf.util.Location;
 import edu.cmu.cs.sasylf.util.Pair;
 import edu.cmu.cs.sasylf.util.SASyLFError;
@@ -85,7 +86,7 @@ public abstract class DerivationByAnalysis extends DerivationWithArgs {
 		Element oldElement = ctx.currentCaseAnalysisElement;
 		Term oldGoal = ctx.currentGoal;
 		Clause oldGoalClause = ctx.currentGoalClause;
-		Map<CanBeCase,Set<Pair<Term,Substitution>>> oldCaseTermMap = ctx.caseTermMap;
+		CaseMap oldCaseTermMap = ctx.caseTermMap;
 
 		final String targetName = targetDerivation.getName();
 		final Element targetElement = targetDerivation.getElement();
@@ -118,6 +119,8 @@ public abstract class DerivationByAnalysis extends DerivationWithArgs {
 			checkSyntaxAnalysis(ctx, targetName, targetTerm, this);
 		}
 
+		Events.CaseAnalysis event = new Events.CaseAnalysis();
+		event.begin();
 		try {
 			ctx.currentCaseAnalysis = targetTerm;
 			debug("setting current case analysis to ", ctx.currentCaseAnalysis);
@@ -128,12 +131,13 @@ public abstract class DerivationByAnalysis extends DerivationWithArgs {
 			Pair<Fact,Integer> isSubderivation = ctx.subderivations.get(targetDerivation);
 			if (isSubderivation != null) debug("found subderivation: ", targetDerivation);
 
-			ctx.caseTermMap = new LinkedHashMap<CanBeCase,Set<Pair<Term,Substitution>>>();
+			ctx.caseTermMap = new CaseMap();
 
 			caseAnalyze(ctx, targetName, targetElement, this, ctx.caseTermMap);
 
 			SASyLFError error = null;
 			for (Case c : cases) {
+				CancellationToken.checkCancelled();
 				try {
 					c.typecheck(ctx, isSubderivation);
 				} catch (SASyLFError ex) {
@@ -142,7 +146,7 @@ public abstract class DerivationByAnalysis extends DerivationWithArgs {
 			}
 
 			if (this instanceof PartialCaseAnalysis) {
-				if (ctx.savedCaseMap == null) ctx.savedCaseMap = new HashMap<String,Map<CanBeCase,Set<Pair<Term,Substitution>>>>();
+				if (ctx.savedCaseMap == null) ctx.savedCaseMap = new HashMap<String,CaseMap>();
 				ctx.savedCaseMap.put(targetName, ctx.caseTermMap);
 				return;
 			}
@@ -152,6 +156,19 @@ public abstract class DerivationByAnalysis extends DerivationWithArgs {
 					getArgStrings().get(0), ctx.caseTermMap);
 
 		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.judgment = caseType.getName();
+				event.file = getLocation().getFile();
+				event.line = getLocation().getLine();
+				event.cases = cases.size();
+				if (ctx.caseTermMap != null) {
+					// count without generating possibilities that were not needed
+					event.candidates = ctx.caseTermMap.candidates().size();
+					event.remaining = ctx.caseTermMap.computedSize();
+				}
+				event.commit();
+			}
 			ctx.caseTermMap = oldCaseTermMap;
 			ctx.currentCaseAnalysis = oldCase;
 			ctx.currentCaseAnalysisElement = oldElement;
@@ -200,6 +217,8 @@ public abstract class DerivationByAnalysis extends DerivationWithArgs {
 	/** Case analyze a target in the current context and store the
 	 * results in the map passed in.  This code first checks the saved map,
 	 * and otherwise does a new case analysis.
+	 * In either case, the possibilities for each rule or clause are only
+	 * computed when the map is consulted for them.
 	 * @param ctx context
 	 * @param targetName name of the target, used to look up in saved case map
 	 * @param targetElement element being cased
@@ -207,49 +226,16 @@ public abstract class DerivationByAnalysis extends DerivationWithArgs {
 	 * @param map map into which to place cases
 	 */
 	public static void caseAnalyze(Context ctx, final String targetName,
-			final Element targetElement, Node source,
-			Map<CanBeCase, Set<Pair<Term, Substitution>>> map) {
-		Map<CanBeCase,Set<Pair<Term,Substitution>>> savedMap = null;
+			final Element targetElement, Node source, CaseMap map) {
+		CaseMap savedMap = null;
 		if (ctx.savedCaseMap != null) savedMap = ctx.savedCaseMap.get(targetName);
 		if (savedMap != null) {
 			// System.out.println("\n*** Checking saved cases.\n");
-			for (Map.Entry<CanBeCase, Set<Pair<Term,Substitution>>> e : savedMap.entrySet()) {
-				Set<Pair<Term, Substitution>> newSet = new SingletonSet<Pair<Term,Substitution>>();
-				for (Pair<Term,Substitution> p : e.getValue()) {
-					Pair<Term,Substitution> newPair;
-					Util.debug("Saved case:\nterm = ", p.first);
-					Util.debug("sub = ", p.second);
-					Util.debug("current = ", ctx.currentSub);
-					Substitution newSubstitution = new Substitution(p.second);
-					try {
-						newSubstitution.merge(ctx.currentSub); // need merge, not compose
-						if (!ctx.canCompose(newSubstitution)) {
-							Util.debug("case no longer feasible (relaxation): ");
-							continue;
-						}
-						Util.debug("newSub = ", newSubstitution);
-						newPair = new Pair<Term,Substitution>(p.first.substitute(newSubstitution),newSubstitution);
-					} catch (UnificationIncomplete ex) {
-						Util.debug("case cannot be checked: ", newSubstitution, "\n cannot merge with ", ctx.currentSub);
-						if (e.getKey() instanceof Rule && !((Rule)e.getKey()).isAssumption()) {
-							Util.debug("  Trying again de novo");
-							// let's try doing a case analysis de novo
-							Term targetTerm = ctx.toTerm(targetElement);
-							newSet = e.getKey().caseAnalyze(ctx, targetTerm, targetElement, source);
-							continue;
-						}
-						ErrorHandler.error(Errors.CASE_UNIFICATION_INCOMPLETE, e.getKey().getName(), source, "SASyLF tried to unify " + ex.term1 + " and " + ex.term2);
-						continue;
-					} catch (UnificationFailed ex) {
-						Util.debug("case no longer feasible.");
-						continue;
-					}
-					if (newSet.size() == 1) newSet = new HashSet<Pair<Term,Substitution>>(newSet);
-					newSet.add(newPair);
-				}
-				map.put(e.getKey(), newSet);
+			final Context analysisCtx = ctx.clone();
+			final CaseMap saved = savedMap;
+			for (CanBeCase key : savedMap.candidates()) {
+				map.putLazy(key, () -> reviseSavedCases(analysisCtx, targetElement, source, key, saved.get(key)));
 			}
-
 		} else {
 			debug("*********** case analyzing line ", source.getLocation().getLine());
 			final ClauseType ctype = (ClauseType)targetElement.getType();
@@ -257,6 +243,56 @@ public abstract class DerivationByAnalysis extends DerivationWithArgs {
 		}
 	}
 
+	/**
+	 * Update the saved possibilities of a partial case analysis for a rule
+	 * or clause to take into account the current substitution.
+	 * @param ctx context, must not be null
+	 * @param targetElement element being cased
+	 * @param source node to use for errors, or debugging
+	 * @param key rule or clause whose possibilities are being revised
+	 * @param saved previous possibilities, may be null if none remain
+	 * @return the possibilities that are still feasible, or null if none were saved
+	 */
+	private static Set<Pair<Term,Substitution>> reviseSavedCases(Context ctx,
+			final Element targetElement, Node source, CanBeCase key,
+			Set<Pair<Term,Substitution>> saved) {
+		if (saved == null) return null;
+		Set<Pair<Term, Substitution>> newSet = new SingletonSet<Pair<Term,Substitution>>();
+		for (Pair<Term,Substitution> p : saved) {
+			Pair<Term,Substitution> newPair;
+			Util.debug("Saved case:\nterm = ", p.first);
+			Util.debug("sub = ", p.second);
+			Util.debug("current = ", ctx.currentSub);
+			Substitution newSubstitution = new Substitution(p.second);
+			try {
+				newSubstitution.merge(ctx.currentSub); // need merge, not compose
+				if (!ctx.canCompose(newSubstitution)) {
+					Util.debug("case no longer feasible (relaxation): ");
+					continue;
+				}
+				Util.debug("newSub = ", newSubstitution);
+				newPair = new Pair<Term,Substitution>(p.first.substitute(newSubstitution),newSubstitution);
+			} catch (UnificationIncomplete ex) {
+				Util.debug("case cannot be checked: ", newSubstitution, "\n cannot merge with ", ctx.currentSub);
+				if (key instanceof Rule && !((Rule)key).isAssumption()) {
+					Util.debug("  Trying again de novo");
+					// let's try doing a case analysis de novo
+					Term targetTerm = ctx.toTerm(targetElement);
+					newSet = key.caseAnalyze(ctx, targetTerm, targetElement, source);
+					continue;
+				}
+				ErrorHandler.error(Errors.CASE_UNIFICATION_INCOMPLETE, key.getName(), source, "SASyLF tried to unify " + ex.term1 + " and " + ex.term2);
+				continue;
+			} catch (UnificationFailed ex) {
+				Util.debug("case no longer feasible.");
+				continue;
+			}
+			if (newSet.size() == 1) newSet = new HashSet<Pair<Term,Substitution>>(newSet);
+			newSet.add(newPair);
+		}
+		return newSet;
+	}
+
 	/**
 	 * Compute the (remaining) size of a case analysis
 	 * @param map the case analysis map
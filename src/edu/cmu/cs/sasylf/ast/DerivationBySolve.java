@@ -6,10 +6,12 @@ import edu.cmu.cs.sasylf.prover.Proof;
 import edu.cmu.cs.sasylf.prover.ProofImpl;
 import edu.cmu.cs.sasylf.prover.Prover;
 import edu.cmu.cs.sasylf.prover.SolveReport;
+import edu.cmu.cs.sasylf.prover.TablingProver;
 import edu.cmu.cs.sasylf.term.Term;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
 import edu.cmu.cs.sasylf.util.Location;
+import edu.cmu.cs.sasylf.util.Util;
 
 public class DerivationBySolve extends Derivation {
 	public DerivationBySolve(String n, Location l, Clause c) {
@@ -27,10 +29,14 @@ public class DerivationBySolve extends Derivation {
 	public void typecheck(Context ctx) {
 		super.typecheck(ctx);
 
-		Prover prover = new Prover();
 		Term term = getElement().asTerm().substitute(ctx.currentSub);
 		Proof partial = new ProofImpl((Judgment)getClause().getType(),term);
-		Proof complete = prover.prove(partial, 5);
+		Proof complete;
+		if (Util.SOLVE_PARALLEL_DEPTH > 0) {
+			complete = new Prover(Util.SOLVE_PARALLEL_DEPTH).prove(partial, Util.SOLVE_DEPTH);
+		} else {
+			complete = new TablingProver().prove(partial, Util.SOLVE_DEPTH);
+		}
 
 		if (complete == null)
 			ErrorHandler.error(Errors.SOLVE_FAILED, this);
@@ -3,7 +3,6 @@ package edu.cmu.cs.sasylf.ast;
 import java.io.PrintWriter;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import edu.cmu.cs.sasylf.ast.grammar.GrmRule;
@@ -187,21 +186,22 @@ public class Judgment extends Node implements ClauseType, Named {
 	private Constant term = null;
 
 	@Override
-	public void analyze(Context ctx, Element target, Node source, 
-			Map<CanBeCase, Set<Pair<Term, Substitution>>>  result) {
+	public void analyze(Context ctx, Element target, Node source, CaseMap result) {
 		if (isAbstract()) {
 			ErrorHandler.error(Errors.CASE_SUBJECT_ABSTRACT, getName(), source);
 		}
 		Util.verify(target instanceof ClauseUse, "Judgment#analyze called with bad element: " + target);
 		ClauseUse cl = (ClauseUse)target;
 		Term t = ctx.toTerm(target);
+		// the rules are analyzed on demand, perhaps after the context has moved on
+		Context analysisCtx = ctx.clone();
 		for (Rule rule : getRules()) {
-			Set<Pair<Term,Substitution>> caseResult = null;
-			if (rule.isInterfaceOK()) {
-				caseResult = rule.caseAnalyze(ctx, t, cl, source);
-			}
-			if (caseResult == null || caseResult.isEmpty()) continue; // caseResult = Collections.emptySet(); 
-			result.put(rule, caseResult);
+			if (!rule.isInterfaceOK()) continue;
+			result.putLazy(rule, () -> {
+				Set<Pair<Term,Substitution>> caseResult = rule.caseAnalyze(analysisCtx, t, cl, source);
+				if (caseResult == null || caseResult.isEmpty()) return null;
+				return caseResult;
+			});
 		}
 	}
 	
@@ -0,0 +1,58 @@
+package edu.cmu.cs.sasylf.ast;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * A cache of judgments generated on demand (for example "and" judgments),
+ * which may be shared by modules checked in different threads.
+ * A judgment is made (and type checked) by the first thread to ask for it,
+ * without holding a lock, so that making one judgment may make others;
+ * other threads asking for the same judgment wait until it is ready.
+ * If making the judgment fails, the next thread to ask for it tries again.
+ * A judgment is only made from judgments that already exist, so no thread
+ * waits for a judgment that it is making itself.
+ * @param <K> key identifying a generated judgment
+ * @param <J> type of generated judgment
+ */
+class JudgmentCache<K,J extends Judgment> {
+	// a future completed with null means that making the judgment failed
+	private final ConcurrentMap<K,CompletableFuture<J>> cache = new ConcurrentHashMap<K,CompletableFuture<J>>();
+
+	/**
+	 * Return the judgment for the key, making it if no thread has yet.
+	 * @param key key of the judgment, must not be null and must not be changed later
+	 * @param maker how to make (and check) the judgment, must not return null
+	 * @return judgment for this key, never null
+	 */
+	public J get(K key, Supplier<J> maker) {
+		for (;;) {
+			CompletableFuture<J> mine = new CompletableFuture<J>();
+			CompletableFuture<J> existing = cache.putIfAbsent(key, mine);
+			if (existing == null) {
+				J result = null;
+				try {
+					result = maker.get();
+				} finally {
+					if (result == null) cache.remove(key, mine);
+					mine.complete(result);
+				}
+				return result;
+			}
+			J result = existing.join();
+			if (result != null) return result;
+		}
+	}
+
+	/**
+	 * Return the judgment for the key, if it has been made (or is being made).
+	 * @param key key of the judgment
+	 * @return judgment for this key, or null if none was made
+	 */
+	public J get(K key) {
+		CompletableFuture<J> existing = cache.get(key);
+		return existing == null ? null : existing.join();
+	}
+}
@@ -16,15 +16,15 @@ public abstract class Node implements Span {
 		this(l,l);
 	}
 	public Node(Location l1, Location l2) {
-		location = l1;
-		endLocation = l2;
+		location = Location.pack(l1);
+		endLocation = Location.pack(l2);
 		ErrorHandler.recordLastSpan(this);
 	}
 
 	@Override
-	public Location getLocation() { return location; }
+	public Location getLocation() { return Location.unpack(location); }
 	@Override
-	public Location getEndLocation() { return endLocation; }
+	public Location getEndLocation() { return Location.unpack(endLocation); }
 
 	public abstract void prettyPrint(PrintWriter out);
 
@@ -35,16 +35,17 @@ public abstract class Node implements Span {
 		return sw.toString();
 	}
 
-	private Location location;
-	private Location endLocation;
+	// packed, see Location#pack
+	private long location = Location.NONE;
+	private long endLocation = Location.NONE;
 
 	protected void setLocation(Location l) {
-		location = l;
-		if (endLocation == null) endLocation = l;
+		location = Location.pack(l);
+		if (endLocation == Location.NONE) endLocation = location;
 	}
 
 	public void setEndLocation(Location l) {
-		endLocation = l;
+		endLocation = Location.pack(l);
 	}
 
 	protected void tdebug(Object... args) {
@@ -3,9 +3,7 @@ package edu.cmu.cs.sasylf.ast;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
@@ -97,7 +95,7 @@ public class NotJudgment extends Judgment {
 		return null;
 	}
 
-	private static Map<Judgment,NotJudgment> cache = new HashMap<Judgment,NotJudgment>();
+	private static JudgmentCache<Judgment,NotJudgment> cache = new JudgmentCache<Judgment,NotJudgment>();
 
 	/**
 	 * Generate an "not" judgment for a base judgment.
@@ -107,14 +105,12 @@ public class NotJudgment extends Judgment {
 	 * @return judgment that is the negation of the parameter judgment
 	 */
 	public static NotJudgment makeOrJudgment(Location loc, Context ctx, Judgment j) {
-		NotJudgment result = cache.get(j);
-		if (result == null) {
-			result = new NotJudgment(loc,j);
+		return cache.get(j, () -> {
+			NotJudgment result = new NotJudgment(loc,j);
 			result.defineConstructor(ctx);
 			result.typecheck(ctx);
-			cache.put(j,result);
-		}
-		return result;
+			return result;
+		});
 	}
 
 	private Judgment part;
@@ -2,9 +2,7 @@ package edu.cmu.cs.sasylf.ast;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import edu.cmu.cs.sasylf.term.Constant;
 import edu.cmu.cs.sasylf.util.Location;
@@ -49,7 +47,7 @@ public class OrJudgment extends AndOrJudgment {
 	}
 
 
-	private static Map<List<Judgment>,OrJudgment> cache = new HashMap<List<Judgment>,OrJudgment>();
+	private static JudgmentCache<List<Judgment>,OrJudgment> cache = new JudgmentCache<List<Judgment>,OrJudgment>();
 
 	/**
 	 * Generate an "or" judgment for 'or'ing a series of judgments together.
@@ -58,25 +56,18 @@ public class OrJudgment extends AndOrJudgment {
 	 * @return judgment that is the disjunction of the parts
 	 */
 	public static OrJudgment makeOrJudgment(Location loc, Context ctx, List <Judgment> parts, List<ClauseUse> uses) {
-		OrJudgment result = cache.get(parts);
-		if (result == null) {
-			parts = new ArrayList<Judgment>(parts); // defensive programming
-			result = new OrJudgment(loc,parts,uses);
+		final List<Judgment> key = new ArrayList<Judgment>(parts); // defensive programming
+		return cache.get(key, () -> {
+			OrJudgment result = new OrJudgment(loc,key,uses);
 			result.defineConstructor(ctx);
 			result.typecheck(ctx);
-			cache.put(parts,result);
-		}
-		return result;
+			return result;
+		});
 	}
 
 	public static OrJudgment makeEmptyOrJudgment(Location loc) {
 		List<Judgment> empty = Collections.<Judgment>emptyList();
-		OrJudgment result = cache.get(empty);
-		if (result == null) {
-			result = new OrJudgment(loc,empty,Collections.emptyList());
-			cache.put(empty, result);
-		}
-		return result;
+		return cache.get(empty, () -> new OrJudgment(loc,empty,Collections.emptyList()));
 	}
 		
 	/**
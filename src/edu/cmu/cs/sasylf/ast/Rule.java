@@ -21,6 +21,7 @@ import edu.cmu.cs.sasylf.term.Substitution;
 import edu.cmu.cs.sasylf.term.Term;
 import edu.cmu.cs.sasylf.term.UnificationFailed;
 import edu.cmu.cs.sasylf.term.UnificationIncomplete;
+import edu.cmu.cs.sasylf.util.Budget;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
 import edu.cmu.cs.sasylf.util.Location;
@@ -426,6 +427,7 @@ public class Rule extends RuleLike implements CanBeCase {
 	 */
 	private void checkCaseApplication(Context ctx, Set<Pair<Term,Substitution>> result,
 			Term term, Term pattern, Term subject, Substitution adaptSub, Node source) {
+		Budget.charge();
 		Util.debug("pattern ", pattern);
 		Util.debug("subject ",subject);
 		Substitution sub = null;
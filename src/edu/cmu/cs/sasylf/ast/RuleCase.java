@@ -23,6 +23,7 @@ import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
 import edu.cmu.cs.sasylf.util.Location;
 import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.Profile;
 import edu.cmu.cs.sasylf.util.Util;
 
 
@@ -344,6 +345,7 @@ public class RuleCase extends Case {
 				
 				computedCaseTerm = candidate;
 				verify(caseResult.remove(pair), "internal invariant broken");
+				Profile.count(Profile.Counter.MATCHED);
 
 				break;
 			} catch (UnificationIncomplete e) {
@@ -26,6 +26,7 @@ import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
 import edu.cmu.cs.sasylf.util.Location;
 import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.Profile;
 import edu.cmu.cs.sasylf.util.Util;
 
 
@@ -179,6 +180,7 @@ public class SyntaxCase extends Case {
 			computedCaseTerm = pair.first;
 			// verify(pair.second.getMap().size() == 0, "syntax case substitution should be empty, not " + pair.second);
 			caseResult.remove(pair);
+			Profile.count(Profile.Counter.MATCHED);
 
 			Set<FreeVar> free = pair.first.getFreeVariables();
 			Util.debug("freevars of pair.first = ",free);
@@ -8,7 +8,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -259,11 +258,13 @@ public class SyntaxDeclaration extends Syntax implements ClauseType, ElemType, N
 
 	private boolean isProductive;
 	private Status isProductiveStatus = Status.NOTSTARTED;
-	private static List<SyntaxDeclaration> computed = new ArrayList<SyntaxDeclaration>();
+	// the declarations in the productivity analysis under way in each thread
+	private static final ThreadLocal<List<SyntaxDeclaration>> productiveAnalysis = ThreadLocal.withInitial(ArrayList::new);
 
 	public boolean isProductive() {
 		if (isAbstract) return true; // by assumption
 		if (isProductiveStatus == Status.DONE) return isProductive;
+		List<SyntaxDeclaration> computed = productiveAnalysis.get();
 		if (computed.isEmpty()) {
 			// start a new analysis
 			computed.add(this);
@@ -497,8 +498,7 @@ public class SyntaxDeclaration extends Syntax implements ClauseType, ElemType, N
 	}
 
 	@Override
-	public void analyze(Context ctx, Element target, Node source, 
-			Map<CanBeCase, Set<Pair<Term, Substitution>>> result) {
+	public void analyze(Context ctx, Element target, Node source, CaseMap result) {
 		if (isAbstract()) {
 			ErrorHandler.error(Errors.CASE_SUBJECT_ABSTRACT, getName(), source);
 		}
@@ -506,12 +506,12 @@ public class SyntaxDeclaration extends Syntax implements ClauseType, ElemType, N
 		Term targetTerm = ctx.toTerm(target);
 		List<Abstraction> context = new ArrayList<Abstraction>();
 		Term bare = Term.getWrappingAbstractions(targetTerm, context);
+		Context analysisCtx = ctx.clone(); // for productions analyzed on demand
 		
 		for (Clause cl : elements) {
 			NonTerminal root = target.getRoot();
-			Set<Pair<Term,Substitution>> set;
 			if (cl.isVarOnlyClause()) {
-				set = new HashSet<Pair<Term,Substitution>>();
+				Set<Pair<Term,Substitution>> set = new HashSet<Pair<Term,Substitution>>();
 				// Special case (1): any of the variables in the context that are relevant.
 				int n = context.size();
 				for (int i=0; i < n; ++i) {
@@ -537,10 +537,10 @@ public class SyntaxDeclaration extends Syntax implements ClauseType, ElemType, N
 					Util.debug("adding pattern ",term);
 					set.add(new Pair<Term,Substitution>(term,new Substitution()));
 				}
+				result.put(cl, set);
 			} else {
-				set = cl.caseAnalyze(ctx, targetTerm, target, source);
+				result.putLazy(cl, () -> cl.caseAnalyze(analysisCtx, targetTerm, target, source));
 			}
-			result.put(cl, set);
 		}
 		
 		// see bad72.slf:
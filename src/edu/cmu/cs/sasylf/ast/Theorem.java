@@ -14,10 +14,13 @@ import edu.cmu.cs.sasylf.reduction.InductionSchema;
 import edu.cmu.cs.sasylf.term.FreeVar;
 import edu.cmu.cs.sasylf.term.Substitution;
 import edu.cmu.cs.sasylf.term.Term;
+import edu.cmu.cs.sasylf.util.Budget;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
+import edu.cmu.cs.sasylf.util.Events;
 import edu.cmu.cs.sasylf.util.Location;
 import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.Profile;
 import edu.cmu.cs.sasylf.util.SASyLFError;
 
 
@@ -45,6 +48,15 @@ public class Theorem extends RuleLike {
 	public Clause getExists() { return exists; }
 	public List<Derivation> getDerivations() { return derivations; }
 
+	/**
+	 * Discard the proof of this theorem, keeping its statement.
+	 * This should only be done once the theorem has been checked, since
+	 * a theorem without derivations would no longer check.
+	 */
+	public void releaseDerivations() {
+		derivations.clear();
+	}
+
 	public void setAnd(Theorem next) {
 		debug("setting and of ", this.getName(), " to ", next.getName());
 		andTheorem = next;
@@ -173,6 +185,12 @@ public class Theorem extends RuleLike {
 
 		int oldErrorCount = ErrorHandler.getErrorCount();
 		Context ctx = oldCtx.clone();
+		Events.TheoremCheck event = new Events.TheoremCheck();
+		event.begin();
+		Budget previousBudget = Budget.start();
+		Profile.Entry previousEntry = Profile.enter(kind, getName(), getLocation());
+		long interfaceStart = Profile.now();
+		long bodyStart = 0;
 		try {
 			debug("checking ", kind, " ", this.getName());
 
@@ -184,6 +202,8 @@ public class Theorem extends RuleLike {
 			ctx.assumedContext = null;
 
 			checkInterface(ctx);
+			Profile.interfaceChecked(interfaceStart);
+			bodyStart = Profile.now();
 
 			if (isAbstract) {
 				if (!derivations.isEmpty()) {
@@ -259,8 +279,22 @@ public class Theorem extends RuleLike {
 		} catch (SASyLFError e) {
 			// ignore the error; it has already been reported
 			//e.printStackTrace();
+		} catch (Budget.Exceeded e) {
+			ErrorHandler.recoverableError(Errors.THEOREM_BUDGET_EXCEEDED, e.getMessage(), this);
 		} finally {
+			if (bodyStart != 0) Profile.bodyChecked(bodyStart);
+			Profile.exit(previousEntry);
+			Budget.end(previousBudget);
 			int newErrorCount = ErrorHandler.getErrorCount() - oldErrorCount;
+			event.end();
+			if (event.shouldCommit()) {
+				event.kind = kind;
+				event.name = getName();
+				event.file = getLocation().getFile();
+				event.line = getLocation().getLine();
+				event.errors = newErrorCount;
+				event.commit();
+			}
 			if (edu.cmu.cs.sasylf.util.Util.VERBOSE) {
 				if (newErrorCount > 0) {
 					System.out.println("Error(s) in " + getKind() + " " + getName());					
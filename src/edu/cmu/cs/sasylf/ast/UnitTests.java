@@ -0,0 +1,158 @@
+package edu.cmu.cs.sasylf.ast;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.cmu.cs.sasylf.term.FreeVar;
+import edu.cmu.cs.sasylf.term.Substitution;
+import edu.cmu.cs.sasylf.term.Term;
+import edu.cmu.cs.sasylf.util.ErrorReport;
+import edu.cmu.cs.sasylf.util.Errors;
+import edu.cmu.cs.sasylf.util.Invariants;
+import edu.cmu.cs.sasylf.util.Location;
+import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.SASyLFError;
+import edu.cmu.cs.sasylf.util.SimpleTestSuite;
+import edu.cmu.cs.sasylf.util.Util;
+
+public class UnitTests extends SimpleTestSuite {
+
+	public UnitTests() { }
+
+	private final Location loc = new Location("UnitTests", 1, 1);
+	private final SyntaxDeclaration syntax = new SyntaxDeclaration(loc, new NonTerminal("t", loc));
+
+	private NonTerminal nt(String name) {
+		return new NonTerminal(name, loc, syntax);
+	}
+
+	private static FreeVar var(NonTerminal nt) {
+		return (FreeVar)nt.asTerm();
+	}
+
+	private Context newContext() {
+		Context ctx = new Context(null, null);
+		ctx.inputVars = new HashSet<FreeVar>();
+		ctx.outputVars = new HashSet<FreeVar>();
+		return ctx;
+	}
+
+	/**
+	 * Check the context, as many times as needed to do a full check at the sampled level.
+	 * @return whether an inconsistency was found
+	 */
+	private boolean inconsistent(Context ctx, Node here) {
+		int tries = Util.INVARIANTS == Invariants.Level.SAMPLED ? Invariants.SAMPLE_INTERVAL : 1;
+		boolean found = false;
+		for (int i=0; i < tries; ++i) {
+			try {
+				ctx.checkConsistent(here);
+			} catch (SASyLFError ex) {
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	private void testCheckConsistent(Invariants.Level level) {
+		boolean checking = level != Invariants.Level.OFF;
+		NonTerminal t1 = nt("t1"), t2 = nt("t2"), t3 = nt("t3");
+
+		// input variables replaced by as many others
+		Context ctx = newContext();
+		ctx.inputVars.add(var(t2));
+		ctx.currentSub.add(var(t1), var(t2));
+		assertTrue(level + ": consistent", !inconsistent(ctx, t1));
+		ctx.inputVars.clear();
+		ctx.inputVars.add(var(t3));
+		assertEqual(level + ": binding uses a variable no longer input", checking, inconsistent(ctx, t1));
+
+		// binding removed while a fact still uses the variable
+		ctx = newContext();
+		ctx.inputVars.add(var(t2));
+		ctx.currentSub.add(var(t1), var(t2));
+		ctx.derivationMap.put("t1", new NonTerminalAssumption(t1));
+		assertTrue(level + ": consistent fact", !inconsistent(ctx, t1));
+		Context copy = ctx.clone();
+		ctx.currentSub.remove(var(t1));
+		assertEqual(level + ": fact uses a variable no longer bound", checking, inconsistent(ctx, t1));
+		assertTrue(level + ": clone keeps the binding", !inconsistent(copy, t1));
+		copy.currentSub = new Substitution(copy.currentSub);
+		assertTrue(level + ": replaced substitution", !inconsistent(copy, t1));
+	}
+
+	private static CanBeCase caseKey(final String name) {
+		return new CanBeCase() {
+			@Override
+			public String getName() { return name; }
+			@Override
+			public String getErrorDescription(Term t, Context ctx) { return name; }
+			@Override
+			public Set<Pair<Term,Substitution>> caseAnalyze(Context ctx, Term term, Element target, Node source) {
+				return null;
+			}
+		};
+	}
+
+	private void testCaseMapFailure() {
+		final SASyLFError failure = new SASyLFError(new ErrorReport(Errors.UNKNOWN_CONTEXT, "Γ'", loc, null, true));
+		final int[] calls = new int[1];
+		CanBeCase bad = caseKey("bad"), good = caseKey("good");
+		CaseMap map = new CaseMap();
+		map.putLazy(bad, () -> { ++calls[0]; throw failure; });
+		map.putLazy(good, () -> new HashSet<Pair<Term,Substitution>>());
+
+		// two cases for the failing key
+		for (int i=0; i < 2; ++i) {
+			SASyLFError thrown = null;
+			try {
+				map.get(bad);
+			} catch (SASyLFError ex) {
+				thrown = ex;
+			}
+			assertTrue("case " + i + " for the failing key fails", thrown == failure);
+		}
+		assertEqual("failing key computed once", 1, calls[0]);
+
+		// the missing case check still sees the other keys
+		assertEqual("failing key not iterated", 1, map.size());
+		for (Map.Entry<CanBeCase,Set<Pair<Term,Substitution>>> e : map.entrySet()) {
+			assertTrue("only the other key iterated", e.getKey() == good && e.getValue() != null);
+		}
+
+		// a failure first met while iterating is not thrown
+		map = new CaseMap();
+		map.putLazy(bad, () -> { throw failure; });
+		map.putLazy(good, () -> new HashSet<Pair<Term,Substitution>>());
+		assertEqual("iteration skips a new failure", 1, map.entrySet().size());
+		assertTrue("key still fails after iteration", !safeContains(map, bad));
+	}
+
+	private static boolean safeContains(CaseMap map, CanBeCase key) {
+		try {
+			return map.containsKey(key);
+		} catch (SASyLFError ex) {
+			return false;
+		}
+	}
+
+	@Override
+	protected void runTests() {
+		testCaseMapFailure();
+		Invariants.Level saved = Util.INVARIANTS;
+		try {
+			for (Invariants.Level level : Invariants.Level.values()) {
+				Util.INVARIANTS = level;
+				testCheckConsistent(level);
+			}
+		} finally {
+			Util.INVARIANTS = saved;
+		}
+	}
+
+	public static void main(String[] args) {
+		new UnitTests().run();
+	}
+
+}
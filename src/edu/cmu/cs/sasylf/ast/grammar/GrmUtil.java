@@ -9,13 +9,13 @@ public class GrmUtil {
 	private static NonTerminal startSymbol;
 	private static Map<String, GrmTerminal> terminalMap = new HashMap<String, GrmTerminal>();
 
-	public static NonTerminal getStartSymbol() {
+	public static synchronized NonTerminal getStartSymbol() {
 		if (startSymbol == null)
 			startSymbol = new GrmNonTerminal("__START");
 		return startSymbol;
 	}
 
-	public static GrmTerminal terminalFor(String symbol) {
+	public static synchronized GrmTerminal terminalFor(String symbol) {
 		GrmTerminal result = terminalMap.get(symbol);
 		if (result == null) {
 			result = new GrmTerminal(symbol, null);
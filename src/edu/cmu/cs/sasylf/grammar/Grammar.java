@@ -11,6 +11,9 @@ import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 
+import edu.cmu.cs.sasylf.util.Events;
+import edu.cmu.cs.sasylf.util.Profile;
+
 public class Grammar {
 	private NonTerminal start;
 	private LinkedList<Rule> rules;
@@ -127,6 +130,7 @@ public class Grammar {
 		Queue<Automaton> queue = new LinkedList<Automaton>();
 		LinkedList<Automaton> done = new LinkedList<Automaton>();
 		Set<RuleNode> parseTrees = new HashSet<RuleNode>();
+		Profile.count(Profile.Counter.PARSES);
 
 		//Creates a new automaton to try to parse the sentence, and adds it to the queue.
 		queue.add(new Automaton(list, this));
@@ -155,6 +159,7 @@ public class Grammar {
 						parseTrees.add(a.results());
 						continue;
 					}
+					Profile.count(Profile.Counter.FORKS);
 					Automaton clone = new Automaton(a);
 					clone.act(action);
 					queue.offer(clone);
@@ -221,7 +226,14 @@ public class Grammar {
 			throw new NotParseableException();
 		}
 		if(lrz == null) {
+			Events.GrammarBuild event = new Events.GrammarBuild();
+			event.begin();
 			lrz = new LRZeroParseTable(this);
+			event.end();
+			if (event.shouldCommit()) {
+				event.rules = rules.size();
+				event.commit();
+			}
 		}
 		return lrz;
 	}
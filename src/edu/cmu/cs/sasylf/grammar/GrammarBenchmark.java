@@ -0,0 +1,279 @@
+package edu.cmu.cs.sasylf.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.cmu.cs.sasylf.util.Profile;
+import edu.cmu.cs.sasylf.util.Util;
+
+/**
+ * Time building parse tables and parsing sentences, for grammars built here
+ * (rather than from SASyLF syntax declarations), so that the parser can be
+ * measured on its own.  There are three families of grammars:
+ * <dl>
+ * <dt>expr<dd> expressions with the given number of binary operators,
+ *     each at its own precedence level, with parentheses;
+ * <dt>mixfix<dd> the given number of judgment forms, such as those in typing rules,
+ *     which share prefixes and are over a term grammar with binders;
+ * <dt>ambiguous<dd> application by juxtaposition with the given number
+ *     of atoms, in which a sentence of length <i>n</i> has a Catalan number of parses.
+ * </dl>
+ * For each grammar, we time the construction of the LR(0) table, and the
+ * parsing of sentences of increasing length, counting the number of
+ * automata forked at conflicts.  Times are medians over several runs,
+ * after running the same number of times to warm up.
+ */
+public class GrammarBenchmark {
+
+	private static class Sym implements NonTerminal {
+		private final String name;
+		Sym(String n) { name = n; }
+		@Override
+		public String toString() { return name; }
+	}
+
+	/** Terminals are compared by name, as {@link edu.cmu.cs.sasylf.ast.grammar.GrmTerminal} does. */
+	private static class Term implements Terminal {
+		private final String name;
+		Term(String n) { name = n; }
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Term && ((Term)o).name.equals(name);
+		}
+		@Override
+		public int hashCode() { return name.hashCode(); }
+		@Override
+		public String toString() { return name; }
+	}
+
+	private static class SimpleRule implements Rule {
+		private final NonTerminal left;
+		private final List<Symbol> right;
+		SimpleRule(NonTerminal l, Symbol... r) {
+			left = l;
+			right = Arrays.asList(r);
+		}
+		@Override
+		public NonTerminal getLeftSide() { return left; }
+		@Override
+		public List<Symbol> getRightSide() { return right; }
+		@Override
+		public String toString() { return left + " -> " + right; }
+	}
+
+	/**
+	 * A grammar and a way to make sentences of a given length (roughly) in it.
+	 */
+	private static abstract class Family {
+		final String name;
+		final int size;
+		final Grammar grammar;
+
+		Family(String name, int size) {
+			this.name = name;
+			this.size = size;
+			grammar = new Grammar();
+			build();
+		}
+
+		abstract void build();
+		abstract List<Terminal> sentence(int length);
+	}
+
+	/**
+	 * E_i -> E_i op_i E_{i+1} | E_{i+1}, and the last level is n or ( E_0 ).
+	 */
+	private static class ExprFamily extends Family {
+		ExprFamily(int ops) { super("expr", ops); }
+
+		@Override
+		void build() {
+			Sym[] levels = new Sym[size+1];
+			for (int i=0; i <= size; ++i) levels[i] = new Sym("E" + i);
+			grammar.setStartSymbol(levels[0]);
+			for (int i=0; i < size; ++i) {
+				grammar.addRule(new SimpleRule(levels[i], levels[i], new Term("op" + i), levels[i+1]));
+				grammar.addRule(new SimpleRule(levels[i], levels[i+1]));
+			}
+			grammar.addRule(new SimpleRule(levels[size], new Term("n")));
+			grammar.addRule(new SimpleRule(levels[size], new Term("("), levels[0], new Term(")")));
+		}
+
+		@Override
+		List<Terminal> sentence(int length) {
+			List<Terminal> result = new ArrayList<Terminal>();
+			result.add(new Term("n"));
+			for (int i=0; result.size() + 2 <= length; ++i) {
+				result.add(new Term("op" + (i % size)));
+				result.add(new Term("n"));
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Judgment forms J -> G |- e rel_i t over a term grammar with binders
+	 * e -> x | fn x : t => e | e e | ( e ), t -> b | t -> t | ( t ), G -> * | G , x : t.
+	 */
+	private static class MixfixFamily extends Family {
+		MixfixFamily(int forms) { super("mixfix", forms); }
+
+		@Override
+		void build() {
+			Sym j = new Sym("J"), g = new Sym("G"), e = new Sym("e"), t = new Sym("t");
+			Term x = new Term("x"), colon = new Term(":"), lp = new Term("("), rp = new Term(")");
+			grammar.setStartSymbol(j);
+			for (int i=0; i < size; ++i) {
+				grammar.addRule(new SimpleRule(j, g, new Term("|-"), e, new Term("rel" + i), t));
+			}
+			grammar.addRule(new SimpleRule(e, x));
+			grammar.addRule(new SimpleRule(e, new Term("fn"), x, colon, t, new Term("=>"), e));
+			grammar.addRule(new SimpleRule(e, e, e));
+			grammar.addRule(new SimpleRule(e, lp, e, rp));
+			grammar.addRule(new SimpleRule(t, new Term("b")));
+			grammar.addRule(new SimpleRule(t, t, new Term("->"), t));
+			grammar.addRule(new SimpleRule(t, lp, t, rp));
+			grammar.addRule(new SimpleRule(g, new Term("*")));
+			grammar.addRule(new SimpleRule(g, g, new Term(","), x, colon, t));
+		}
+
+		@Override
+		List<Terminal> sentence(int length) {
+			// * , x : b |- fn x : b => ( ... ( x x ) ... x ) rel_k b
+			// which has a single parse, but forks at each application
+			List<Terminal> result = new ArrayList<Terminal>();
+			result.addAll(terms("*", ",", "x", ":", "b", "|-", "fn", "x", ":", "b", "=>"));
+			int nesting = Math.max(0, (length - result.size() - 3) / 3);
+			for (int i=0; i < nesting; ++i) result.add(new Term("("));
+			result.add(new Term("x"));
+			for (int i=0; i < nesting; ++i) result.addAll(terms("x", ")"));
+			result.addAll(terms("rel" + (size-1), "b"));
+			return result;
+		}
+	}
+
+	/**
+	 * e -> e e | a_i: juxtaposition without parentheses.
+	 */
+	private static class AmbiguousFamily extends Family {
+		AmbiguousFamily(int atoms) { super("ambiguous", atoms); }
+
+		@Override
+		void build() {
+			Sym e = new Sym("e");
+			grammar.setStartSymbol(e);
+			grammar.addRule(new SimpleRule(e, e, e));
+			for (int i=0; i < size; ++i) {
+				grammar.addRule(new SimpleRule(e, new Term("a" + i)));
+			}
+		}
+
+		@Override
+		List<Terminal> sentence(int length) {
+			List<Terminal> result = new ArrayList<Terminal>();
+			for (int i=0; i < length; ++i) {
+				result.add(new Term("a" + (i % size)));
+			}
+			return result;
+		}
+	}
+
+	private static List<Terminal> terms(String... names) {
+		List<Terminal> result = new ArrayList<Terminal>();
+		for (String n : names) result.add(new Term(n));
+		return result;
+	}
+
+	private static int runs = 5;
+
+	private static double median(long[] times) {
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length/2] / 1e6;
+	}
+
+	private static double timeTable(Grammar g) {
+		long[] times = new long[runs];
+		for (int i=-runs; i < runs; ++i) {
+			long start = System.nanoTime();
+			new LRZeroParseTable(g);
+			if (i >= 0) times[i] = System.nanoTime() - start;
+		}
+		return median(times);
+	}
+
+	private static String parse(Grammar g, List<Terminal> sentence) {
+		try {
+			g.parse(sentence);
+			return "ok";
+		} catch (AmbiguousSentenceException e) {
+			return "ambiguous";
+		} catch (NotParseableException e) {
+			return "error";
+		}
+	}
+
+	private static void benchmark(Family f, int maxLength) throws NotParseableException {
+		Grammar g = f.grammar;
+		double tableTime = timeTable(g);
+		int states = ((LRZeroParseTable)g.getTable()).numberOfSets();
+		System.out.printf("%-10s size %3d: %4d rules, %5d states, table %9.3f ms%n",
+				f.name, f.size, g.getRules().size(), states, tableTime);
+		int lastLength = -1;
+		for (int length = 1; length <= maxLength; length *= 2) {
+			List<Terminal> sentence = f.sentence(length);
+			if (sentence.size() == lastLength) continue;
+			lastLength = sentence.size();
+			long[] times = new long[runs];
+			String result = null;
+			long forks = 0;
+			for (int i=-runs; i < runs; ++i) {
+				Profile profile = new Profile();
+				Profile previous = profile.install();
+				Profile.enter("parse", f.name, null);
+				long start = System.nanoTime();
+				result = parse(g, sentence);
+				if (i >= 0) times[i] = System.nanoTime() - start;
+				Profile.restore(previous);
+				forks = profile.getEntries().get(0).getCount(Profile.Counter.FORKS);
+			}
+			System.out.printf("%10s length %5d: parse %9.3f ms, %7d forks, %s%n",
+					"", sentence.size(), median(times), forks, result);
+		}
+	}
+
+	public static void main(String[] args) throws NotParseableException {
+		int[] sizes = { 1, 4, 16 };
+		int maxLength = 256;
+		int maxAmbiguous = 12;
+		for (String s : args) {
+			try {
+				if (s.startsWith("--runs=")) runs = Integer.parseInt(s.substring(7));
+				else if (s.startsWith("--max-length=")) maxLength = Integer.parseInt(s.substring(13));
+				else if (s.startsWith("--max-ambiguous=")) maxAmbiguous = Integer.parseInt(s.substring(16));
+				else if (s.startsWith("--sizes=")) {
+					String[] parts = s.substring(8).split(",");
+					sizes = new int[parts.length];
+					for (int i=0; i < parts.length; ++i) sizes[i] = Integer.parseInt(parts[i]);
+				} else usage();
+			} catch (NumberFormatException ex) {
+				usage();
+			}
+		}
+		if (runs < 1) usage();
+		for (int n : sizes) {
+			if (n < 1) usage();
+		}
+		Util.PROFILE = true; // to count forks
+		for (int n : sizes) benchmark(new ExprFamily(n), maxLength);
+		for (int n : sizes) benchmark(new MixfixFamily(n), maxLength);
+		for (int n : sizes) benchmark(new AmbiguousFamily(n), maxAmbiguous);
+	}
+
+	private static void usage() {
+		System.out.println("usage: java " + GrammarBenchmark.class.getName() +
+				" [--runs=N] [--sizes=N,...] [--max-length=N] [--max-ambiguous=N]");
+		System.exit(1);
+	}
+}
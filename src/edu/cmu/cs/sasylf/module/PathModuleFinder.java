@@ -2,32 +2,79 @@ package edu.cmu.cs.sasylf.module;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import edu.cmu.cs.sasylf.Proof;
+import edu.cmu.cs.sasylf.term.FreeVar;
+import edu.cmu.cs.sasylf.term.Term;
+import edu.cmu.cs.sasylf.util.CancellationToken;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
+import edu.cmu.cs.sasylf.util.Events;
 import edu.cmu.cs.sasylf.util.Span;
+import edu.cmu.cs.sasylf.util.TransitiveClosure;
+import edu.cmu.cs.sasylf.util.Util;
 
 /**
  * Module finder that uses a path of module providers.
+ * The modules found are cached.  Several finders may share a cache
+ * (see {@link #PathModuleFinder(PathModuleFinder)}), in which case
+ * each module is only checked once, even when the finders are used by different threads.
  */
 public class PathModuleFinder extends AbstractModuleFinder implements ModuleFinder, ModuleEventListener {
 
+	/**
+	 * The state shared by finders sharing a cache.
+	 * All fields are guarded by the lock on this object.
+	 */
+	private static class SharedCache {
+		final Map<ModuleId,ModuleProvider> presentCache = new HashMap<ModuleId,ModuleProvider>();
+		final Map<ModuleId,Proof> cache = new HashMap<>();
+		final Map<ModuleId,PathModuleFinder> loading = new HashMap<>();
+		final Map<PathModuleFinder,ModuleId> waiting = new HashMap<>();
+		final Map<ModuleId,Set<ModuleId>> dependents = new HashMap<>();
+	}
+
+	// modified only by the thread using this finder, while holding the shared lock
 	private final List<ModuleId> inProcess = new ArrayList<ModuleId>();
-	private final Map<ModuleId,ModuleProvider> presentCache = new HashMap<ModuleId,ModuleProvider>();
-	private final Map<ModuleId,Proof> cache = new HashMap<>();
-	private final List<ModuleProvider> providers = new ArrayList<ModuleProvider>();
+	private final Set<ModuleId> topLevelRequests = new LinkedHashSet<ModuleId>(); // guarded by shared
+	private final SharedCache shared;
+	private final List<ModuleProvider> providers;
 	
+	private PathModuleFinder() {
+		shared = new SharedCache();
+		providers = new ArrayList<ModuleProvider>();
+	}
+
 	/**
 	 * Create a path module finder with initially a single provider.
 	 * @param p a single provider, must not be null
 	 */
 	protected PathModuleFinder(ModuleProvider p) {
+		this();
 		addProvider(p);
 	}
+
+	/**
+	 * Create a module finder that uses the same providers as an existing
+	 * finder and shares its cache of modules.
+	 * The new finder has its own current package, and so it may be used in
+	 * a different thread than the existing one.
+	 * If a module is already being loaded by one finder, another finder
+	 * that needs it waits for it to be finished.
+	 * Providers should not be added to either finder after this point.
+	 * @param other finder whose providers and cache are shared, must not be null
+	 */
+	public PathModuleFinder(PathModuleFinder other) {
+		shared = other.shared;
+		providers = other.providers;
+	}
 	
 	/**
 	 * Get the {@link ModuleProvider} associated with the provided {@link ModuleId} in the cache.
@@ -35,9 +82,11 @@ public class PathModuleFinder extends AbstractModuleFinder implements ModuleFind
 	 * @return the module provider associated with this id in the cache
 	 */
 	public ModuleProvider lookupModule(ModuleId id) {
-		hasCandidate(id);
-		
-		return presentCache.get(id);
+		synchronized (shared) {
+			hasCandidate(id);
+
+			return shared.presentCache.get(id);
+		}
 	}
 
 	/**
@@ -54,6 +103,7 @@ public class PathModuleFinder extends AbstractModuleFinder implements ModuleFind
 	 * @param l list of providers, must not be null
 	 */
 	protected PathModuleFinder(List<ModuleProvider> l) {
+		this();
 		for (ModuleProvider p : l) {
 			addProvider(p);
 		}
@@ -65,6 +115,7 @@ public class PathModuleFinder extends AbstractModuleFinder implements ModuleFind
 	 * @param path non-null string of places separated with {@link File#pathSeparator}.
 	 */
 	public PathModuleFinder(String path) {
+		this();
 		addProvider(new ResourceModuleProvider());
 		String[] pieces = path.split(File.pathSeparator);
 		for (String piece : pieces) {
@@ -75,20 +126,30 @@ public class PathModuleFinder extends AbstractModuleFinder implements ModuleFind
 		}
 	}
 
+	/**
+	 * Return the providers this finder uses.
+	 * @return unmodifiable list of providers
+	 */
+	public List<ModuleProvider> getProviders() {
+		return Collections.unmodifiableList(providers);
+	}
+
 	@Override
 	public boolean hasCandidate(ModuleId id) {
-		if (cache.containsKey(id)) return true;
-		if (presentCache.containsKey(id)) {
-			return presentCache.get(id) != null;
-		}
-		for (ModuleProvider p : providers) {
-			if (p.has(id)) {
-				presentCache.put(id, p);
-				return true;
+		synchronized (shared) {
+			if (shared.cache.containsKey(id)) return true;
+			if (shared.presentCache.containsKey(id)) {
+				return shared.presentCache.get(id) != null;
 			}
+			for (ModuleProvider p : providers) {
+				if (p.has(id)) {
+					shared.presentCache.put(id, p);
+					return true;
+				}
+			}
+			shared.presentCache.put(id, null);
+			return false;
 		}
-		presentCache.put(id, null);
-		return false;
 	}
 
 	@Override
@@ -101,53 +162,175 @@ public class PathModuleFinder extends AbstractModuleFinder implements ModuleFind
 		if (!hasCandidate(id)) {
 			ErrorHandler.error(Errors.MODULE_NOT_FOUND, id.toString(), location);
 		}
-		if (cache.containsKey(id)) {
-			Proof previous = cache.get(id);
+		Events.ModuleLoad event = new Events.ModuleLoad();
+		event.begin();
+		ModuleProvider provider = null;
+		Proof previous = null;
+		boolean cacheHit = false;
+		synchronized (shared) {
+			ModuleId importer = lastModuleId();
+			if (importer == null) topLevelRequests.add(id);
+			else shared.dependents.computeIfAbsent(id, k -> new HashSet<ModuleId>()).add(importer);
+			boolean interrupted = false;
+			try {
+				while (!shared.cache.containsKey(id) && shared.loading.containsKey(id)) {
+					String cycle = findCycle(id);
+					if (cycle != null) {
+						shared.cache.put(id, null);
+						ErrorHandler.error(Errors.MODULE_CYCLE, cycle, location);
+					}
+					shared.waiting.put(this, id);
+					try {
+						shared.wait();
+					} catch (InterruptedException ex) {
+						interrupted = true;
+					} finally {
+						shared.waiting.remove(this);
+					}
+				}
+			} finally {
+				if (interrupted) Thread.currentThread().interrupt();
+			}
+			if (shared.cache.containsKey(id)) {
+				previous = shared.cache.get(id);
+				cacheHit = true;
+			} else {
+				provider = shared.presentCache.get(id);
+				shared.loading.put(id, this);
+				inProcess.add(id);
+			}
+		}
+		if (cacheHit) {
+			commit(event, id, true, previous);
 			// if null, the error should have been reported already
+			if (previous != null) previous.addAppearsInToCurrent();
 			return previous;
 		}
-		if (inProcess.contains(id)) {
-			StringBuilder path = new StringBuilder();
-			for (int i=inProcess.indexOf(id); i < inProcess.size(); ++i) {
-				path.append(inProcess.get(i).toString());
-				path.append(" -> ");
-			}
-			path.append(id);
-			cache.put(id, null);
-			ErrorHandler.error(Errors.MODULE_CYCLE, path.toString(), location);
-		}
-		ModuleProvider provider = presentCache.get(id);
 		String[] savedPackage = currentPackage;
-		inProcess.add(id);
+		// checking the module resets the relation, so we keep the importer's
+		TransitiveClosure<Term> importerAppearsIn = FreeVar.getAppearsIn();
 		Proof result = null;
+		boolean cancelled = false;
 		try {
 			result = provider.get(this, id, location);
+			if (Util.LOW_MEMORY && result != null) result.retainInterfaceOnly();
+			FreeVar.useAppearsIn(importerAppearsIn);
+			if (result != null) result.addAppearsInToCurrent();
 			return result;
+		} catch (CancellationToken.Cancelled ex) {
+			// the module was not completely checked: don't cache it
+			cancelled = true;
+			throw ex;
 		} finally {
+			FreeVar.useAppearsIn(importerAppearsIn);
 			currentPackage = savedPackage;
-			inProcess.remove(inProcess.size()-1);
-			cache.put(id, result);
+			synchronized (shared) {
+				inProcess.remove(inProcess.size()-1);
+				shared.loading.remove(id);
+				if (!cancelled) shared.cache.put(id, result);
+				shared.notifyAll();
+			}
+			commit(event, id, false, result);
+		}
+	}
+
+	private static void commit(Events.ModuleLoad event, ModuleId id, boolean cacheHit, Proof result) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.module = id.toString();
+			event.cacheHit = cacheHit;
+			event.found = result != null;
+			event.commit();
 		}
 	}
 
+	/**
+	 * Return a description of the import cycle that would be completed
+	 * if this finder waited for the given module.  The cycle may pass through
+	 * modules being loaded by other finders, if they are waiting in turn.
+	 * Must be called while holding the shared lock.
+	 * @param id module being loaded by some finder
+	 * @return the cycle as a string, or null if waiting would not cause a cycle
+	 */
+	private String findCycle(ModuleId id) {
+		StringBuilder path = new StringBuilder();
+		ModuleId next = id;
+		PathModuleFinder owner;
+		while ((owner = shared.loading.get(next)) != null) {
+			for (int i=owner.inProcess.indexOf(next); i < owner.inProcess.size(); ++i) {
+				path.append(owner.inProcess.get(i).toString());
+				path.append(" -> ");
+			}
+			if (owner == this) {
+				path.append(id);
+				return path.toString();
+			}
+			next = shared.waiting.get(owner);
+			if (next == null) break;
+		}
+		return null;
+	}
+
 	protected ModuleId lastModuleId() {
 		if (inProcess.isEmpty()) return null;
 		return inProcess.get(inProcess.size()-1);
 	}
 
+	/**
+	 * Return the modules requested from this finder other than
+	 * as imports of modules it was loading, for example, the imports of a file
+	 * checked directly, or a module checked by name.
+	 * @return a new set of module ids in the order first requested
+	 */
+	public Set<ModuleId> getTopLevelRequests() {
+		synchronized (shared) {
+			return new LinkedHashSet<ModuleId>(topLevelRequests);
+		}
+	}
+
+	/**
+	 * Return whether the result of finding this module is cached,
+	 * so that it will not be checked again.
+	 * @param id module id, must not be null
+	 * @return whether the module is in the cache
+	 */
+	public boolean isCached(ModuleId id) {
+		synchronized (shared) {
+			return shared.cache.containsKey(id);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The module is removed from the cache, as are all the cached
+	 * modules that import it directly or indirectly.
+	 */
 	@Override
 	public void moduleChanged(ModuleChangedEvent e) {
 		//System.out.println("Got changed event " + e);
-		removeCacheEntry(e.getModuleId());
+		synchronized (shared) {
+			List<ModuleId> worklist = new ArrayList<ModuleId>();
+			worklist.add(e.getModuleId());
+			while (!worklist.isEmpty()) {
+				ModuleId id = worklist.remove(worklist.size()-1);
+				removeCacheEntry(id);
+				Set<ModuleId> importers = shared.dependents.remove(id);
+				if (importers != null) worklist.addAll(importers);
+			}
+		}
 	}
 	
 	protected void clearCache() {
-		presentCache.clear();
-		cache.clear();
+		synchronized (shared) {
+			shared.presentCache.clear();
+			shared.cache.clear();
+		}
 	}
 
 	protected boolean removeCacheEntry(ModuleId id) {
-		presentCache.remove(id);
-		return cache.remove(id) != null;
+		synchronized (shared) {
+			shared.presentCache.remove(id);
+			return shared.cache.remove(id) != null;
+		}
 	}
 }
\ No newline at end of file
@@ -5,6 +5,11 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import edu.cmu.cs.sasylf.Proof;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
@@ -17,6 +22,7 @@ import edu.cmu.cs.sasylf.util.Span;
  */
 public class RootModuleProvider extends AbstractModuleProvider {
 	protected final File rootDirectory;
+	private final Map<Path,ModuleId> loaded = new HashMap<>(); // guarded by this
 
 	/**
 	 * Create a root module provider looking at the current working directory.
@@ -51,7 +57,57 @@ public class RootModuleProvider extends AbstractModuleProvider {
 
 	@Override
 	public Proof get(PathModuleFinder mf, ModuleId id, Span location) {
-		return parseAndCheck(mf,getFile(id),id, location);
+		File f = getFile(id);
+		synchronized (this) {
+			loaded.put(asKey(f), id);
+		}
+		return parseAndCheck(mf,f,id, location);
+	}
+
+	private static Path asKey(File f) {
+		return f.toPath().toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Return the files that this provider has read modules from.
+	 * @return a new collection of (absolute) files
+	 */
+	public synchronized Collection<File> getLoadedFiles() {
+		Collection<File> result = new ArrayList<File>();
+		for (Path p : loaded.keySet()) {
+			result.add(p.toFile());
+		}
+		return result;
+	}
+
+	/**
+	 * Notify this provider that a file may have been changed, added or removed.
+	 * If a module was read from this file, the listeners are notified
+	 * that the module has changed (or been removed).
+	 * Otherwise, if the file is a new module under the root directory,
+	 * the listeners are notified that it was added.
+	 * @param f file that changed, must not be null
+	 * @return whether the file is a module of this provider
+	 */
+	public boolean fileChanged(File f) {
+		ModuleId id;
+		synchronized (this) {
+			id = loaded.get(asKey(f));
+		}
+		if (id != null) {
+			fireModuleEvent(new ModuleChangedEvent(id, f.exists() ? ModuleChangedEvent.EventType.CHANGED : ModuleChangedEvent.EventType.REMOVED));
+			return true;
+		}
+		Path root = asKey(rootDirectory == null ? new File("") : rootDirectory);
+		Path p = asKey(f);
+		if (!p.startsWith(root) || !f.isFile()) return false;
+		try {
+			id = new ModuleId(root.relativize(p).toString());
+		} catch (RuntimeException ex) {
+			return false; // not a module file
+		}
+		fireModuleEvent(new ModuleChangedEvent(id, ModuleChangedEvent.EventType.ADDED));
+		return true;
 	}
 
 	protected Proof parseAndCheck(ModuleFinder mf, File f, ModuleId id, Span loc) {
@@ -17,12 +17,15 @@ import edu.cmu.cs.sasylf.term.Term;
 
 public class ProofImpl implements Proof {
 
+	private final Judgment goal;
 	private RootNode root;
 	private List<ProvedNode> unproved; //A list of nodes with unproved children
 	private Substitution substitution;
 	private Set<FreeVar> inputVars = new HashSet<FreeVar>();
 	private Stack<Substitution> undoSubs;
 	private Stack<ProvedNode> undoStates;
+	private Stack<Judgment> undoGoals; // judgments of nodes rules were applied to
+	private Stack<Rule> undoRules;
 
 	/**
 	 * Constructs a new empty proof.
@@ -37,12 +40,55 @@ public class ProofImpl implements Proof {
 	 * @param j The Judgment to be proved.
 	 */
 	public ProofImpl(Judgment j) {
+		goal = j;
 		unproved = new LinkedList<ProvedNode>();
 		root = new RootNode(new UnprovedNodeImpl(j, 0, 0));
 		unproved.add(root);
 		substitution = new Substitution();
 		undoSubs = new Stack<Substitution>();
 		undoStates = new Stack<ProvedNode>();
+		undoGoals = new Stack<Judgment>();
+		undoRules = new Stack<Rule>();
+	}
+
+	/**
+	 * Returns a new proof of the same goal, with the same rules applied
+	 * to the same judgments.  The copy shares no nodes with this proof,
+	 * and so either may be changed without affecting the other.
+	 */
+	public ProofImpl copy() {
+		ProofImpl result = new ProofImpl(goal);
+		result.inputVars.addAll(inputVars);
+		result.applyRulesOf(this);
+		return result;
+	}
+
+	/**
+	 * Applies the rules applied in another proof of the same goal,
+	 * in the order they were applied there.
+	 * @param other a proof copied from this one (or from the same proof as this one)
+	 */
+	public void applyRulesOf(ProofImpl other) {
+		for (int i=0; i < other.undoRules.size(); ++i) {
+			applyRule(other.undoGoals.get(i), other.undoRules.get(i));
+		}
+	}
+
+	/**
+	 * Applies a rule to the unproved node for the given judgment.
+	 * @param j judgment (compared by identity) of an unproved node
+	 * @param rule the rule to apply.
+	 */
+	void applyRule(Judgment j, Rule rule) {
+		for (ProvedNode pn : unproved) {
+			for (UnprovedNode un : pn.getUnprovedNodes()) {
+				if (un.getJudgment() == j) {
+					applyRule(pn, un, rule);
+					return;
+				}
+			}
+		}
+		throw new IllegalArgumentException("no unproved node for " + j);
 	}
 
 	/** Applies a rule to a node.
@@ -78,6 +124,8 @@ public class ProofImpl implements Proof {
 
 		//update the undo stack
 		undoStates.push(pn);
+		undoGoals.push(node.getJudgment());
+		undoRules.push(rule);
 
 		//update the substitution and push the old one onto the undo stack
 		Substitution newSubstitution = new Substitution(substitution);
@@ -96,6 +144,8 @@ public class ProofImpl implements Proof {
 
 		//Get the last provednode we applied a rule on
 		ProvedNode pn = undoStates.pop();
+		undoGoals.pop();
+		undoRules.pop();
 
 		//If we removed it from the list of nodes with unproved children, put it back on
 		if(!unproved.contains(pn)) {
@@ -8,6 +8,7 @@ import java.io.PrintWriter;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import edu.cmu.cs.sasylf.term.Substitution;
 
@@ -20,15 +21,14 @@ public class ProvedNodeImpl implements ProvedNode {
 	private Stack<ProvedNode> undoStates;
 	private Stack<UnprovedNode> undoNodes;
 	private int id;
-	private static int idcounter = 0;
+	private static final AtomicInteger idcounter = new AtomicInteger();
 
 	/**
 	 * @param r The Rule used to prove this node is true.
 	 * @param pre The premises of Rule r.
 	 */
 	public ProvedNodeImpl (Rule r, List<ProofNode> pre) {
-		id = idcounter;
-		idcounter++;
+		id = idcounter.getAndIncrement();
 
 		judgment = r.getResult();
 		rule = r;
@@ -174,6 +174,6 @@ public class ProvedNodeImpl implements ProvedNode {
 	 */
 	@Override
 	public int getId() {
-		return idcounter - id;
+		return idcounter.get() - id;
 	}
 }
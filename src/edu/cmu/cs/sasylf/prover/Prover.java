@@ -4,7 +4,42 @@
 
 package edu.cmu.cs.sasylf.prover;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.cmu.cs.sasylf.term.FreeVar;
+import edu.cmu.cs.sasylf.term.Term;
+import edu.cmu.cs.sasylf.util.Budget;
+import edu.cmu.cs.sasylf.util.CancellationToken;
+import edu.cmu.cs.sasylf.util.TransitiveClosure;
+
 public class Prover {
+	private final int parallelDepth;
+	// shared by the tasks of a parallel search
+	private final AtomicInteger expansions = new AtomicInteger();
+
+	/**
+	 * Create a prover that searches in the current thread.
+	 */
+	public Prover() {
+		this(0);
+	}
+
+	/**
+	 * Create a prover that explores the alternatives for the first few choices
+	 * in parallel, each on its own copy of the proof.  Below these choices,
+	 * each copy is searched as usual.  The proof found does not depend on
+	 * which alternative finishes first: it is that of the leftmost alternative
+	 * (in rule order) that succeeds.
+	 * @param parallelDepth number of levels of choices explored in parallel, 0 for none
+	 */
+	public Prover(int parallelDepth) {
+		this.parallelDepth = parallelDepth;
+	}
+
 	/** Returns a correct proof of the property encoded by partial, or null if no such proof can be found
 	 * within the given search bound.
 	 * 
@@ -13,6 +48,22 @@ public class Prover {
 	 * @return
 	 */
 	public Proof prove(Proof partial, int bound) {
+		if (parallelDepth > 0 && partial instanceof ProofImpl) {
+			return proveInParallel((ProofImpl)partial, bound);
+		}
+		return prove(partial, bound, null);
+	}
+
+	/**
+	 * Return the number of times a rule was applied while searching,
+	 * for comparison with {@link TablingProver#getExpansions()}.
+	 * @return number of rule applications so far
+	 */
+	public int getExpansions() {
+		return expansions.get();
+	}
+
+	private Proof prove(Proof partial, int bound, Search search) {
 		//Gets the leftmost unproved node and its parent
 		ProvedNode leftmostParent = partial.getLeftmostUnprovedNodeParent();
 		UnprovedNode leftmost = leftmostParent.getLeftmostUnprovedNode();
@@ -24,7 +75,13 @@ public class Prover {
 
 		//Try each rule
 		for(Rule r: leftmost.getRulesThatApply(partial)) {
+			Budget.charge();
+			//If another alternative has already succeeded, give up.
+			if (search != null && search.isAbandoned()) {
+				return null;
+			}
 			//Apply the rule.
+			expansions.incrementAndGet();
 			partial.applyRule(leftmostParent, leftmost, r);
 
 			//If we're done, return.
@@ -33,7 +90,7 @@ public class Prover {
 			}
 
 			//Otherwise, continue trying to prove this.
-			Proof result = prove(partial, bound);
+			Proof result = prove(partial, bound, search);
 			if (result != null) {
 				return result;
 			}
@@ -43,4 +100,130 @@ public class Prover {
 		}
 		return null;
 	}
+
+	private Proof proveInParallel(ProofImpl partial, int bound) {
+		Shared shared = new Shared(bound);
+		ProofImpl found = ForkJoinPool.commonPool().invoke(new Search(shared, null, partial, 0));
+		FreeVar.advanceFreshStamp(shared.freshStamp.get());
+		if (found == null) return null;
+		partial.applyRulesOf(found);
+		return partial;
+	}
+
+	/**
+	 * What the tasks of a parallel search share, including the state of the
+	 * thread that started the search, which each task takes on while it runs.
+	 */
+	private static class Shared {
+		final int bound;
+		final TransitiveClosure<Term> appearsIn = FreeVar.getAppearsIn();
+		final Budget budget = Budget.current();
+		final CancellationToken token = CancellationToken.current();
+		// no task may make fresh variables with smaller stamps
+		final AtomicInteger freshStamp = new AtomicInteger(FreeVar.getFreshStamp());
+
+		Shared(int bound) {
+			this.bound = bound;
+		}
+
+		void publishFreshStamp() {
+			freshStamp.accumulateAndGet(FreeVar.getFreshStamp(), Math::max);
+		}
+	}
+
+	/**
+	 * A task that searches for a proof of its own copy of the proof,
+	 * returning it completed, or null.
+	 */
+	private class Search extends RecursiveTask<ProofImpl> {
+		/**
+		 * Keep Eclipse Happy
+		 */
+		private static final long serialVersionUID = 1L;
+
+		private final Shared shared;
+		private final Search parent;
+		private final ProofImpl proof;
+		private final int level;
+		private volatile boolean abandoned;
+
+		Search(Shared shared, Search parent, ProofImpl proof, int level) {
+			this.shared = shared;
+			this.parent = parent;
+			this.proof = proof;
+			this.level = level;
+		}
+
+		/**
+		 * Return whether this search (or one it is part of) is no longer needed
+		 * because an alternative to the left has succeeded.
+		 */
+		boolean isAbandoned() {
+			return abandoned || parent != null && parent.isAbandoned();
+		}
+
+		@Override
+		protected ProofImpl compute() {
+			TransitiveClosure<Term> previousAppearsIn = FreeVar.useAppearsIn(shared.appearsIn);
+			Budget previousBudget = Budget.share(shared.budget);
+			CancellationToken previousToken = shared.token == null ? null : shared.token.install();
+			FreeVar.advanceFreshStamp(shared.freshStamp.get());
+			try {
+				return search();
+			} finally {
+				shared.publishFreshStamp();
+				if (shared.token != null) CancellationToken.restore(previousToken);
+				Budget.end(previousBudget);
+				FreeVar.useAppearsIn(previousAppearsIn);
+			}
+		}
+
+		private ProofImpl search() {
+			if (isAbandoned()) return null;
+			if (proof.isCompleteProof()) return proof;
+			if (level >= parallelDepth) {
+				return prove(proof, shared.bound, this) == null ? null : proof;
+			}
+
+			ProvedNode leftmostParent = proof.getLeftmostUnprovedNodeParent();
+			UnprovedNode leftmost = leftmostParent.getLeftmostUnprovedNode();
+			if(leftmost.getDepth() > shared.bound) {
+				return null;
+			}
+
+			//Each alternative gets a copy of the proof with its rule applied.
+			List<Search> alternatives = new ArrayList<Search>();
+			for(Rule r: leftmost.getRulesThatApply(proof)) {
+				Budget.charge();
+				expansions.incrementAndGet();
+				ProofImpl copy = proof.copy();
+				copy.applyRule(leftmost.getJudgment(), r);
+				alternatives.add(new Search(shared, this, copy, level+1));
+			}
+			shared.publishFreshStamp();
+			for (Search s : alternatives) {
+				s.fork();
+			}
+
+			//Wait for the alternatives in order, so that the leftmost success is used.
+			ProofImpl found = null;
+			int i = 0;
+			try {
+				while (found == null && i < alternatives.size()) {
+					found = alternatives.get(i++).join();
+				}
+			} finally {
+				//The rest are abandoned: whether they fail or throw does not matter.
+				for (int j=i; j < alternatives.size(); ++j) {
+					alternatives.get(j).abandoned = true;
+				}
+				for (int j=i; j < alternatives.size(); ++j) {
+					alternatives.get(j).quietlyJoin();
+				}
+			}
+			//An abandoned alternative may have been the one to see a cancellation.
+			CancellationToken.checkCancelled();
+			return found;
+		}
+	}
 }
@@ -9,18 +9,37 @@ import edu.cmu.cs.sasylf.util.Util;
 
 public class SolveReport extends Report {
 
-	private final Proof proof;
+	private Proof proof;
+	private String printed; // once detached
 	public SolveReport(Span loc, Proof solution) {
 		super(loc, "info: solution found");
 		proof = solution;
 	}
 
+	/**
+	 * Return the solution found.
+	 * @return proof found, or null if this report has been detached
+	 */
 	public Proof getProof() {
 		return proof;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * The solution is kept only in printed form.
+	 */
+	@Override
+	public void detach() {
+		if (proof != null) {
+			printed = getExtraInformation();
+			proof = null;
+		}
+		super.detach();
+	}
+
 	@Override
 	public String getExtraInformation() {
+		if (proof == null) return printed;
 		StringWriter sw = new StringWriter();
 		PrintWriter out = new PrintWriter(sw);
 		proof.prettyPrint(out);
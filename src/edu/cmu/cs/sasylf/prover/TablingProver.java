@@ -0,0 +1,191 @@
+package edu.cmu.cs.sasylf.prover;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.cmu.cs.sasylf.term.FreeVar;
+import edu.cmu.cs.sasylf.term.Substitution;
+import edu.cmu.cs.sasylf.term.Term;
+import edu.cmu.cs.sasylf.util.Budget;
+
+/**
+ * A prover that searches by iterative deepening, remembering subgoals
+ * that have been solved or shown to fail.
+ * Unlike {@link Prover}, which backtracks over the whole partial proof,
+ * this prover searches for a proof of each goal separately (threading the
+ * substitution through sibling goals), so that it can tell when a goal
+ * has no proof at all within the remaining depth.  Such goals are recorded
+ * (with the free variables given standard names) so that they are not tried
+ * again at the same or lesser depth: an instance of a goal with no proof has
+ * no proof either.  Goals without free variables that have been proved are
+ * recorded with their proofs, which are reused.
+ * Once a proof is found, it is rebuilt in the partial proof given.
+ */
+public class TablingProver {
+	// goal variant -> greatest remaining depth at which it is known not to be provable
+	private final Map<Term,Integer> failed = new HashMap<Term,Integer>();
+	// goal (without free variables) -> its proof
+	private final Map<Term,Goal> solved = new HashMap<Term,Goal>();
+	private Set<FreeVar> inputVars;
+	private int expansions;
+
+	/**
+	 * A goal in the search, and the rule (if any) currently used to prove it.
+	 */
+	private static class Goal {
+		final Judgment judgment;
+		final int remaining; // depth still permitted
+		Rule rule;
+		List<Goal> premises;
+		Goal reused; // a proof of an equal goal found earlier
+
+		Goal(Judgment j, int r) {
+			judgment = j;
+			remaining = r;
+		}
+
+		/**
+		 * Copy the proof of this goal, which may otherwise be undone while searching.
+		 */
+		Goal copy() {
+			if (reused != null) return reused;
+			Goal result = new Goal(judgment, remaining);
+			result.rule = rule;
+			result.premises = new ArrayList<Goal>();
+			for (Goal p : premises) {
+				result.premises.add(p.copy());
+			}
+			return result;
+		}
+
+		/**
+		 * Return the depth needed for the proof of this goal.
+		 */
+		int height() {
+			if (reused != null) return reused.height();
+			int h = 0;
+			for (Goal p : premises) {
+				h = Math.max(h, p.height() + 1);
+			}
+			return h;
+		}
+	}
+
+	/**
+	 * What to do after goals have been proved.
+	 */
+	private interface Continuation {
+		boolean proceed(Substitution sub);
+	}
+
+	/** Returns a correct proof of the property encoded by partial, or null if no such proof can be found
+	 * within the given search bound.  As with {@link Prover#prove(Proof, int)}, a node may
+	 * be expanded if its depth is not greater than the bound.
+	 * Shallower proofs are found first.
+	 * @param partial a new proof with a single unproved goal
+	 * @param bound maximum depth of a node to expand
+	 * @return the partial proof, completed, or null if no proof was found
+	 */
+	public Proof prove(Proof partial, int bound) {
+		ProvedNode parent = partial.getLeftmostUnprovedNodeParent();
+		Judgment judgment = parent.getLeftmostUnprovedNode().getJudgment();
+		inputVars = partial.getInputVars();
+		for (int b = 0; b <= bound; ++b) {
+			Goal root = new Goal(judgment, b);
+			if (solve(root, new Substitution(), sub -> true)) {
+				rebuild(partial, root);
+				return partial;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the number of times a goal was expanded using a rule.
+	 * @return number of expansions so far
+	 */
+	public int getExpansions() {
+		return expansions;
+	}
+
+	/**
+	 * Prove the goal and then continue.
+	 * @param g goal to prove
+	 * @param sub current substitution (not modified)
+	 * @param k what to do after the goal is proved
+	 * @return true if the goal and the continuation succeeded
+	 */
+	private boolean solve(Goal g, Substitution sub, Continuation k) {
+		if (g.remaining < 0) return false;
+		Term term = g.judgment.getTerm().substitute(sub);
+		Term variant = term.canonicalizeFreeVariables();
+		boolean ground = variant == term;
+		if (ground) {
+			Goal previous = solved.get(term);
+			if (previous != null && previous.height() <= g.remaining) {
+				g.reused = previous;
+				if (k.proceed(sub)) return true;
+				g.reused = null;
+				return false;
+			}
+		}
+		Integer failedAt = failed.get(variant);
+		if (failedAt != null && failedAt >= g.remaining) return false;
+
+		boolean[] proved = new boolean[1];
+		for (Rule r : UnprovedNodeImpl.getRulesThatApply(g.judgment, sub, inputVars)) {
+			Budget.charge();
+			++expansions;
+			Substitution newSub = new Substitution(sub);
+			newSub.compose(r.getSubstitution());
+			List<Goal> premises = new ArrayList<Goal>();
+			for (Judgment j : r.getPreconditions()) {
+				premises.add(new Goal(j, g.remaining-1));
+			}
+			g.rule = r;
+			g.premises = premises;
+			if (solveAll(premises, 0, newSub, s -> {
+				proved[0] = true;
+				if (ground && !solved.containsKey(term)) solved.put(term, g.copy());
+				return k.proceed(s);
+			})) return true;
+		}
+		g.rule = null;
+		g.premises = null;
+		if (!proved[0] && (failedAt == null || failedAt < g.remaining)) {
+			failed.put(variant, g.remaining);
+		}
+		return false;
+	}
+
+	private boolean solveAll(List<Goal> goals, int i, Substitution sub, Continuation k) {
+		if (i == goals.size()) return k.proceed(sub);
+		return solve(goals.get(i), sub, s -> solveAll(goals, i+1, s, k));
+	}
+
+	/**
+	 * Apply the rules found for each goal to the partial proof,
+	 * in the order the partial proof expects.
+	 * @param partial proof with a single unproved goal
+	 * @param root solution for this goal
+	 */
+	private static void rebuild(Proof partial, Goal root) {
+		Map<Judgment,Goal> goals = new IdentityHashMap<Judgment,Goal>();
+		goals.put(root.judgment, root);
+		while (!partial.isCompleteProof()) {
+			ProvedNode parent = partial.getLeftmostUnprovedNodeParent();
+			UnprovedNode leftmost = parent.getLeftmostUnprovedNode();
+			Goal g = goals.get(leftmost.getJudgment());
+			while (g.reused != null) g = g.reused;
+			partial.applyRule(parent, leftmost, g.rule);
+			List<Judgment> preconditions = g.rule.getPreconditions();
+			for (int i=0; i < preconditions.size(); ++i) {
+				goals.put(preconditions.get(i), g.premises.get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package edu.cmu.cs.sasylf.prover;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.cs.sasylf.ast.Derivation;
+import edu.cmu.cs.sasylf.ast.DerivationBySolve;
+import edu.cmu.cs.sasylf.ast.Node;
+import edu.cmu.cs.sasylf.ast.Theorem;
+import edu.cmu.cs.sasylf.term.Application;
+import edu.cmu.cs.sasylf.term.Facade;
+import edu.cmu.cs.sasylf.term.Term;
+import edu.cmu.cs.sasylf.util.CancellationToken;
+import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.SimpleTestSuite;
+import edu.cmu.cs.sasylf.util.Util;
+
+public class UnitTests extends SimpleTestSuite {
+
+	public UnitTests() { }
+
+	private static final String SOURCE =
+			"package prover;\n" +
+			"terminals z s\n" +
+			"syntax\n" +
+			"  n ::= z | s n\n" +
+			"judgment sum: n + n = n\n" +
+			"  --------- sum-z\n" +
+			"  z + n = n\n" +
+			"\n" +
+			"  n1 + n2 = n3\n" +
+			"  ------------------ sum-s\n" +
+			"  (s n1) + n2 = (s n3)\n" +
+			"judgment less: n < n\n" +
+			"  ------- less-one\n" +
+			"  n < s n\n" +
+			"\n" +
+			"  n1 < n2\n" +
+			"  n2 < n3\n" +
+			"  ---------- less-trans\n" +
+			"  n1 < n3\n" +
+			"theorem goal1: exists z < s s z.\n" +
+			"  _: z < s s z by solve\n" +
+			"end theorem\n" +
+			"theorem goal2: forall n exists n < s s s n.\n" +
+			"  _: n < s s s n by solve\n" +
+			"end theorem\n" +
+			"theorem goal3: exists (s s z) + (s z) = (s s s z).\n" +
+			"  _: (s s z) + (s z) = (s s s z) by solve\n" +
+			"end theorem\n";
+
+	private static final int DEPTH = 3;
+
+	/**
+	 * Return the goals of the "by solve" derivations of the source,
+	 * followed by the same goals with their first two arguments swapped
+	 * (so that the "less" goals cannot be proved).
+	 */
+	private List<Pair<edu.cmu.cs.sasylf.ast.Judgment,Term>> goals() {
+		edu.cmu.cs.sasylf.Proof pf = edu.cmu.cs.sasylf.Proof.parseAndCheck(null, "prover.slf", null, new StringReader(SOURCE));
+		List<Node> things = new ArrayList<Node>();
+		pf.getCompilationUnit().collectTopLevel(things);
+		List<Pair<edu.cmu.cs.sasylf.ast.Judgment,Term>> result = new ArrayList<>();
+		for (Node n : things) {
+			if (!(n instanceof Theorem)) continue;
+			for (Derivation d : ((Theorem)n).getDerivations()) {
+				if (!(d instanceof DerivationBySolve)) continue;
+				result.add(Pair.create((edu.cmu.cs.sasylf.ast.Judgment)d.getClause().getType(), d.getElement().asTerm()));
+			}
+		}
+		assertEqual("goals found", 3, result.size());
+		for (int i=0, n=result.size(); i < n; ++i) {
+			Pair<edu.cmu.cs.sasylf.ast.Judgment,Term> p = result.get(i);
+			Application app = (Application)p.second;
+			List<Term> args = new ArrayList<Term>(app.getArguments());
+			Term first = args.get(0);
+			args.set(0, args.get(1));
+			args.set(1, first);
+			result.add(Pair.create(p.first, Facade.App(app.getFunction(), args.toArray(new Term[args.size()]))));
+		}
+		return result;
+	}
+
+	private static String show(Proof p) {
+		if (p == null) return "no proof";
+		StringWriter sw = new StringWriter();
+		p.prettyPrint(new PrintWriter(sw));
+		return sw.toString();
+	}
+
+	private void testParallel(List<Pair<edu.cmu.cs.sasylf.ast.Judgment,Term>> goals) {
+		int failures = 0;
+		for (Pair<edu.cmu.cs.sasylf.ast.Judgment,Term> g : goals) {
+			String expected = show(new Prover().prove(new ProofImpl(g.first, g.second), DEPTH));
+			if (expected.equals(show(null))) ++failures;
+			for (int levels=1; levels <= 3; ++levels) {
+				Proof found = new Prover(levels).prove(new ProofImpl(g.first, g.second), DEPTH);
+				assertEqual("parallel(" + levels + ") " + g.second, expected, show(found));
+			}
+		}
+		assertEqual("goals without proofs", 2, failures);
+	}
+
+	private void testParallelCancelled(List<Pair<edu.cmu.cs.sasylf.ast.Judgment,Term>> goals) {
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		CancellationToken previous = token.install();
+		try {
+			for (Pair<edu.cmu.cs.sasylf.ast.Judgment,Term> g : goals) {
+				for (int levels=1; levels <= 3; ++levels) {
+					boolean cancelled = false;
+					try {
+						new Prover(levels).prove(new ProofImpl(g.first, g.second), DEPTH);
+					} catch (CancellationToken.Cancelled ex) {
+						cancelled = true;
+					}
+					assertTrue("cancelled parallel(" + levels + ") " + g.second, cancelled);
+				}
+			}
+		} finally {
+			CancellationToken.restore(previous);
+		}
+	}
+
+	private void testTabling(List<Pair<edu.cmu.cs.sasylf.ast.Judgment,Term>> goals) {
+		for (Pair<edu.cmu.cs.sasylf.ast.Judgment,Term> g : goals) {
+			for (int bound=0; bound <= DEPTH; ++bound) {
+				Proof expected = new Prover().prove(new ProofImpl(g.first, g.second), bound);
+				Proof found = new TablingProver().prove(new ProofImpl(g.first, g.second), bound);
+				assertEqual("tabling at depth " + bound + ": " + g.second, expected == null, found == null);
+				assertTrue("tabled proof complete", found == null || found.isCompleteProof());
+			}
+			if (!g.second.getFreeVariables().isEmpty()) continue;
+			// a second search of a goal without variables uses the tables only
+			TablingProver tabling = new TablingProver();
+			String first = show(tabling.prove(new ProofImpl(g.first, g.second), DEPTH));
+			int expansions = tabling.getExpansions();
+			assertTrue("expanded " + g.second, expansions > 0);
+			assertEqual("tabled again " + g.second, first, show(tabling.prove(new ProofImpl(g.first, g.second), DEPTH)));
+			assertEqual("tables used for " + g.second, expansions, tabling.getExpansions());
+		}
+	}
+
+	private void testTablingExpansions(List<Pair<edu.cmu.cs.sasylf.ast.Judgment,Term>> goals) {
+		// s s z < z: less-trans gives the same failing subgoals over and over
+		Pair<edu.cmu.cs.sasylf.ast.Judgment,Term> g = goals.get(3);
+		Prover prover = new Prover();
+		TablingProver tabling = new TablingProver();
+		assertTrue("no proof", prover.prove(new ProofImpl(g.first, g.second), DEPTH) == null);
+		assertTrue("no tabled proof", tabling.prove(new ProofImpl(g.first, g.second), DEPTH) == null);
+		assertTrue("fewer expansions: " + tabling.getExpansions() + " < " + prover.getExpansions(),
+				tabling.getExpansions() < prover.getExpansions());
+	}
+
+	private void testSolveDepth() {
+		int saved = Util.SOLVE_DEPTH;
+		try {
+			Util.SOLVE_DEPTH = 0;
+			edu.cmu.cs.sasylf.Proof pf = edu.cmu.cs.sasylf.Proof.parseAndCheck(null, "prover.slf", null, new StringReader(SOURCE));
+			assertEqual("solve depth 0", 3, pf.getErrorCount());
+			Util.SOLVE_DEPTH = DEPTH;
+			pf = edu.cmu.cs.sasylf.Proof.parseAndCheck(null, "prover.slf", null, new StringReader(SOURCE));
+			assertEqual("solve depth " + DEPTH, 0, pf.getErrorCount());
+		} finally {
+			Util.SOLVE_DEPTH = saved;
+		}
+	}
+
+	@Override
+	protected void runTests() {
+		List<Pair<edu.cmu.cs.sasylf.ast.Judgment,Term>> goals = goals();
+		testParallel(goals);
+		testParallelCancelled(goals);
+		testTabling(goals);
+		testTablingExpansions(goals);
+		testSolveDepth();
+	}
+
+	public static void main(String[] args) {
+		new UnitTests().run();
+	}
+
+}
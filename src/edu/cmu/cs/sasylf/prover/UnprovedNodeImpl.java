@@ -9,6 +9,7 @@ import static edu.cmu.cs.sasylf.term.Facade.App;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import edu.cmu.cs.sasylf.ast.ClauseDef;
 import edu.cmu.cs.sasylf.ast.ClauseUse;
@@ -46,11 +47,22 @@ public class UnprovedNodeImpl implements UnprovedNode {
 	 */
 	@Override
 	public List<Rule> getRulesThatApply(Proof proof) {
-		List<Rule> result = new ArrayList<Rule>();
 		ProofImpl proofImpl = (ProofImpl) proof;
+		return getRulesThatApply(judgment, proofImpl.getSubstitution(), proofImpl.getInputVars());
+	}
+
+	/**
+	 * Return instances of the rules that could be used to prove the judgment.
+	 * @param judgment judgment to prove
+	 * @param substitution current substitution of the proof
+	 * @param inputVars variables that the rules must not bind
+	 * @return list of rule instances, in the order the rules were declared
+	 */
+	public static List<Rule> getRulesThatApply(Judgment judgment, Substitution substitution, Set<FreeVar> inputVars) {
+		List<Rule> result = new ArrayList<Rule>();
 
 		// get a substituted term
-		Term derivTerm = judgment.getTerm().substitute(proofImpl.getSubstitution());
+		Term derivTerm = judgment.getTerm().substitute(substitution);
 		edu.cmu.cs.sasylf.ast.Judgment judgmentType = judgment.getJudgmentType();
 
 		// try all the rules of the appropriate type, in turn
@@ -74,7 +86,7 @@ public class UnprovedNodeImpl implements UnprovedNode {
 			Substitution sub = null;
 			try {
 				sub = appliedTerm.unify(ruleTerm);
-				if (! sub.avoid(proofImpl.getInputVars()))
+				if (! sub.avoid(inputVars))
 					continue;
 			} catch (UnificationFailed e) {
 				continue; // try the next possible rule
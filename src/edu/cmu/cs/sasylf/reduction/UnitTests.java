@@ -1,5 +1,12 @@
 package edu.cmu.cs.sasylf.reduction;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import edu.cmu.cs.sasylf.util.PermutationIterator;
 import edu.cmu.cs.sasylf.util.SimpleTestSuite;
 
 public class UnitTests extends SimpleTestSuite {
@@ -135,9 +142,52 @@ public class UnitTests extends SimpleTestSuite {
 		
 }
 	
+	// the result of trying every permutation, as Unordered used to do
+	private static Reduction permutationCorrespondence(Reduction[][] pairs) {
+		int n = pairs.length;
+		List<Integer> indices = new ArrayList<Integer>();
+		for (int i=0; i < n; ++i) indices.add(i);
+		Reduction result = Reduction.NONE;
+		Iterator<List<Integer>> it = new PermutationIterator<Integer>(indices);
+		tryPermutation: while (it.hasNext()) {
+			List<Integer> permuted = it.next();
+			boolean reduces = false;
+			for (int i=0; i < n; ++i) {
+				switch (pairs[permuted.get(i)][i]) {
+				case NONE: continue tryPermutation;
+				case LESS: reduces = true; break;
+				default:
+				}
+			}
+			if (reduces) return Reduction.LESS;
+			result = Reduction.EQUAL;
+		}
+		return result;
+	}
+	
+	private void doCorrespondenceTests() {
+		Random r = new Random(36);
+		Reduction[] values = Reduction.values();
+		for (int n=1; n <= 5; ++n) {
+			for (int k=0; k < 500; ++k) {
+				Reduction[][] pairs = new Reduction[n][n];
+				// bias toward NONE so that all three answers are common
+				for (int i=0; i < n; ++i) {
+					for (int j=0; j < n; ++j) {
+						pairs[i][j] = r.nextInt(3) == 0 ? values[r.nextInt(values.length)] : Reduction.NONE;
+					}
+				}
+				Reduction expected = permutationCorrespondence(pairs);
+				Reduction actual = Unordered.bestCorrespondence(pairs);
+				assertEqual("correspondence for " + Arrays.deepToString(pairs), expected, actual);
+			}
+		}
+	}
+	
 	@Override
 	protected void runTests() {
 		doMatchTests();
+		doCorrespondenceTests();
 	}
 
 	public static void main(String[] args) {
@@ -1,8 +1,8 @@
 package edu.cmu.cs.sasylf.reduction;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 
 import edu.cmu.cs.sasylf.ast.Context;
@@ -10,7 +10,6 @@ import edu.cmu.cs.sasylf.ast.Fact;
 import edu.cmu.cs.sasylf.ast.Node;
 import edu.cmu.cs.sasylf.util.ErrorHandler;
 import edu.cmu.cs.sasylf.util.Errors;
-import edu.cmu.cs.sasylf.util.PermutationIterator;
 
 /**
  * Induction on multiple items.
@@ -113,24 +112,13 @@ public class Unordered extends InductionSchema {
 		// special case: 0
 		if (n == 0) return Reduction.EQUAL;
 
-		Reduction result = Reduction.NONE;
-
-		Iterator<List<InductionSchema>> it = new PermutationIterator<InductionSchema>(schemas);
-		tryPermutation: while (it.hasNext()) {
-			List<InductionSchema> permuted = it.next();
-			boolean reduces = false;
-			for (int i=0; i < n; ++i) {
-				switch (permuted.get(i).reduces(ctx, other.get(i), args, null)) {
-				case NONE: continue tryPermutation;
-				case LESS:
-					reduces = true;
-				case EQUAL:
-				default:
-				}
+		Reduction[][] pairs = new Reduction[n][n];
+		for (int i=0; i < n; ++i) {
+			for (int j=0; j < n; ++j) {
+				pairs[i][j] = schemas.get(i).reduces(ctx, other.get(j), args, null);
 			}
-			if (reduces) return Reduction.LESS;
-			result = Reduction.EQUAL;
 		}
+		Reduction result = bestCorrespondence(pairs);
 		if (result == Reduction.NONE && errorPoint != null) {
 			// TODO: find out which elements don't match anything
 			ErrorHandler.recoverableError(Errors.INDUCTION_PERMUTATION, errorPoint);
@@ -138,6 +126,69 @@ public class Unordered extends InductionSchema {
 		return result;
 	}
 
+	/**
+	 * Determine the best reduction over all ways to put the parts in correspondence
+	 * (a permutation), given the reduction for each pair of parts.
+	 * The result is the same as trying every permutation, but
+	 * we treat it as bipartite matching rather than taking factorial time:
+	 * there is an equal-or-better correspondence if there is a perfect matching
+	 * using pairs that are not {@link Reduction#NONE}, and a reducing one if some
+	 * perfect matching includes a {@link Reduction#LESS} pair.
+	 * @param pairs square table of the reduction of each part i to each part j
+	 * @return LESS if some permutation has all parts reducing or equal, and at least one reducing;
+	 * otherwise EQUAL if some permutation has all parts equal or reducing; otherwise NONE.
+	 */
+	static Reduction bestCorrespondence(Reduction[][] pairs) {
+		int n = pairs.length;
+		int[] matchOf = new int[n]; // for each j, the i matched with it, or -1
+		Arrays.fill(matchOf, -1);
+		for (int i=0; i < n; ++i) {
+			if (!augment(pairs, i, matchOf, new boolean[n])) return Reduction.NONE;
+		}
+		int[] partnerOf = new int[n]; // inverse of matchOf
+		for (int j=0; j < n; ++j) {
+			if (pairs[matchOf[j]][j] == Reduction.LESS) return Reduction.LESS;
+			partnerOf[matchOf[j]] = j;
+		}
+		// Is there another perfect matching using some reducing pair (i,j)?
+		// Force the pair, and then see if the partners left without
+		// a match can be matched with each other by an augmenting path
+		// avoiding i and j.
+		for (int i=0; i < n; ++i) {
+			for (int j=0; j < n; ++j) {
+				if (pairs[i][j] != Reduction.LESS) continue;
+				int[] forced = matchOf.clone();
+				int unmatched = matchOf[j];
+				forced[partnerOf[i]] = -1;
+				forced[j] = i;
+				boolean[] visited = new boolean[n];
+				visited[j] = true;
+				if (augment(pairs, unmatched, forced, visited)) return Reduction.LESS;
+			}
+		}
+		return Reduction.EQUAL;
+	}
+
+	/**
+	 * Find an augmenting path from i (using Kuhn's algorithm) and if so, update the matching.
+	 * @param pairs table of reductions: NONE means no edge
+	 * @param i part to match
+	 * @param matchOf current matching from j to i, or -1 if j is unmatched
+	 * @param visited which j have already been tried
+	 * @return whether i could be matched
+	 */
+	private static boolean augment(Reduction[][] pairs, int i, int[] matchOf, boolean[] visited) {
+		for (int j=0; j < matchOf.length; ++j) {
+			if (visited[j] || pairs[i][j] == Reduction.NONE) continue;
+			visited[j] = true;
+			if (matchOf[j] == -1 || augment(pairs, matchOf[j], matchOf, visited)) {
+				matchOf[j] = i;
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public String describe() {
 		StringBuilder sb = null;
@@ -1,7 +1,5 @@
 package edu.cmu.cs.sasylf.term;
 
-import static edu.cmu.cs.sasylf.term.Facade.Abs;
-import static edu.cmu.cs.sasylf.term.Facade.pair;
 import static edu.cmu.cs.sasylf.util.Util.verify;
 
 import java.util.ArrayList;
@@ -16,6 +14,7 @@ public class Abstraction extends Term {
 	public Term varType;
 	public String varName;
 	private Term body;
+	private int hash;
 
 	public Term getArgType() {
 		return varType;
@@ -59,6 +58,7 @@ public class Abstraction extends Term {
 
 	private Abstraction(String name, Term type, Term b) {
 		varName = name; varType = type; body =b;
+		hash = b.hashCode();
 		// verify that no eta-reduction is possible
 		if (b instanceof Application && !((Application)b).isFullyAppliedFreeVar()) {
 			Application bodyApp = (Application) body;
@@ -77,18 +77,12 @@ public class Abstraction extends Term {
 
 	@Override
 	Term substitute(Substitution s, int varIncrAmount) {
-		Term newBody = body.substitute(s, varIncrAmount+1);
-		Term newType = varType.substitute(s, varIncrAmount);
-		if (newBody == body && newType == varType)
-			return this;
-		else
-			return make(varName, newType, newBody);
+		return Traversal.substitute(this, s, varIncrAmount);
 	}
 
 	@Override
 	void getFreeVariables(Set<FreeVar> s) {
-		body.getFreeVariables(s);
-		varType.getFreeVariables(s);
+		Traversal.getFreeVariables(this, s);
 	}
 	
 	@Override
@@ -166,26 +160,21 @@ public class Abstraction extends Term {
 
 	@Override
 	public Term incrFreeDeBruijn(int nested, int amount) {
-		Term newBody = body.incrFreeDeBruijn(nested+1, amount);
-		Term newType = varType.incrFreeDeBruijn(nested, amount);
-		if (newBody == body && newType == varType)
-			return this;
-		else
-			return make(varName, newType, newBody);
+		return Traversal.incrFreeDeBruijn(this, nested, amount);
 	}
 
 	@Override
 	public boolean hasBoundVar(int i) {
-		return body.hasBoundVar(i+1) || varType.hasBoundVar(i);
+		return Traversal.hasBoundVar(this, i, false);
 	}
 
 	@Override
 	public boolean hasBoundVarAbove(int i) {
-		return body.hasBoundVarAbove(i+1) || varType.hasBoundVarAbove(i);
+		return Traversal.hasBoundVar(this, i, true);
 	}
 
 	@Override
-	public int hashCode() { return body.hashCode(); }
+	public int hashCode() { return hash; }
 
 	@Override
 	public boolean typeEquals(Term otherType) {
@@ -201,13 +190,12 @@ public class Abstraction extends Term {
 	public boolean equals(Object obj) {
 		if (this == obj) return true;
 		if (!(obj instanceof Abstraction)) return false;
-		Abstraction a = (Abstraction) obj;
-		return body.equals(a.body) && varType.typeEquals(a.varType);
+		return Traversal.equal(this, (Abstraction) obj);
 	}
 
 	@Override
 	public String toString() {
-		return "fn " + varName + ":" + varType + " => " + body;
+		return Traversal.toString(this);
 	}
 
 	@Override
@@ -217,14 +205,12 @@ public class Abstraction extends Term {
 
 	@Override
 	public Term getType(List<Pair<String, Term>> varBindings) {
-		List<Pair<String, Term>> newBindings = new ArrayList<Pair<String, Term>>(varBindings);
-		newBindings.add(pair(varName, varType));
-		Term bodyType = body.getType(newBindings);
-		return Abs(varName, varType, bodyType);
+		return Traversal.getType(this, varBindings);
 	}
 
 	public void setBody(Term body) {
 		this.body = body;
+		hash = body.hashCode();
 	}
 
 	public Term getBody() {
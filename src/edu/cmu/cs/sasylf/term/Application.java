@@ -28,6 +28,11 @@ public class Application extends Term {
 			a = Collections.unmodifiableList(newA);
 		}
 		arguments = Collections.unmodifiableList(a);
+		int h = 1;
+		for (Term arg : arguments) {
+			h = 31*h + arg.hashCode();
+		}
+		hash = f.hashCode() + h; // as if f.hashCode() + arguments.hashCode()
 		getType(new ArrayList<Pair<String, Term>>()); // make sure the types are OK
 		/*if (f instanceof FreeVar && ((FreeVar)f).getType().countLambdas() > 0) {
 			verify(((FreeVar)f).getType().countLambdas() == a.size(), "applied freevar " + f + " with wrong number of arguments");
@@ -42,27 +47,14 @@ public class Application extends Term {
 
 	private final Atom function;
 	private final List<? extends Term> arguments;
+	private final int hash;
 
 	public Atom getFunction() { return function; }
 	public List<? extends Term> getArguments() { return arguments; }
 
 	@Override
 	Term substitute(Substitution s, int varIncrAmount) {
-		Term newF = function.substitute(s, varIncrAmount);
-		List<Term> newArgs = new ArrayList<Term>();
-		boolean isNew = false;
-		for (Term a : arguments) {
-			Term t = a.substitute(s, varIncrAmount);
-			newArgs.add(t);
-			if (t != a)
-				isNew = true;
-		}
-
-		if (isNew || function != newF) {
-			return newF.apply(newArgs, 0);
-		} else {
-			return this;
-		}
+		return Traversal.substitute(this, s, varIncrAmount);
 	}
 
 	@Override
@@ -82,48 +74,22 @@ public class Application extends Term {
 
 	@Override
 	public Term incrFreeDeBruijn(int nested, int amount) {
-		// note: functions are constants or FreeVars and so can't be affected
-
-		List<Term> newArgs = new ArrayList<Term>();
-		boolean isNew = false;
-		for (Term a : arguments) {
-			Term t = a.incrFreeDeBruijn(nested, amount);
-			newArgs.add(t);
-			if (t != a)
-				isNew = true;
-		}
-
-		if (isNew) {
-			return new Application(function, newArgs);
-		} else {
-			return this;
-		}
+		return Traversal.incrFreeDeBruijn(this, nested, amount);
 	}
 
 	@Override
 	public boolean hasBoundVar(int i) {
-		boolean result = function.hasBoundVar(i);
-		for (Term a : arguments) {
-			result = result || a.hasBoundVar(i);
-		}
-		return result;
+		return Traversal.hasBoundVar(this, i, false);
 	}
 
 	@Override
 	public boolean hasBoundVarAbove(int i) {
-		boolean result = function.hasBoundVarAbove(i);
-		for (Term a : arguments) {
-			result = result || a.hasBoundVarAbove(i);
-		}
-		return result;
+		return Traversal.hasBoundVar(this, i, true);
 	}
 
 	@Override
 	void getFreeVariables(Set<FreeVar> s) {
-		function.getFreeVariables(s);
-		for (Term a : arguments) {
-			a.getFreeVariables(s);
-		}
+		Traversal.getFreeVariables(this, s);
 	}
 	
 	@Override
@@ -612,7 +578,7 @@ public class Application extends Term {
 	}
 
 	@Override
-	public int hashCode() { return function.hashCode() + arguments.hashCode(); }
+	public int hashCode() { return hash; }
 
 	@Override
 	public boolean typeEquals(Term otherType) {
@@ -635,30 +601,16 @@ public class Application extends Term {
 		if (this == obj) return true;
 		if (!(obj instanceof Application)) return false;
 		if (obj.getClass() != this.getClass()) return false;
-		Application a = (Application) obj;
-		return function.equals(a.function) && arguments.equals(a.arguments);
+		return Traversal.equal(this, (Application) obj);
 	}
 
 	@Override
 	public String toString() {
-		return "(" + function + " " + arguments + ")";
+		return Traversal.toString(this);
 	}
 	@Override
 	public Term getType(List<Pair<String, Term>> varBindings) {
-		Term funType = function.getType(varBindings);
-		for (Term t : arguments) {
-			if (funType == Constant.UNKNOWN_TYPE) break;
-			if (!(funType instanceof Abstraction))
-				verify(false, "applied " + arguments.size() + " arguments to function " + function + " of type " + function.getType(varBindings) + " with " + funType);
-			Abstraction funTypeAbs = (Abstraction) funType;
-			Term argType = t.getType(varBindings);
-			Term absType = funTypeAbs.varType;
-			if (!argType.typeEquals(absType) && !function.toString().contains("TERM")) {
-				verify(false, "types do not match when applying " + argType + " to arg type "+ absType + " in function " + function);
-			}
-			funType = funTypeAbs.getBody();
-		}
-		return funType;
+		return Traversal.getType(this, varBindings);
 	}
 
 	/** Produces a substitution that will bind an outer bound variable in all free variables.
@@ -9,8 +9,7 @@ import java.util.Queue;
 import java.util.Set;
 
 import edu.cmu.cs.sasylf.util.Pair;
-import edu.cmu.cs.sasylf.util.Relation;
-import edu.cmu.cs.sasylf.util.TransitiveRelation;
+import edu.cmu.cs.sasylf.util.TransitiveClosure;
 import edu.cmu.cs.sasylf.util.Util;
 
 
@@ -43,6 +42,25 @@ public class FreeVar extends Atom {
 		return result;
 	}
 
+	/**
+	 * Return the stamp the next fresh variable made in this thread will have.
+	 * @return next fresh stamp
+	 */
+	public static int getFreshStamp() {
+		return freshStamp.get();
+	}
+
+	/**
+	 * Ensure that fresh variables made in this thread from now on
+	 * have stamps no less than the given one.  When work started in one thread
+	 * is continued in another, this keeps the variables made by the second thread
+	 * distinct from those made by the first.
+	 * @param stamp least stamp to use
+	 */
+	public static void advanceFreshStamp(int stamp) {
+		if (freshStamp.get() < stamp) freshStamp.set(stamp);
+	}
+
 	public static FreeVar fresh(String s, Term t) {
 		FreeVar newV = new FreeVar(s, t, getFreshStampInc());
 		return newV;
@@ -213,22 +231,35 @@ public class FreeVar extends Atom {
 		getAppearsIn().put(term1, term2);
 	}
 
-	public static Relation<Term,Term> getAppearsIn() {
+	public static TransitiveClosure<Term> getAppearsIn() {
 		return appearsIn.get();
 	}
+	/**
+	 * Use the given appears-in relation in this thread, for example the relation
+	 * of another thread that is checking the same module.  The relation
+	 * must not be changed while it is shared.
+	 * @param rel relation to use, must not be null
+	 * @return the relation used before, to be passed back to this method afterwards
+	 */
+	public static TransitiveClosure<Term> useAppearsIn(TransitiveClosure<Term> rel) {
+		TransitiveClosure<Term> previous = appearsIn.get();
+		appearsIn.set(rel);
+		return previous;
+	}
+
 	private static void resetAppearsIn() {
 		FreeVar.appearsIn.remove();
 	}
 
-	private static ThreadLocal<Relation<Term,Term>> appearsIn = new ThreadLocal<Relation<Term,Term>>() {
+	private static ThreadLocal<TransitiveClosure<Term>> appearsIn = new ThreadLocal<TransitiveClosure<Term>>() {
 		@Override
-		protected Relation<Term, Term> initialValue() {
-			return new TransitiveRelation<Term>(false);
+		protected TransitiveClosure<Term> initialValue() {
+			return new TransitiveClosure<Term>();
 		}    
 	};
 
 	public static void printSubordination() {
-		Relation<Term,Term> rel = appearsIn.get();
+		TransitiveClosure<Term> rel = appearsIn.get();
 		for (Pair<Term,Term> p : rel) {
 			System.out.println(p.first + " < " + p.second);
 		}
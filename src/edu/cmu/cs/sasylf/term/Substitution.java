@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import edu.cmu.cs.sasylf.util.Invariants;
 import edu.cmu.cs.sasylf.util.Util;
 
 /**
@@ -22,6 +23,26 @@ public class Substitution {
 	
 	private Map<FreeVar, Term> varMap = new HashMap<FreeVar, Term>();
 	private Map<FreeVar, Term> unmodifiableMap;
+	// for each variable, the variables whose bindings may use it
+	// (a superset: bindings removed or rewritten may leave stale entries);
+	// null if not computed (yet or since the bindings were rewritten wholesale)
+	private Map<FreeVar, Set<FreeVar>> users;
+
+	private Map<FreeVar, Set<FreeVar>> getUsers() {
+		if (users == null) {
+			users = new HashMap<FreeVar, Set<FreeVar>>();
+			for (Map.Entry<FreeVar, Term> e : varMap.entrySet()) {
+				addUses(e.getKey(), e.getValue().getFreeVariables());
+			}
+		}
+		return users;
+	}
+
+	private void addUses(FreeVar v, Set<FreeVar> used) {
+		for (FreeVar u : used) {
+			users.computeIfAbsent(u, k -> new HashSet<FreeVar>()).add(v);
+		}
+	}
 	
 	private boolean wellFormed() {
 		if (varMap == null) {
@@ -39,9 +60,54 @@ public class Substitution {
 		}
 		return true;
 	}
+
+	/**
+	 * Check that the bindings of the given variables do not use
+	 * variables in the domain, and that no binding uses the given variables.
+	 * This is the whole invariant, provided that it held for
+	 * the other bindings before these variables were bound.
+	 * Only the bindings of the given variables, and those that the
+	 * index of users says may use them, are looked at.
+	 * @param changed variables whose bindings were just added or changed
+	 * @return true (or else an assertion error is reported)
+	 */
+	private boolean wellFormed(Set<FreeVar> changed) {
+		Set<FreeVar> freeSet = new HashSet<>();
+		for (FreeVar v : changed) {
+			Term t = varMap.get(v);
+			if (t == null) continue;
+			t.getFreeVariables(freeSet);
+			freeSet.retainAll(varMap.keySet());
+			if (!freeSet.isEmpty()) return Util.report("badly formed substitution: both maps " + freeSet + " and uses in binding " + v + " -> " + t);
+		}
+		Map<FreeVar, Set<FreeVar>> index = getUsers();
+		for (FreeVar v : changed) {
+			if (!varMap.containsKey(v)) continue;
+			for (FreeVar u : index.getOrDefault(v, Collections.<FreeVar>emptySet())) {
+				Term t = varMap.get(u);
+				if (t == null) continue;
+				t.getFreeVariables(freeSet);
+				if (freeSet.contains(v)) return Util.report("badly formed substitution: newly bound " + v + " still used in binding " + u + " -> " + t);
+				freeSet.clear();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check the invariant as thoroughly as the {@link Invariants} level asks.
+	 * @param changed variables whose bindings were just added or changed,
+	 * or null if the change cannot have broken the invariant by itself
+	 * @return true (or else an assertion error is reported)
+	 */
+	boolean checkInvariant(Set<FreeVar> changed) {
+		if (Invariants.checkAll()) return wellFormed();
+		if (changed != null && Invariants.checkChanged()) return wellFormed(changed);
+		return true;
+	}
 	
 	public Substitution() { 
-		assert wellFormed() : "Invariant failed in constructor";
+		assert checkInvariant(null) : "Invariant failed in constructor";
 	}
 
 	/** var may not be free in term
@@ -58,10 +124,20 @@ public class Substitution {
 		}
 	}
 
+	/**
+	 * Create a substitution with exactly the given bindings,
+	 * without establishing or checking the invariant.
+	 * Used to test the checks of the invariant.
+	 * @param bindings bindings to use, must not be null
+	 */
+	Substitution(Map<FreeVar,Term> bindings) {
+		varMap.putAll(bindings);
+	}
+
 	/** Copy constructor */
 	public Substitution(Substitution other) {
 		varMap.putAll(other.varMap);
-		assert wellFormed() : "Invariant failed in copy constructor";
+		assert checkInvariant(null) : "Invariant failed in copy constructor";
 	}
 
 	/**
@@ -114,7 +190,7 @@ public class Substitution {
 			}
 		}
 
-		assert wellFormed() : "Invariant broken in selecUnavoidable";
+		assert checkInvariant(null) : "Invariant broken in selecUnavoidable";
 		return result;
 	}
 
@@ -154,24 +230,32 @@ public class Substitution {
 		if(freeVars.contains(var))
 			throw new EOCUnificationFailed("Extended Occurs Check failed: " + var + " is free in " + tSubstituted, var);
 
-		// perform substitution on the existing variables
+		// perform substitution on the existing variables that use var
 		if (!varMap.isEmpty()) {
-			Substitution newSub = new Substitution(tSubstituted, var);
-			for (FreeVar v : varMap.keySet()) {
-				varMap.put(v, varMap.get(v).substitute(newSub));
+			Set<FreeVar> uses = getUsers().remove(var);
+			if (uses != null) {
+				Substitution newSub = new Substitution(tSubstituted, var);
+				for (FreeVar v : uses) {
+					Term old = varMap.get(v);
+					if (old == null) continue;
+					varMap.put(v, old.substitute(newSub));
+					addUses(v, freeVars);
+				}
 			}
 		}
 		if (varMap.containsKey(var)) {
 			Term oldTerm = varMap.get(var);
 			Substitution unifier = oldTerm.unify(tSubstituted);
 			tSubstituted = tSubstituted.substitute(unifier);
-			assert wellFormed() : "Invariant fails on recursive call to compose";
+			assert checkInvariant(null) : "Invariant fails on recursive call to compose";
 			compose(unifier);
+			freeVars = tSubstituted.getFreeVariables();
 		}
 
 		// add the new entry to the map
 		varMap.put(var, tSubstituted);
-		assert wellFormed() : "Invariant failed at end of 'add'";
+		if (users != null) addUses(var, freeVars);
+		assert checkInvariant(Collections.singleton(var)) : "Invariant failed at end of 'add'";
 	}
 
 	/**
@@ -182,17 +266,17 @@ public class Substitution {
 	 */
 	public Term remove(FreeVar v) {
 		Term result = varMap.remove(v);
-		assert wellFormed() : "Invariant broken in remove";
+		assert checkInvariant(null) : "Invariant broken in remove";
 		return result;
 	}
 
 	public void removeAll(Collection<FreeVar> col) {
-		assert wellFormed() : "Invariant broken in removeAll";
+		assert checkInvariant(null) : "Invariant broken in removeAll";
 		varMap.keySet().removeAll(col);
 	}
 	
 	public void retainAll(Collection<FreeVar> col) {
-		assert wellFormed() : "Invariant broken in retainAll";
+		assert checkInvariant(null) : "Invariant broken in retainAll";
 		varMap.keySet().retainAll(col);
 	}
 	
@@ -291,6 +375,7 @@ public class Substitution {
 		
 		checkComposition(other,true);
 		
+		users = null;
 		for (Map.Entry<FreeVar,Term> e : varMap.entrySet()) {
 			e.setValue(e.getValue().substitute(other));
 		}
@@ -301,7 +386,7 @@ public class Substitution {
 			}
 		}
 
-		assert wellFormed() : "composition broken invariant";
+		assert checkInvariant(other.varMap.keySet()) : "composition broken invariant";
 	}
 	
 	/**
@@ -322,13 +407,13 @@ public class Substitution {
 		for (FreeVar v: varMap.keySet()) {
 			varMap.put(v, varMap.get(v).incrFreeDeBruijn(amount));
 		}
-		assert wellFormed() : "Invariant broken in incrFreeDeBruijn";
+		assert checkInvariant(null) : "Invariant broken in incrFreeDeBruijn";
 	}
 	
 	public Map<FreeVar, Term> getMap() {
 		if (unmodifiableMap == null)
 			unmodifiableMap = Collections.unmodifiableMap(varMap);
-		assert wellFormed() : "invariant broken in getMap()";
+		assert checkInvariant(null) : "invariant broken in getMap()";
 		return unmodifiableMap;
 	}
 
@@ -7,13 +7,18 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 
+import edu.cmu.cs.sasylf.util.Budget;
+import edu.cmu.cs.sasylf.util.CancellationToken;
+import edu.cmu.cs.sasylf.util.Events;
 import edu.cmu.cs.sasylf.util.Pair;
+import edu.cmu.cs.sasylf.util.Profile;
 import edu.cmu.cs.sasylf.util.Util;
 
 /**
@@ -98,7 +103,7 @@ public abstract class Term {
 
 	private final Substitution unifyAllowingBVs(Term t) {
 		Substitution current = new Substitution();
-		Queue<Pair<Term,Term>> worklist = new PriorityQueue<Pair<Term,Term>>(11, new PairComparator());
+		Queue<Pair<Term,Term>> worklist = new Worklist();
 		worklist.add(makePair(this, t));
 		debugCount = 0;
 		unifyHelper(current, worklist);
@@ -109,6 +114,25 @@ public abstract class Term {
 	/** Sets up worklist and calls unifyHelper
 	 */
 	public final Substitution unify(Term t) {
+		Profile.count(Profile.Counter.UNIFY);
+		Events.Unification event = new Events.Unification();
+		event.begin();
+		Substitution result = null;
+		try {
+			result = unifyChecked(t);
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.term1 = Events.abbreviate(this);
+				event.term2 = Events.abbreviate(t);
+				event.variables = result == null ? -1 : result.getDomain().size();
+				event.commit();
+			}
+		}
+		return result;
+	}
+
+	private Substitution unifyChecked(Term t) {
 		Substitution current;
 		try {
 			current = unifyAllowingBVs(t);
@@ -175,6 +199,7 @@ public abstract class Term {
 			}
 		}
 
+		if (Util.PROFILE) Profile.substitution(current.getDomain().size());
 		return current;
 	}
 
@@ -182,7 +207,46 @@ public abstract class Term {
 
 	/** picks first pair and calls unifyCase
 	 */
+	/**
+	 * The pairs of terms still to unify, which notes whether
+	 * {@link Term#unifyHelper(Substitution, Queue)} is working through them.
+	 */
+	private static class Worklist extends PriorityQueue<Pair<Term,Term>> {
+		private static final long serialVersionUID = 1L;
+		boolean running;
+
+		Worklist() {
+			super(11, new PairComparator());
+		}
+	}
+
+	/**
+	 * Unify the pairs on the worklist.  Each case of unification calls this
+	 * as its last action, to continue.  Rather than recursing (which would
+	 * overflow the stack on large terms), such a call returns at once,
+	 * and the first call for the worklist carries on in a loop.
+	 */
 	static final void unifyHelper(Substitution current, Queue<Pair<Term,Term>> worklist) {
+		if (!(worklist instanceof Worklist)) {
+			unifyStep(current, worklist);
+			return;
+		}
+		Worklist w = (Worklist)worklist;
+		if (w.running) return;
+		w.running = true;
+		try {
+			while (!w.isEmpty()) {
+				unifyStep(current, w);
+			}
+		} finally {
+			w.running = false;
+		}
+	}
+
+	private static void unifyStep(Substitution current, Queue<Pair<Term,Term>> worklist) {
+		Budget.charge();
+		CancellationToken.checkCancelled();
+		Profile.count(Profile.Counter.PAIRS);
 		if (debugCount++ == 30)
 			debug2("in loop");
 		Pair<Term,Term> p = worklist.poll();
@@ -192,7 +256,9 @@ public abstract class Term {
 				debug("\ttypes were ", p.first.getType(new ArrayList<Pair<String,Term>>()), " and ", p.second.getType(new ArrayList<Pair<String,Term>>()));
 				throw new UnificationFailed("unifying things whose types don't match");
 			}
-			debug("subtask: unify ", p.first.substitute(current), " with ", p.second.substitute(current));
+			if (Util.DEBUG) {
+				debug("subtask: unify ", p.first.substitute(current), " with ", p.second.substitute(current));
+			}
 			debug("    raw ", p.first, " with ", p.second);
 			debug("    substitution: ", current);
 			debug("    worklist: ", worklist);
@@ -513,6 +579,25 @@ public abstract class Term {
 	 */
 	void getFreeVariables(Set<FreeVar> s) {}
 
+	/**
+	 * Return a variant of this term in which the free variables are renamed
+	 * (in order of first occurrence) to standard names, so that terms that
+	 * differ only in the names of their free variables have equal variants.
+	 * The variants should only be used as keys, e.g., in a table.
+	 * @return term with standard free variables, this if it has no free variables
+	 */
+	public final Term canonicalizeFreeVariables() {
+		Set<FreeVar> vars = new LinkedHashSet<FreeVar>();
+		getFreeVariables(vars);
+		if (vars.isEmpty()) return this;
+		Substitution sub = new Substitution();
+		int i = 0;
+		for (FreeVar v : vars) {
+			sub.add(v, new FreeVar("?" + i++, v.getType(), 0));
+		}
+		return substitute(sub);
+	}
+
 	/** returns the number of enclosing Abstractions in the term */
 	public int countLambdas() {
 		return 0;
@@ -0,0 +1,415 @@
+package edu.cmu.cs.sasylf.term;
+
+import static edu.cmu.cs.sasylf.term.Facade.Abs;
+import static edu.cmu.cs.sasylf.term.Facade.pair;
+import static edu.cmu.cs.sasylf.util.Util.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import edu.cmu.cs.sasylf.util.Pair;
+
+/**
+ * Traversals of terms that keep their own stack rather than recursing,
+ * so that they work on terms of any depth.  Long lists and large numerals
+ * are deeply nested applications, and long contexts are deeply nested
+ * abstractions: recursing over these can overflow the Java stack.
+ * Only applications and abstractions have subterms; the atoms at the leaves
+ * are handled by calling their own methods.
+ */
+final class Traversal {
+	private Traversal() { }
+
+	/**
+	 * A stack of terms, each with the number of abstractions it is inside
+	 * (or some other number that changes going into an abstraction).
+	 */
+	private static final class Stack {
+		private Term[] terms = new Term[16];
+		private int[] binders = new int[16];
+		private int size;
+
+		void push(Term t, int b) {
+			if (size == terms.length) {
+				terms = Arrays.copyOf(terms, size*2);
+				binders = Arrays.copyOf(binders, size*2);
+			}
+			terms[size] = t;
+			binders[size++] = b;
+		}
+
+		boolean isEmpty() { return size == 0; }
+
+		/** Return the number pushed with the top term. */
+		int binders() { return binders[size-1]; }
+
+		Term pop() {
+			Term t = terms[--size];
+			terms[size] = null;
+			return t;
+		}
+
+		/** Push the subterms of an application or abstraction, so that they pop in order. */
+		void pushSubterms(Term t, int b) {
+			if (t instanceof Application) {
+				Application a = (Application)t;
+				List<? extends Term> args = a.getArguments();
+				for (int i=args.size()-1; i >= 0; --i) {
+					push(args.get(i), b);
+				}
+				push(a.getFunction(), b);
+			} else {
+				Abstraction a = (Abstraction)t;
+				push(a.varType, b);
+				push(a.getBody(), b+1);
+			}
+		}
+	}
+
+	private static boolean isCompound(Term t) {
+		return t instanceof Application || t instanceof Abstraction;
+	}
+
+	/**
+	 * Add the free variables of a term to a set, in order of first occurrence.
+	 * @see Term#getFreeVariables(Set)
+	 */
+	static void getFreeVariables(Term root, Set<FreeVar> s) {
+		Stack stack = new Stack();
+		stack.push(root, 0);
+		while (!stack.isEmpty()) {
+			Term t = stack.pop();
+			if (isCompound(t)) stack.pushSubterms(t, 0);
+			else t.getFreeVariables(s);
+		}
+	}
+
+	/**
+	 * Return whether a term uses the bound variable with the given index,
+	 * or (if <code>above</code> is true) any bound variable with a larger index.
+	 * @see Term#hasBoundVar(int)
+	 * @see Term#hasBoundVarAbove(int)
+	 */
+	static boolean hasBoundVar(Term root, int index, boolean above) {
+		Stack stack = new Stack();
+		stack.push(root, index);
+		while (!stack.isEmpty()) {
+			int i = stack.binders();
+			Term t = stack.pop();
+			if (isCompound(t)) stack.pushSubterms(t, i);
+			else if (above ? t.hasBoundVarAbove(i) : t.hasBoundVar(i)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return whether two terms are equal.  Applications and abstractions
+	 * cache their hash codes, which are compared first.
+	 * @see Term#equals(Object)
+	 */
+	static boolean equal(Term t1, Term t2) {
+		List<Term> stack = new ArrayList<Term>();
+		stack.add(t1);
+		stack.add(t2);
+		while (!stack.isEmpty()) {
+			Term b = stack.remove(stack.size()-1);
+			Term a = stack.remove(stack.size()-1);
+			if (a == b) continue;
+			if (a instanceof Application) {
+				if (!(b instanceof Application) || a.hashCode() != b.hashCode()) return false;
+				Application x = (Application)a, y = (Application)b;
+				if (!x.getFunction().equals(y.getFunction())) return false;
+				List<? extends Term> xs = x.getArguments(), ys = y.getArguments();
+				if (xs.size() != ys.size()) return false;
+				for (int i=xs.size()-1; i >= 0; --i) {
+					stack.add(xs.get(i));
+					stack.add(ys.get(i));
+				}
+			} else if (a instanceof Abstraction) {
+				if (!(b instanceof Abstraction) || a.hashCode() != b.hashCode()) return false;
+				Abstraction x = (Abstraction)a, y = (Abstraction)b;
+				if (!x.varType.typeEquals(y.varType)) return false;
+				stack.add(x.getBody());
+				stack.add(y.getBody());
+			} else if (!a.equals(b)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Print a term in the same form as {@link Application#toString()}
+	 * and {@link Abstraction#toString()}.
+	 */
+	static String toString(Term root) {
+		StringBuilder sb = new StringBuilder();
+		// terms still to print, and text between them
+		List<Object> stack = new ArrayList<Object>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			Object o = stack.remove(stack.size()-1);
+			if (o instanceof Application) {
+				Application a = (Application)o;
+				List<? extends Term> args = a.getArguments();
+				sb.append('(');
+				stack.add("])");
+				for (int i=args.size()-1; i >= 0; --i) {
+					stack.add(args.get(i));
+					if (i > 0) stack.add(", ");
+				}
+				stack.add(" [");
+				stack.add(a.getFunction());
+			} else if (o instanceof Abstraction) {
+				Abstraction a = (Abstraction)o;
+				sb.append("fn ").append(a.varName).append(':');
+				stack.add(a.getBody());
+				stack.add(" => ");
+				stack.add(a.varType);
+			} else {
+				sb.append(o);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * An application or abstraction whose type is being computed.
+	 */
+	private static final class TypeFrame {
+		final Term term;
+		/** For an application, the type of the function after the arguments so far. */
+		Term type;
+		/** Number of subterms done. */
+		int done;
+
+		TypeFrame(Term t, List<Pair<String,Term>> bindings) {
+			term = t;
+			if (t instanceof Application) {
+				type = ((Application)t).getFunction().getType(bindings);
+			}
+		}
+	}
+
+	/**
+	 * Return the type of an application that was checked when it was created,
+	 * without checking its arguments again.
+	 * @return type, or null if the function's type doesn't fit the arguments
+	 */
+	private static Term getCheckedType(Application app, List<Pair<String,Term>> bindings) {
+		Term type = app.getFunction().getType(bindings);
+		for (int i=app.getArguments().size(); i > 0 && type != Constant.UNKNOWN_TYPE; --i) {
+			if (!(type instanceof Abstraction)) return null;
+			type = ((Abstraction)type).getBody();
+		}
+		return type;
+	}
+
+	/**
+	 * Compute the type of a term, checking that the arguments of each application
+	 * have the types its function expects.  An application has its arguments
+	 * checked when it is created, without any bindings.  So an application
+	 * found (other than at the root) with no bindings is not checked again.
+	 * @see Term#getType(List)
+	 */
+	static Term getType(Term root, List<Pair<String,Term>> varBindings) {
+		List<Pair<String,Term>> bindings = new ArrayList<Pair<String,Term>>(varBindings);
+		List<TypeFrame> stack = new ArrayList<TypeFrame>();
+		stack.add(new TypeFrame(root, bindings));
+		Term type = null; // type of the subterm just finished
+		boolean finished = false;
+		for (;;) {
+			TypeFrame f = stack.get(stack.size()-1);
+			if (f.term instanceof Abstraction) {
+				Abstraction abs = (Abstraction)f.term;
+				if (!finished) {
+					bindings.add(pair(abs.varName, abs.varType));
+					Term body = abs.getBody();
+					f.done = 1;
+					if (isCompound(body)) {
+						stack.add(new TypeFrame(body, bindings));
+						continue;
+					}
+					type = body.getType(bindings);
+				}
+				bindings.remove(bindings.size()-1);
+				type = Abs(abs.varName, abs.varType, type);
+			} else {
+				Application app = (Application)f.term;
+				Atom function = app.getFunction();
+				List<? extends Term> args = app.getArguments();
+				if (finished) {
+					checkArgument(app, f, type);
+					finished = false;
+				}
+				while (f.done < args.size() && f.type != Constant.UNKNOWN_TYPE) {
+					if (!(f.type instanceof Abstraction))
+						verify(false, "applied " + args.size() + " arguments to function " + function + " of type " + function.getType(bindings) + " with " + f.type);
+					Term t = args.get(f.done);
+					Term argType = null;
+					if (t instanceof Application && bindings.isEmpty()) {
+						argType = getCheckedType((Application)t, bindings);
+					} else if (!isCompound(t)) {
+						argType = t.getType(bindings);
+					}
+					if (argType == null) break;
+					checkArgument(app, f, argType);
+				}
+				if (f.done < args.size() && f.type != Constant.UNKNOWN_TYPE) {
+					stack.add(new TypeFrame(args.get(f.done), bindings));
+					continue;
+				}
+				type = f.type;
+			}
+			stack.remove(stack.size()-1);
+			if (stack.isEmpty()) return type;
+			finished = true;
+		}
+	}
+
+	private static void checkArgument(Application app, TypeFrame f, Term argType) {
+		Abstraction funTypeAbs = (Abstraction)f.type;
+		Term absType = funTypeAbs.varType;
+		if (!argType.typeEquals(absType) && !app.getFunction().toString().contains("TERM")) {
+			verify(false, "types do not match when applying " + argType + " to arg type "+ absType + " in function " + app.getFunction());
+		}
+		f.type = funTypeAbs.getBody();
+		++f.done;
+	}
+
+	/**
+	 * An application or abstraction being rebuilt.
+	 */
+	private static final class Frame {
+		final Term term;
+		final int binders;
+		/** The new subterms: for an application, the function and then the arguments;
+		 * for an abstraction, the body and then the type. */
+		final Term[] results;
+		int done;
+
+		Frame(Term t, int b) {
+			term = t;
+			binders = b;
+			if (t instanceof Application) {
+				results = new Term[1 + ((Application)t).getArguments().size()];
+			} else {
+				results = new Term[2];
+			}
+		}
+
+		Term subterm(int i) {
+			if (term instanceof Application) {
+				Application a = (Application)term;
+				return i == 0 ? a.getFunction() : a.getArguments().get(i-1);
+			}
+			Abstraction a = (Abstraction)term;
+			return i == 0 ? a.getBody() : a.varType;
+		}
+
+		int subtermBinders(int i) {
+			return term instanceof Abstraction && i == 0 ? binders+1 : binders;
+		}
+	}
+
+	/**
+	 * A change to the atoms of a term, which rebuilds only the applications
+	 * and abstractions that have changed subterms.
+	 */
+	private static abstract class Rebuilder {
+		/** Change an atom inside the given number of abstractions. */
+		abstract Term atom(Atom a, int binders);
+
+		/** Change the function of an application: by default, as any other atom. */
+		Term function(Atom f, int binders) {
+			return atom(f, binders);
+		}
+
+		/** Rebuild an application with a changed function or arguments. */
+		abstract Term application(Application app, Term function, List<Term> arguments);
+
+		final Term rebuild(Term root, int binders) {
+			if (!isCompound(root)) return atom((Atom)root, binders);
+			List<Frame> stack = new ArrayList<Frame>();
+			stack.add(new Frame(root, binders));
+			for (;;) {
+				Frame f = stack.get(stack.size()-1);
+				if (f.done < f.results.length) {
+					Term t = f.subterm(f.done);
+					int b = f.subtermBinders(f.done);
+					if (isCompound(t)) {
+						stack.add(new Frame(t, b));
+					} else if (f.done == 0 && f.term instanceof Application) {
+						f.results[f.done++] = function((Atom)t, b);
+					} else {
+						f.results[f.done++] = atom((Atom)t, b);
+					}
+					continue;
+				}
+				stack.remove(stack.size()-1);
+				Term result = finish(f);
+				if (stack.isEmpty()) return result;
+				Frame parent = stack.get(stack.size()-1);
+				parent.results[parent.done++] = result;
+			}
+		}
+
+		private Term finish(Frame f) {
+			boolean changed = false;
+			for (int i=0; i < f.results.length; ++i) {
+				if (f.results[i] != f.subterm(i)) {
+					changed = true;
+					break;
+				}
+			}
+			if (!changed) return f.term;
+			if (f.term instanceof Application) {
+				List<Term> args = new ArrayList<Term>(Arrays.asList(f.results).subList(1, f.results.length));
+				return application((Application)f.term, f.results[0], args);
+			}
+			Abstraction a = (Abstraction)f.term;
+			return Abstraction.make(a.varName, f.results[1], f.results[0]);
+		}
+	}
+
+	/**
+	 * Apply a substitution to a term inside the given number of abstractions.
+	 * @see Term#substitute(Substitution, int)
+	 */
+	static Term substitute(Term root, final Substitution s, int varIncrAmount) {
+		return new Rebuilder() {
+			@Override
+			Term atom(Atom a, int binders) {
+				return a.substitute(s, binders);
+			}
+			@Override
+			Term application(Application app, Term function, List<Term> arguments) {
+				return function.apply(arguments, 0);
+			}
+		}.rebuild(root, varIncrAmount);
+	}
+
+	/**
+	 * Increment the bound variables of a term that are free, beyond the
+	 * given number of abstractions, by an amount.
+	 * @see Term#incrFreeDeBruijn(int, int)
+	 */
+	static Term incrFreeDeBruijn(Term root, int nested, final int amount) {
+		if (amount == 0) return root;
+		return new Rebuilder() {
+			@Override
+			Term atom(Atom a, int binders) {
+				return a.incrFreeDeBruijn(binders, amount);
+			}
+			@Override
+			Term function(Atom f, int binders) {
+				// functions are constants or free variables, which can't be affected
+				return f;
+			}
+			@Override
+			Term application(Application app, Term function, List<Term> arguments) {
+				return new Application(app.getFunction(), arguments);
+			}
+		}.rebuild(root, nested);
+	}
+}
@@ -5,10 +5,14 @@ import static edu.cmu.cs.sasylf.term.Facade.App;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import edu.cmu.cs.sasylf.util.Invariants;
 import edu.cmu.cs.sasylf.util.Pair;
 import edu.cmu.cs.sasylf.util.SimpleTestSuite;
+import edu.cmu.cs.sasylf.util.Util;
 
 public class UnitTests extends SimpleTestSuite {
 
@@ -135,6 +139,127 @@ public class UnitTests extends SimpleTestSuite {
 		testAvoidHO();
 		testCompose();
 		testHigherOrder();
+		testAtomEquality();
+		testDeepTerms();
+		testInvariantLevels();
+		testCanonicalize();
+	}
+
+	private void testAtomEquality() {
+		Constant c1 = new Constant("atom" + "Eq", a);
+		Constant c2 = new Constant(new String("atomEq"), a);
+		FreeVar v1 = v("atomEq", a);
+		assertEqual("constants with same name", c1, c2);
+		assertTrue("constant not equal to variable", !c1.equals(v1) && !v1.equals(c1));
+		assertTrue("different names", !c1.equals(new Constant("atomEq'", a)));
+		FreeVar v2 = v1.freshify();
+		assertTrue("fresh variable differs", !v1.equals(v2));
+		assertEqual("same stamp", v2, new FreeVar("atomEq", a, v2.getStamp()));
+	}
+
+	private void testCanonicalize() {
+		FreeVar x = v("canonX", e), y = v("canonY", e), z = v("canonZ", e);
+		Term t1 = App(app, x, App(app, y, x));
+		Term t2 = App(app, z, App(app, x, z));
+		assertEqual("variants", t1.canonicalizeFreeVariables(), t2.canonicalizeFreeVariables());
+		assertTrue("not variants", !t1.canonicalizeFreeVariables().equals(App(app, x, App(app, x, y)).canonicalizeFreeVariables()));
+		assertTrue("variant is new", t1.canonicalizeFreeVariables() != t1);
+		Constant e1 = new Constant("canonE", e);
+		Term ground = App(app, e1, App(app, e1, e1));
+		assertTrue("ground term is its own variant", ground.canonicalizeFreeVariables() == ground);
+	}
+
+	private void testInvariantLevels() {
+		FreeVar x = v("invX", a), y = v("invY", a), z = v("invZ", a);
+		Substitution good = new Substitution(App(a2, z), y);
+		good.add(x, a1);
+		Map<FreeVar,Term> bindings = new HashMap<FreeVar,Term>();
+		bindings.put(x, a1);
+		bindings.put(y, App(a2, x)); // not idempotent: uses x
+		Substitution bad = new Substitution(bindings);
+		Invariants.Level saved = Util.INVARIANTS;
+		try {
+			for (Invariants.Level level : Invariants.Level.values()) {
+				Util.INVARIANTS = level;
+				int tries = level == Invariants.Level.SAMPLED ? Invariants.SAMPLE_INTERVAL : 1;
+				int found = 0;
+				for (int i=0; i < tries; ++i) {
+					if (!bad.checkInvariant(null)) ++found;
+				}
+				assertEqual(level + ": full checks", level == Invariants.Level.OFF || level == Invariants.Level.INCREMENTAL ? 0 : 1, found);
+				assertTrue(level + ": good substitution", good.checkInvariant(null) && good.checkInvariant(Collections.singleton(x)));
+			}
+
+			Util.INVARIANTS = Invariants.Level.OFF;
+			assertTrue("off: changes not checked", bad.checkInvariant(Collections.singleton(x)));
+
+			Util.INVARIANTS = Invariants.Level.FULL;
+			assertTrue("full: unrelated change", !bad.checkInvariant(Collections.singleton(z)));
+
+			Util.INVARIANTS = Invariants.Level.INCREMENTAL;
+			assertTrue("incremental: binding uses a bound variable", !bad.checkInvariant(Collections.singleton(y)));
+			assertTrue("incremental: newly bound variable still used", !bad.checkInvariant(Collections.singleton(x)));
+			assertTrue("incremental: unrelated change", bad.checkInvariant(Collections.singleton(z)));
+
+			// binding a variable rewrites just the bindings that use it
+			Substitution chain = new Substitution(App(a2, x), y);
+			chain.add(z, a1);
+			chain.add(x, App(a2, a1));
+			assertEqual("user of bound variable rewritten", App(a2, App(a2, a1)), chain.getSubstituted(y));
+			assertEqual("non-user unchanged", a1, chain.getSubstituted(z));
+			assertTrue("incremental: chain", chain.checkInvariant(Collections.singleton(x)));
+			Util.INVARIANTS = Invariants.Level.FULL;
+			assertTrue("full: chain", chain.checkInvariant(null));
+		} finally {
+			Util.INVARIANTS = saved;
+		}
+	}
+
+	private static final int DEEP = 100000;
+
+	private Term deep(Term inner) {
+		Term result = inner;
+		for (int i=0; i < DEEP; ++i) {
+			result = App(a2, result);
+		}
+		return result;
+	}
+
+	private Term deepAbs(Term body) {
+		Term result = body;
+		for (int i=0; i < DEEP; ++i) {
+			result = Abs(a, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Terms nested too deeply to traverse recursively.
+	 */
+	private void testDeepTerms() {
+		FreeVar x = v("X", a);
+		Term open = deep(x);
+		Term closed = deep(a1);
+		assertEqual("deep type", a, open.getType());
+		assertEqual("deep free variables", Collections.singleton(x), open.getFreeVariables());
+		Substitution sub = new Substitution();
+		sub.add(x, a1);
+		Term substituted = open.substitute(sub);
+		assertTrue("deep substitution is new", substituted != closed);
+		assertEqual("deep hash code", closed.hashCode(), substituted.hashCode());
+		assertEqual("deep substitution", closed, substituted);
+		assertTrue("deep inequality", !open.equals(closed));
+		assertEqual("deep unification", a1, open.unify(closed).getSubstituted(x));
+		String s = closed.toString();
+		assertEqual("deep string", DEEP * "(a2 [".length() + "a1".length() + DEEP * "])".length(), s.length());
+		assertTrue("deep string form", s.startsWith("(a2 [(a2 [") && s.indexOf("a1") == DEEP * "(a2 [".length());
+
+		Term lambdas = deepAbs(App(a2, b(DEEP+1)));
+		assertTrue("deep bound variable", lambdas.hasBoundVar(1) && !lambdas.hasBoundVar(2));
+		Term shifted = lambdas.incrFreeDeBruijn(1);
+		assertEqual("deep shift", deepAbs(App(a2, b(DEEP+2))), shifted);
+		assertTrue("deep shift changes", !shifted.equals(lambdas));
+		assertTrue("deep abstraction string", shifted.toString().endsWith("fn noName:a => (a2 [BoundVar" + (DEEP+2) + "])"));
 	}
 
 	private void testType() {
@@ -0,0 +1,117 @@
+package edu.cmu.cs.sasylf.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits on the work done checking a single theorem, so that a pathological
+ * proof cannot hang the checker.  The limits are set by
+ * {@link Util#THEOREM_TIME_LIMIT} (wall-clock milliseconds) and
+ * {@link Util#THEOREM_STEP_LIMIT} (steps); zero means no limit.
+ * Unification, case analysis and proof search each {@link #charge()}
+ * a step to the budget of the theorem being checked in the current thread.
+ * When a budget is exceeded, {@link Budget.Exceeded} is thrown to abandon the theorem.
+ */
+public class Budget {
+	private static final ThreadLocal<Budget> current = new ThreadLocal<Budget>();
+
+	// the clock is only read every so many steps
+	private static final int CLOCK_INTERVAL = 256;
+
+	private final long timeLimit;
+	private final long stepLimit;
+	private final long deadline;
+	// charged by every thread sharing the budget
+	private final AtomicLong steps = new AtomicLong();
+
+	private Budget(long timeLimit, long stepLimit) {
+		this.timeLimit = timeLimit;
+		this.stepLimit = stepLimit;
+		deadline = System.nanoTime() + timeLimit * 1000000L;
+	}
+
+	/**
+	 * Start a new budget (using the current limits) for the current thread.
+	 * @return the previous budget, to be passed to {@link #end(Budget)}
+	 */
+	public static Budget start() {
+		Budget previous = current.get();
+		if (Util.THEOREM_TIME_LIMIT > 0 || Util.THEOREM_STEP_LIMIT > 0) {
+			current.set(new Budget(Util.THEOREM_TIME_LIMIT, Util.THEOREM_STEP_LIMIT));
+		} else {
+			current.remove();
+		}
+		return previous;
+	}
+
+	/**
+	 * End the current budget, restoring the previous one.
+	 * @param previous budget returned by {@link #start()}
+	 */
+	public static void end(Budget previous) {
+		if (previous == null) current.remove();
+		else current.set(previous);
+	}
+
+	/**
+	 * Return the budget of the current thread, if any, so that it can be
+	 * shared with threads helping to check the same theorem.
+	 * @return current budget, or null
+	 */
+	public static Budget current() {
+		return current.get();
+	}
+
+	/**
+	 * Charge the steps taken in the current thread to the given budget,
+	 * which may be shared with other threads.  Every step charged by any of
+	 * the threads counts towards the limits.
+	 * @param b budget returned by {@link #current()}, may be null
+	 * @return the previous budget, to be passed to {@link #end(Budget)}
+	 */
+	public static Budget share(Budget b) {
+		Budget previous = current.get();
+		end(b);
+		return previous;
+	}
+
+	/**
+	 * Charge one step to the budget of the current thread, if any.
+	 * @throws Exceeded if the step or time limit has been exceeded
+	 */
+	public static void charge() {
+		if (Util.THEOREM_TIME_LIMIT <= 0 && Util.THEOREM_STEP_LIMIT <= 0) return;
+		Budget b = current.get();
+		if (b != null) b.step();
+	}
+
+	private void step() {
+		long n = steps.incrementAndGet();
+		if (stepLimit > 0 && n > stepLimit) {
+			throw new Exceeded(stepLimit + " steps");
+		}
+		if (timeLimit > 0 && n % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+			throw new Exceeded(timeLimit + " ms");
+		}
+	}
+
+	/**
+	 * Thrown when a budget is exceeded.
+	 * This is an error rather than a runtime exception so that it is not
+	 * caught by the places that recover from unexpected exceptions,
+	 * and so reaches the theorem being checked.
+	 */
+	public static class Exceeded extends Error {
+		/**
+		 * Keep Eclipse Happy
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Create an indication that a limit was exceeded.
+		 * @param limit description of the limit
+		 */
+		public Exceeded(String limit) {
+			super(limit, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package edu.cmu.cs.sasylf.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A report sink that keeps all the reports it receives,
+ * optionally passing each on to another sink as well.
+ */
+public class BufferedReportSink implements ReportSink {
+	private final List<Report> reports = new ArrayList<Report>();
+	private final ReportSink next;
+	private int errorCount, warningCount;
+
+	/**
+	 * Create a sink that only buffers reports.
+	 */
+	public BufferedReportSink() {
+		this(null);
+	}
+
+	/**
+	 * Create a sink that buffers reports and also passes them on immediately.
+	 * @param next sink to pass reports on to, may be null
+	 */
+	public BufferedReportSink(ReportSink next) {
+		this.next = next;
+	}
+
+	@Override
+	public void report(Report r) {
+		reports.add(r);
+		if (r.isError()) ++errorCount;
+		else if (r instanceof ErrorReport) ++warningCount;
+		if (next != null) next.report(r);
+	}
+
+	/**
+	 * Return the reports received so far, in order.
+	 * @return list of reports, never null
+	 */
+	public List<Report> getReports() {
+		return reports;
+	}
+
+	/**
+	 * Return the number of errors received so far.
+	 * @return number of reports that are errors
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Return the number of warnings received so far.
+	 * @return number of error reports that are not errors
+	 */
+	public int getWarningCount() {
+		return warningCount;
+	}
+}
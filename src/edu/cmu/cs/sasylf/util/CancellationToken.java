@@ -0,0 +1,91 @@
+package edu.cmu.cs.sasylf.util;
+
+/**
+ * A flag that can be set (from any thread) to ask a check in progress to stop.
+ * The check installs the token in its thread, and polls it at cheap points
+ * (between parts, cases and derivations, and during unification) using
+ * {@link #checkCancelled()}, which throws {@link CancellationToken.Cancelled}
+ * once the token has been cancelled.
+ * @see edu.cmu.cs.sasylf.Proof#setCancellationToken(CancellationToken)
+ */
+public class CancellationToken {
+	private static final ThreadLocal<CancellationToken> current = new ThreadLocal<CancellationToken>();
+	// set once any token is installed, so that polling costs nothing otherwise
+	private static volatile boolean inUse = false;
+
+	private volatile boolean cancelled;
+
+	/**
+	 * Create a token that is not (yet) cancelled.
+	 */
+	public CancellationToken() { }
+
+	/**
+	 * Ask the check using this token to stop.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Return whether this token has been cancelled.
+	 * @return whether {@link #cancel()} has been called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Make this token the one polled in the current thread.
+	 * @return the previous token, to be passed to {@link #restore(CancellationToken)}
+	 */
+	public CancellationToken install() {
+		inUse = true;
+		CancellationToken previous = current.get();
+		current.set(this);
+		return previous;
+	}
+
+	/**
+	 * Restore the token in use before {@link #install()} was called.
+	 * @param previous token returned by install, may be null
+	 */
+	public static void restore(CancellationToken previous) {
+		if (previous == null) current.remove();
+		else current.set(previous);
+	}
+
+	/**
+	 * Return the token installed in the current thread, if any.
+	 * @return current token, or null
+	 */
+	public static CancellationToken current() {
+		return current.get();
+	}
+
+	/**
+	 * Stop the current check if its token has been cancelled.
+	 * @throws Cancelled if the token installed in this thread is cancelled
+	 */
+	public static void checkCancelled() {
+		if (!inUse) return;
+		CancellationToken t = current.get();
+		if (t != null && t.cancelled) throw new Cancelled();
+	}
+
+	/**
+	 * Thrown to abandon a check whose token is cancelled.
+	 * As with {@link Budget.Exceeded}, this is an error so that it passes through
+	 * the places that recover from runtime exceptions.
+	 */
+	public static class Cancelled extends Error {
+		/**
+		 * Keep Eclipse Happy
+		 */
+		private static final long serialVersionUID = 1L;
+
+		public Cancelled() {
+			super("check cancelled", null, false, false);
+		}
+	}
+}
@@ -3,31 +3,31 @@ package edu.cmu.cs.sasylf.util;
 public class DefaultSpan implements Span {
 
 	public DefaultSpan(Location l) {
-		start = end = l;
+		start = end = Location.pack(l);
 	}
 
 	public DefaultSpan(Location l1, Location l2) {
-		start = l1;
-		end = l2;
+		start = Location.pack(l1);
+		end = Location.pack(l2);
 	}
 
 	@Override
 	public Location getLocation() {
-		return start;
+		return Location.unpack(start);
 	}
 
 	@Override
 	public Location getEndLocation() {
-		return end;
+		return Location.unpack(end);
 	}
 
 	public void setEndLocation(Location l) {
-		end = l;
+		end = Location.pack(l);
 	}
 	
 	protected void shiftEndLocation(int amt) {
-		end = end.add(amt);
+		end = Location.add(end, amt);
 	}
 
-	private Location start, end;
+	private long start, end; // packed, see Location#pack
 }
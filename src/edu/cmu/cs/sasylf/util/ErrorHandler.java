@@ -1,7 +1,6 @@
 package edu.cmu.cs.sasylf.util;
 
 import edu.cmu.cs.sasylf.term.FreeVar;
-import java.util.ArrayList;
 import java.util.List;
 
 public class ErrorHandler {
@@ -105,9 +104,9 @@ public class ErrorHandler {
 		report(errorType, msg, obj, debugInfo, true, true);
 	}
 
-	private static void logReport(Report r) { reports.get().add(r); }
+	private static void logReport(Report r) { reports.get().report(r); }
 
-	public static List<Report> getReports() { return reports.get(); }
+	public static List<Report> getReports() { return reports.get().getReports(); }
 
 	/**
 	 * Run the given action with a new set of error reports.
@@ -116,16 +115,30 @@ public class ErrorHandler {
 	 * @return reports that occurred before a successful end.
 	 */
 	public static List<Report> withFreshReports(Runnable r) {
-		List<Report> saved = reports.get();
-		reports.remove();
-		List<Report> result = reports.get();
+		return withFreshReports(null, r);
+	}
+
+	/**
+	 * Run the given action with a new set of error reports,
+	 * passing each report to the given sink as soon as it is logged.
+	 * The current reports are preserved unchanged.
+	 * Reports logged in nested uses of this method (e.g. for imported modules)
+	 * are not passed to the sink.
+	 * @param sink sink to receive reports as they happen, may be null
+	 * @param r action to perform, must not be null
+	 * @return reports that occurred before a successful end.
+	 */
+	public static List<Report> withFreshReports(ReportSink sink, Runnable r) {
+		BufferedReportSink saved = reports.get();
+		BufferedReportSink result = new BufferedReportSink(sink);
+		reports.set(result);
 		try {
 			r.run();
 		} finally {
 			reports.set(saved);
 		}
 
-		return result;
+		return result.getReports();
 	}
 
 	/**
@@ -143,20 +156,10 @@ public class ErrorHandler {
 	}
 
 	public static int getErrorCount() {
-		int errorCount = 0;
-		for (Report r : reports.get()) {
-			if (r.isError()) ++errorCount;
-		}
-		return errorCount;
+		return reports.get().getErrorCount();
 	}
 	public static int getWarningCount() {
-		int warnCount = 0;
-		for (Report r : reports.get()) {
-			if (r.isError()) continue;
-			if (!(r instanceof ErrorReport)) continue;
-			++warnCount;
-		}
-		return warnCount;
+		return reports.get().getWarningCount();
 	}
 
 	public static void recordLastSpan(Span s) {
@@ -167,11 +170,11 @@ public class ErrorHandler {
 
 	private static ThreadLocal<Span> lastSpan = new ThreadLocal<Span>();
 
-	private static ThreadLocal<List<Report>> reports =
-			new ThreadLocal<List<Report>>() {
+	private static ThreadLocal<BufferedReportSink> reports =
+			new ThreadLocal<BufferedReportSink>() {
 				@Override
-				protected List<Report> initialValue() {
-					return new ArrayList<Report>();
+				protected BufferedReportSink initialValue() {
+					return new BufferedReportSink();
 				}
 			};
 
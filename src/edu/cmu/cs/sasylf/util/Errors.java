@@ -75,6 +75,7 @@ public enum Errors {
 	THEOREM_KIND_MISSING ("missing keyword "),
 	THEOREM_ABSTRACT ("abstract theorem/lemma should not include proof"),
 	THEOREM_MULTIPLE_CONTEXT ("SASyLF cannot handle theorem/lemma with multiple contexts"),
+	THEOREM_BUDGET_EXCEEDED ("checking abandoned after exceeding limit of "),
 	FORALL_NOT_SYNTAX ("could not find syntax nonterminal "),
 	DUPLICATE_JUDGMENT("declaration uses name name as previous judgment"),
 	RULE_LIKE_REDECLARED ("declaration uses same name as previous rule/theorem"),
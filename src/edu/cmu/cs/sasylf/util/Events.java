@@ -0,0 +1,129 @@
+package edu.cmu.cs.sasylf.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder events for the expensive parts of checking,
+ * so that the checker can be observed in the same recording as GC and CPU use.
+ * An event is created and begun before the work, and committed after it;
+ * fields should only be filled in if {@link Event#shouldCommit()} returns true.
+ * When no recording is active, these operations do nothing.
+ * The events can be enabled (and their thresholds changed) by name
+ * in a recording configuration, e.g.,
+ * <code>-XX:StartFlightRecording:settings=profile</code>.
+ */
+public final class Events {
+	private Events() { }
+
+	private static final int MAX_TERM_LENGTH = 200;
+
+	/**
+	 * Return a string for a term (or other object) short enough to record.
+	 * @param o object to describe
+	 * @return string of bounded length
+	 */
+	public static String abbreviate(Object o) {
+		String s = String.valueOf(o);
+		if (s.length() <= MAX_TERM_LENGTH) return s;
+		return s.substring(0, MAX_TERM_LENGTH) + "...";
+	}
+
+	@Name("edu.cmu.cs.sasylf.ModuleLoad")
+	@Label("Module Load")
+	@Category("SASyLF")
+	@Description("Finding (and if not cached, checking) an imported module")
+	@StackTrace(false)
+	public static class ModuleLoad extends Event {
+		@Label("Module")
+		public String module;
+
+		@Label("Cache Hit")
+		public boolean cacheHit;
+
+		@Label("Found")
+		public boolean found;
+	}
+
+	@Name("edu.cmu.cs.sasylf.TheoremCheck")
+	@Label("Theorem Check")
+	@Category("SASyLF")
+	@Description("Checking a theorem or lemma")
+	@StackTrace(false)
+	public static class TheoremCheck extends Event {
+		@Label("Kind")
+		public String kind;
+
+		@Label("Name")
+		public String name;
+
+		@Label("File")
+		public String file;
+
+		@Label("Line")
+		public int line;
+
+		@Label("Errors")
+		public int errors;
+	}
+
+	@Name("edu.cmu.cs.sasylf.CaseAnalysis")
+	@Label("Case Analysis")
+	@Category("SASyLF")
+	@Description("Checking a case analysis, including its cases")
+	@StackTrace(false)
+	public static class CaseAnalysis extends Event {
+		@Label("Judgment")
+		public String judgment;
+
+		@Label("File")
+		public String file;
+
+		@Label("Line")
+		public int line;
+
+		@Label("Cases")
+		@Description("Number of cases written")
+		public int cases;
+
+		@Label("Candidates")
+		@Description("Number of rules or productions that may have cases")
+		public int candidates;
+
+		@Label("Remaining")
+		@Description("Number of possibilities not matched by a case")
+		public int remaining;
+	}
+
+	@Name("edu.cmu.cs.sasylf.GrammarBuild")
+	@Label("Grammar Build")
+	@Category("SASyLF")
+	@Description("Building the parse table for a grammar")
+	@StackTrace(false)
+	public static class GrammarBuild extends Event {
+		@Label("Rules")
+		public int rules;
+	}
+
+	@Name("edu.cmu.cs.sasylf.Unification")
+	@Label("Long Unification")
+	@Category("SASyLF")
+	@Description("A unification that took longer than the threshold")
+	@Threshold("1 ms")
+	public static class Unification extends Event {
+		@Label("Term 1")
+		public String term1;
+
+		@Label("Term 2")
+		public String term2;
+
+		@Label("Variables")
+		@Description("Number of variables substituted, or -1 if unification failed")
+		public int variables;
+	}
+}
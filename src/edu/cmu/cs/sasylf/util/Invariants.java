@@ -0,0 +1,72 @@
+package edu.cmu.cs.sasylf.util;
+
+/**
+ * How thoroughly internal invariants are checked, as set by {@link Util#INVARIANTS}.
+ * Checking every invariant after every change (the {@link Level#FULL} level)
+ * can make checking several times slower, since each check walks the whole
+ * data structure.  The incremental level only checks the parts that were
+ * just changed, and the sampled level does the full check now and then.
+ * Invariants of terms and substitutions are only checked when assertions are
+ * enabled (<code>-ea</code>); the consistency of the context is checked
+ * (at the selected level) whether or not they are.
+ */
+public final class Invariants {
+	private Invariants() { }
+
+	/**
+	 * The levels of checking.
+	 */
+	public enum Level {
+		/** no checking */
+		OFF,
+		/** full checks, but only once every {@link Invariants#SAMPLE_INTERVAL} times */
+		SAMPLED,
+		/** check only what was changed */
+		INCREMENTAL,
+		/** check everything every time */
+		FULL;
+	}
+
+	/** How often a full check is done at the sampled level. */
+	public static final int SAMPLE_INTERVAL = 64;
+
+	// per thread, so that checking one file samples the same checks however many run at once
+	private static final ThreadLocal<int[]> calls = ThreadLocal.withInitial(() -> new int[1]);
+
+	/**
+	 * Return whether an invariant should be checked in full now.
+	 * @return true always at the full level, and every so often at the sampled level
+	 */
+	public static boolean checkAll() {
+		switch (Util.INVARIANTS) {
+		case FULL:
+			return true;
+		case SAMPLED:
+			return ++calls.get()[0] % SAMPLE_INTERVAL == 0;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Return whether an invariant should be checked just for the parts
+	 * recently changed.  This is only the case if the level is incremental:
+	 * at other levels, {@link #checkAll()} decides whether to check.
+	 * @return whether the level is incremental
+	 */
+	public static boolean checkChanged() {
+		return Util.INVARIANTS == Level.INCREMENTAL;
+	}
+
+	/**
+	 * Parse a level as written on the command line.
+	 * @param s name of the level, in any case
+	 * @return level, or null if not a level
+	 */
+	public static Level parse(String s) {
+		for (Level l : Level.values()) {
+			if (l.name().equalsIgnoreCase(s)) return l;
+		}
+		return null;
+	}
+}
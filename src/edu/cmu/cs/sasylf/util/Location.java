@@ -1,13 +1,32 @@
 package edu.cmu.cs.sasylf.util;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import edu.cmu.cs.sasylf.parser.DSLToolkitParser;
 import edu.cmu.cs.sasylf.parser.Token;
 
+/**
+ * A position (file, line and column) in the input.
+ * Since the syntax tree has so many locations, nodes do not keep location objects;
+ * instead they keep a location packed into a <code>long</code> (see {@link #pack(Location)})
+ * and create a location object when asked for one.  The packed form holds
+ * a number for the file (file names are numbered as they are seen),
+ * the line and the column.  Lines beyond 2<sup>24</sup> and columns beyond
+ * 2<sup>20</sup> are packed as the largest that fits, and negative ones as zero.
+ * File numbers are never reused, since packed locations may refer to them
+ * for as long as the program runs: the table grows with the number of
+ * distinct file names, not with the number of checks, and packing
+ * a location in a file beyond the 2<sup>20</sup>th is an error.
+ */
 public class Location implements Span {
 	public Location(Token t) {
 		beginLine = t.beginLine;
 		beginColumn = t.beginColumn;
-		file = DSLToolkitParser.currentFile;
+		file = DSLToolkitParser.getCurrentFile();
 	}
 	public Location(String f, int line, int column) {
 		beginLine = line;
@@ -21,7 +40,7 @@ public class Location implements Span {
 	 * @return location just after end of token.
 	 */
 	public static Location endOf(Token t) {
-		return new Location(DSLToolkitParser.currentFile,t.endLine,t.endColumn+1);
+		return new Location(DSLToolkitParser.getCurrentFile(),t.endLine,t.endColumn+1);
 	}
 
 	public int getLine() {
@@ -47,6 +66,104 @@ public class Location implements Span {
 		return file + ":" + beginLine;
 	}
 
+	@Override
+	public int hashCode() {
+		return Objects.hash(file, beginLine, beginColumn);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof Location)) return false;
+		Location other = (Location)obj;
+		return Objects.equals(file, other.file) &&
+				beginLine == other.beginLine && beginColumn == other.beginColumn;
+	}
+
+
+	/// Packed locations
+
+	/** The packed form of a null location. */
+	public static final long NONE = 0L;
+
+	private static final int LINE_BITS = 24;
+	private static final int COLUMN_BITS = 20;
+	private static final int MAX_LINE = (1 << LINE_BITS) - 1;
+	private static final int MAX_COLUMN = (1 << COLUMN_BITS) - 1;
+	private static final int FILE_BITS = Long.SIZE - LINE_BITS - COLUMN_BITS;
+	private static final int MAX_FILE = (1 << FILE_BITS) - 1;
+
+	// file number 0 is not used, so that no location packs as NONE; 1 is a null file
+	private static final Map<String,Integer> fileNumbers = new ConcurrentHashMap<String,Integer>();
+	private static final List<String> fileNames = new CopyOnWriteArrayList<String>(new String[]{null, null});
+
+	private static int fileNumber(String f) {
+		if (f == null) return 1;
+		Integer n = fileNumbers.get(f);
+		if (n != null) return n;
+		synchronized (fileNames) {
+			return fileNumbers.computeIfAbsent(f, (s) -> {
+				int result = newFileNumber(fileNames.size());
+				fileNames.add(s);
+				return result;
+			});
+		}
+	}
+
+	/**
+	 * Return the number for a new file name.
+	 * @param used number of file numbers already in use
+	 * @return the next file number
+	 * @throws IllegalStateException if no more file numbers fit in the packed form
+	 */
+	static int newFileNumber(int used) {
+		if (used > MAX_FILE) {
+			throw new IllegalStateException("cannot number more than " + MAX_FILE + " files");
+		}
+		return used;
+	}
+
+	private static long pack(int fileNumber, int line, int column) {
+		line = Math.max(0, Math.min(line, MAX_LINE));
+		column = Math.max(0, Math.min(column, MAX_COLUMN));
+		return ((long)fileNumber << (LINE_BITS + COLUMN_BITS)) | ((long)line << COLUMN_BITS) | column;
+	}
+
+	/**
+	 * Return the location in packed form.
+	 * @param l location to pack, may be null
+	 * @return packed form, or {@link #NONE} if the location is null
+	 */
+	public static long pack(Location l) {
+		if (l == null) return NONE;
+		return pack(fileNumber(l.file), l.beginLine, l.beginColumn);
+	}
+
+	/**
+	 * Return the location for a packed form.
+	 * @param packed result of {@link #pack(Location)}
+	 * @return location (a new object), or null if the packed form is {@link #NONE}
+	 */
+	public static Location unpack(long packed) {
+		if (packed == NONE) return null;
+		int file = (int)(packed >>> (LINE_BITS + COLUMN_BITS));
+		int line = (int)(packed >>> COLUMN_BITS) & MAX_LINE;
+		int column = (int)packed & MAX_COLUMN;
+		return new Location(fileNames.get(file), line, column);
+	}
+
+	/**
+	 * Return the packed form of the location a number of columns later.
+	 * @param packed packed location, must not be {@link #NONE}
+	 * @param cs number of columns to add
+	 * @return packed form of the resulting location
+	 * @see #add(int)
+	 */
+	public static long add(long packed, int cs) {
+		int column = (int)packed & MAX_COLUMN;
+		return pack((int)(packed >>> (LINE_BITS + COLUMN_BITS)), (int)(packed >>> COLUMN_BITS) & MAX_LINE, column + cs);
+	}
+
 
 	/// as a degenerate case: a location is a zero-length span
 
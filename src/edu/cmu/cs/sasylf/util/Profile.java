@@ -0,0 +1,388 @@
+package edu.cmu.cs.sasylf.util;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Statistics on where the time goes when checking a file,
+ * gathered when {@link Util#PROFILE} is set.
+ * A profile is installed in the thread checking a file;
+ * it has an entry for each module loaded (the file itself and its imports)
+ * and for each theorem or lemma.  Each entry records wall time
+ * (parse time for modules; interface and body check for theorems)
+ * and counts of the work done while it was the innermost entry.
+ * The profile also keeps the slowest derivations.
+ */
+public class Profile {
+	private static final ThreadLocal<Profile> current = new ThreadLocal<Profile>();
+
+	/** Number of slowest derivations kept. */
+	public static final int TOP_DERIVATIONS = 10;
+
+	/**
+	 * The things counted for each entry.
+	 */
+	public enum Counter {
+		/** calls to unify */
+		UNIFY("unify"),
+		/** pairs taken from the unification worklist */
+		PAIRS("pairs"),
+		/** case possibilities generated by case analysis */
+		GENERATED("cases"),
+		/** case possibilities matched by a case */
+		MATCHED("matched"),
+		/** clauses parsed using the grammar */
+		PARSES("parses"),
+		/** automata forked at a conflict while parsing */
+		FORKS("forks"),
+		/** substitutions produced by unify */
+		SUBSTITUTIONS("subs"),
+		/** total size of these substitutions */
+		SUBSTITUTED("sub-vars");
+
+		private final String title;
+
+		private Counter(String t) {
+			title = t;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+	}
+
+	/**
+	 * The statistics for a module or theorem.
+	 */
+	public static class Entry {
+		private final String kind;
+		private final String name;
+		private final Location location;
+		private long parseTime, interfaceTime, bodyTime;
+		private final long[] counts = new long[Counter.values().length];
+		private int largestSubstitution;
+
+		Entry(String kind, String name, Location loc) {
+			this.kind = kind;
+			this.name = name;
+			location = loc;
+		}
+
+		public String getKind() { return kind; }
+		public String getName() { return name; }
+		public Location getLocation() { return location; }
+		public long getParseTime() { return parseTime; }
+		public long getInterfaceTime() { return interfaceTime; }
+		public long getBodyTime() { return bodyTime; }
+		public long getCount(Counter c) { return counts[c.ordinal()]; }
+		public int getLargestSubstitution() { return largestSubstitution; }
+	}
+
+	/**
+	 * The time spent checking a single derivation (including any nested derivations).
+	 */
+	public static class DerivationTime implements Comparable<DerivationTime> {
+		private final String name;
+		private final Location location;
+		private final String theorem;
+		private final long time;
+
+		DerivationTime(String name, Location loc, String theorem, long time) {
+			this.name = name;
+			location = loc;
+			this.theorem = theorem;
+			this.time = time;
+		}
+
+		public String getName() { return name; }
+		public Location getLocation() { return location; }
+		public String getTheorem() { return theorem; }
+		public long getTime() { return time; }
+
+		@Override
+		public int compareTo(DerivationTime o) {
+			return Long.compare(time, o.time);
+		}
+	}
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+	private Entry active;
+	private final PriorityQueue<DerivationTime> slowest = new PriorityQueue<DerivationTime>();
+
+	/**
+	 * Create an empty profile.
+	 */
+	public Profile() { }
+
+	/**
+	 * Make this profile the one used in the current thread.
+	 * @return the previous profile, to be passed to {@link #restore(Profile)}
+	 */
+	public Profile install() {
+		Profile previous = current.get();
+		current.set(this);
+		return previous;
+	}
+
+	/**
+	 * Restore the profile in use before {@link #install()} was called.
+	 * @param previous profile returned by install, may be null
+	 */
+	public static void restore(Profile previous) {
+		if (previous == null) current.remove();
+		else current.set(previous);
+	}
+
+	private static Profile get() {
+		if (!Util.PROFILE) return null;
+		return current.get();
+	}
+
+	/**
+	 * Start a new entry which gets the counts until {@link #exit(Entry)} is called.
+	 * @param kind "module", "theorem", "lemma" etc.
+	 * @param name name of the module or theorem
+	 * @param loc location of the declaration
+	 * @return the entry that was active, or null if not profiling
+	 */
+	public static Entry enter(String kind, String name, Location loc) {
+		Profile p = get();
+		if (p == null) return null;
+		Entry previous = p.active;
+		p.active = new Entry(kind, name, loc);
+		p.entries.add(p.active);
+		return previous;
+	}
+
+	/**
+	 * Stop adding to the current entry and return to the previous one.
+	 * @param previous entry returned by {@link #enter(String, String, Location)}
+	 */
+	public static void exit(Entry previous) {
+		Profile p = get();
+		if (p == null) return;
+		p.active = previous;
+	}
+
+	private static Entry active() {
+		Profile p = get();
+		if (p == null) return null;
+		return p.active;
+	}
+
+	/**
+	 * Add one to a counter of the current entry.
+	 * @param c counter to increment
+	 */
+	public static void count(Counter c) {
+		count(c, 1);
+	}
+
+	/**
+	 * Add to a counter of the current entry.
+	 * @param c counter to add to
+	 * @param n amount to add
+	 */
+	public static void count(Counter c, long n) {
+		Entry e = active();
+		if (e != null) e.counts[c.ordinal()] += n;
+	}
+
+	/**
+	 * Record a substitution computed by unification.
+	 * @param size number of variables substituted
+	 */
+	public static void substitution(int size) {
+		Entry e = active();
+		if (e == null) return;
+		e.counts[Counter.SUBSTITUTIONS.ordinal()] += 1;
+		e.counts[Counter.SUBSTITUTED.ordinal()] += size;
+		if (size > e.largestSubstitution) e.largestSubstitution = size;
+	}
+
+	/**
+	 * Return a start time for the timing methods, or zero if not profiling.
+	 * @return current time in nanoseconds, or 0
+	 */
+	public static long now() {
+		if (get() == null) return 0;
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record the time taken to parse the current module.
+	 * @param start time returned by {@link #now()}
+	 */
+	public static void parsed(long start) {
+		Entry e = active();
+		if (e != null) e.parseTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * Record the time taken to check the interface of the current theorem.
+	 * @param start time returned by {@link #now()}
+	 */
+	public static void interfaceChecked(long start) {
+		Entry e = active();
+		if (e != null) e.interfaceTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * Record the time taken to check the body of the current theorem
+	 * (or the declarations of the current module).
+	 * @param start time returned by {@link #now()}
+	 */
+	public static void bodyChecked(long start) {
+		Entry e = active();
+		if (e != null) e.bodyTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * Record the time taken to check a derivation, keeping it if it is one of the slowest.
+	 * @param name name of the derivation
+	 * @param loc location of the derivation
+	 * @param start time returned by {@link #now()}
+	 */
+	public static void derivationChecked(String name, Location loc, long start) {
+		Profile p = get();
+		if (p == null) return;
+		String theorem = p.active == null ? null : p.active.name;
+		p.slowest.add(new DerivationTime(name, loc, theorem, System.nanoTime() - start));
+		if (p.slowest.size() > TOP_DERIVATIONS) p.slowest.poll();
+	}
+
+	/**
+	 * Return the entries in the order they were started.
+	 * @return list of entries (unmodifiable)
+	 */
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Return the slowest derivations, slowest first.
+	 * @return list of at most {@link #TOP_DERIVATIONS} derivations
+	 */
+	public List<DerivationTime> getSlowestDerivations() {
+		List<DerivationTime> result = new ArrayList<DerivationTime>(slowest);
+		Collections.sort(result, Collections.reverseOrder());
+		return result;
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.3f", nanos / 1e6);
+	}
+
+	/**
+	 * Print the profile as a table.
+	 * @param out stream to print to
+	 */
+	public void print(PrintStream out) {
+		out.printf("%-8s %-24s %10s %10s %10s", "kind", "name", "parse(ms)", "iface(ms)", "body(ms)");
+		for (Counter c : Counter.values()) {
+			out.printf(" %9s", c.getTitle());
+		}
+		out.printf(" %9s%n", "max-sub");
+		for (Entry e : entries) {
+			out.printf("%-8s %-24s %10s %10s %10s", e.kind, e.name,
+					millis(e.parseTime), millis(e.interfaceTime), millis(e.bodyTime));
+			for (long n : e.counts) {
+				out.printf(" %9d", n);
+			}
+			out.printf(" %9d%n", e.largestSubstitution);
+		}
+		List<DerivationTime> derivations = getSlowestDerivations();
+		if (derivations.isEmpty()) return;
+		out.println("Slowest derivations:");
+		for (DerivationTime d : derivations) {
+			out.printf("%10s ms  %s: %s", millis(d.time), d.location, d.name);
+			if (d.theorem != null) out.print(" (in " + d.theorem + ")");
+			out.println();
+		}
+	}
+
+	private static String csvField(Object o) {
+		String s = String.valueOf(o);
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+		return '"' + s.replace("\"", "\"\"") + '"';
+	}
+
+	/**
+	 * Print the profile as comma-separated values, one row for each entry
+	 * followed by one row for each of the slowest derivations (of kind "derivation").
+	 * Times are in nanoseconds.
+	 * @param out stream to print to
+	 */
+	public void printCSV(PrintStream out) {
+		out.print("kind,name,location,parse,interface,body");
+		for (Counter c : Counter.values()) {
+			out.print("," + c.getTitle());
+		}
+		out.println(",max-sub");
+		for (Entry e : entries) {
+			out.print(csvField(e.kind) + "," + csvField(e.name) + "," + csvField(e.location) +
+					"," + e.parseTime + "," + e.interfaceTime + "," + e.bodyTime);
+			for (long n : e.counts) {
+				out.print("," + n);
+			}
+			out.println("," + e.largestSubstitution);
+		}
+		for (DerivationTime d : getSlowestDerivations()) {
+			out.print("derivation," + csvField(d.name) + "," + csvField(d.location) + ",0,0," + d.time);
+			for (int i=0; i <= Counter.values().length; ++i) {
+				out.print(",");
+			}
+			out.println();
+		}
+	}
+
+	/**
+	 * Write the profile as a JSON object with an array of entries
+	 * and an array of the slowest derivations.  Times are in nanoseconds.
+	 * @param g generator to write with
+	 * @throws IOException if writing fails
+	 */
+	public void writeJSON(JsonGenerator g) throws IOException {
+		g.writeStartObject();
+		g.writeArrayFieldStart("entries");
+		for (Entry e : entries) {
+			g.writeStartObject();
+			g.writeStringField("kind", e.kind);
+			g.writeStringField("name", e.name);
+			writeLocation(g, e.location);
+			g.writeNumberField("parse", e.parseTime);
+			g.writeNumberField("interface", e.interfaceTime);
+			g.writeNumberField("body", e.bodyTime);
+			for (Counter c : Counter.values()) {
+				g.writeNumberField(c.getTitle(), e.counts[c.ordinal()]);
+			}
+			g.writeNumberField("max-sub", e.largestSubstitution);
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+		g.writeArrayFieldStart("slowest");
+		for (DerivationTime d : getSlowestDerivations()) {
+			g.writeStartObject();
+			g.writeStringField("name", d.name);
+			writeLocation(g, d.location);
+			if (d.theorem != null) g.writeStringField("theorem", d.theorem);
+			g.writeNumberField("time", d.time);
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+		g.writeEndObject();
+		g.flush();
+	}
+
+	private static void writeLocation(JsonGenerator g, Location loc) throws IOException {
+		if (loc == null) return;
+		g.writeStringField("file", loc.getFile());
+		g.writeNumberField("line", loc.getLine());
+	}
+}
@@ -6,7 +6,9 @@ import edu.cmu.cs.sasylf.util.VSDocument;
 import edu.cmu.cs.sasylf.util.VSFindReplaceDocumentAdapter;
 import edu.cmu.cs.sasylf.util.VSMarker;
 import edu.cmu.cs.sasylf.util.VSRegion;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Set;
 
 /**
  * The makeQuickfix method implements the method for quickfixes used in
@@ -14,6 +16,52 @@ import java.util.HashMap;
  * mirror the Eclipse ones.
  */
 public class Quickfix {
+	// the errors for which makeQuickfix may produce a fix (checked by UnitTests)
+	static final Set<Errors> FIXABLE = EnumSet.of(
+			Errors.RULE_NOT_THEOREM, Errors.THEOREM_NOT_RULE,
+			Errors.THEOREM_KIND_WRONG, Errors.THEOREM_KIND_MISSING,
+			Errors.INDUCTION_REPEAT, Errors.WRONG_END, Errors.WRONG_MODULE_NAME,
+			Errors.PARTIAL_CASE_ANALYSIS, Errors.ASSUMED_ASSUMES,
+			Errors.MISSING_ASSUMES, Errors.OTHER_JUSTIFIED,
+			Errors.RULE_CONCLUSION_CONTRADICTION, Errors.DERIVATION_NOT_FOUND);
+
+	/**
+	 * Return whether a quick fix may be available for a report.
+	 * This is a cheap test that does not look at the document.
+	 * @param report report to test, must not be null
+	 * @return false if {@link #makeQuickfix(VSDocument, VSMarker)} certainly returns null
+	 */
+	public static boolean hasQuickfix(ErrorReport report) {
+		return report.getExtraInformation() != null &&
+				FIXABLE.contains(report.getErrorType());
+	}
+
+	/**
+	 * Create the marker for a report, with the attributes needed to make a quick fix.
+	 * @param doc document that was checked to get the report
+	 * @param report report to create the marker for, must not be null
+	 * @return new marker
+	 */
+	public static VSMarker createMarker(VSDocument doc, ErrorReport report) {
+		VSMarker marker = new VSMarker();
+		marker.setAttribute(Marker.SASYLF_ERROR_TYPE, report.getErrorType());
+		marker.setAttribute(Marker.SASYLF_ERROR_INFO, report.getExtraInformation());
+		Span span = report.getSpan();
+		if (span != null && span.getLocation() != null) {
+			marker.setAttribute(Marker.LINE_NUMBER, span.getLocation().getLine());
+			marker.setAttribute(Marker.CHAR_START, getOffset(doc, span.getLocation()));
+			marker.setAttribute(Marker.CHAR_END, getOffset(doc, span.getEndLocation()));
+		}
+		return marker;
+	}
+
+	private static int getOffset(VSDocument doc, Location loc) {
+		int line = Math.min(Math.max(loc.getLine(), 1), doc.getNumberOfLines());
+		VSRegion info = doc.getLineInformation(line - 1);
+		int column = Math.min(Math.max(loc.getColumn() - 1, 0), info.getLength());
+		return info.getOffset() + column;
+	}
+
 	private HashMap<String, String> getCategoryAndLexicalInfo(String ruleName) {
 		HashMap<String, String> categoryAndLexicalInfo =
 				new HashMap<String, String>();
@@ -51,9 +99,7 @@ public class Quickfix {
 			lineIndent = lineText.substring(0, i);
 		}
 
-		int indentAmount =
-				doc.getLines()[line - 1].length() -
-				doc.getLines()[line - 1].replaceAll("^\\s+", "").length();
+		int indentAmount = lineIndent.length();
 		String indent = "    ";
 
 		if (indentAmount >= 0 && indentAmount <= 8) {
@@ -61,13 +107,20 @@ public class Quickfix {
 		}
 
 		String extraIndent = "";
-		int ind = doc.getBody().substring(lineInfo.getOffset()).indexOf(split[0]);
+		// look for the old text from the start of the line to the end of the report
+		int searchEnd = lineInfo.getOffset() + lineInfo.getLength();
+		int charEnd = (int)marker.getAttribute(Marker.CHAR_END, -1);
+		if (charEnd > searchEnd && charEnd <= doc.getLength()) {
+			int endLine = doc.getLineOfOffset(charEnd);
+			searchEnd = doc.getLineOffset(endLine) + doc.getLineLength(endLine);
+		}
+		int ind = doc.indexOf(split[0], lineInfo.getOffset(), searchEnd);
 		VSRegion old;
 
 		if (ind == -1) {
 			old = null;
 		} else {
-			old = new VSRegion(ind + lineInfo.getOffset(), split[0].length());
+			old = new VSRegion(ind, split[0].length());
 		}
 		// VSRegion old = new VSFindReplaceDocumentAdapter(doc).find(
 		// lineInfo.getOffset(), split[0], true, true, false, false);
@@ -256,7 +309,7 @@ public class Quickfix {
 			res = new HashMap<>();
 			res.put("newText", newText + doc.getLineDelimiter());
 			res.put("charStart", doc.getLineOffset(line));
-			res.put("charEnd", doc.getLineOffset(line) + newText.length());
+			res.put("charEnd", doc.getLineOffset(line));
 			res.put("title", "insert '" + fixInfo + "'");
 
 			return res;
@@ -319,7 +372,7 @@ public class Quickfix {
 				res.put("newText", defName);
 				res.put("charStart", useStart);
 				res.put("charEnd", useStart + useName.length());
-				res.put("title", "replace '" + useName + " with '" + defName + "'");
+				res.put("title", "replace '" + useName + "' with '" + defName + "'");
 
 				return res;
 			}
@@ -345,19 +398,24 @@ public class Quickfix {
 			//   break;
 			// }
 			// String prevIndent = lineText.substring(0, prevStart);
-			newText = nl + indent + split[0] + " by unproved";
+			newText = lineIndent + split[0] + " by unproved" + nl;
+			int fixStart = prevLineInfo.getOffset();
+			int fixEnd = fixStart;
 
 			String extra = "";
 
 			if (!defName.equals(useName)) {
-				if (useName.equals("_")) {
+				if (useName.equals("_") && useStart >= fixStart) {
+					// a fix is a single edit, so it reaches as far as the '_'
 					extra = ", and replace '_' with '" + defName + "'";
+					newText += doc.get(fixStart, useStart - fixStart) + defName;
+					fixEnd = useEnd;
 				}
 			}
 			res = new HashMap<>();
 			res.put("newText", newText);
-			res.put("charStart", prevLineInfo.getOffset());
-			res.put("charEnd", prevLineInfo.getOffset());
+			res.put("charStart", fixStart);
+			res.put("charEnd", fixEnd);
 			res.put("title",
 							"insert '" + split[0] + " by unproved' before this line" + extra);
 
@@ -0,0 +1,60 @@
+package edu.cmu.cs.sasylf.util;
+
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A print stream whose output can be redirected separately for each thread.
+ * Threads without a redirection write to the default stream.
+ * This is used when several files are checked at the same time,
+ * so that the output for each file can be collected and printed in order.
+ */
+public class RedirectablePrintStream extends PrintStream {
+	private final PrintStream fallback;
+	private final ThreadLocal<PrintStream> redirection = new ThreadLocal<PrintStream>();
+
+	/**
+	 * Create a print stream that writes (UTF-8) to the given stream
+	 * unless redirected.
+	 * @param fallback stream to write to by default, must not be null
+	 * @throws UnsupportedEncodingException if UTF-8 is not supported
+	 */
+	public RedirectablePrintStream(PrintStream fallback) throws UnsupportedEncodingException {
+		super(fallback, true, "UTF-8");
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Redirect the output written by the current thread.
+	 * @param ps stream to write to, or null to return to the default stream
+	 */
+	public void redirect(PrintStream ps) {
+		if (ps == null) redirection.remove();
+		else redirection.set(ps);
+	}
+
+	private PrintStream target() {
+		PrintStream ps = redirection.get();
+		return ps == null ? fallback : ps;
+	}
+
+	@Override
+	public void write(int b) {
+		target().write(b);
+	}
+
+	@Override
+	public void write(byte[] buf, int off, int len) {
+		target().write(buf, off, len);
+	}
+
+	@Override
+	public void flush() {
+		target().flush();
+	}
+
+	@Override
+	public boolean checkError() {
+		return target().checkError();
+	}
+}
@@ -6,7 +6,7 @@ package edu.cmu.cs.sasylf.util;
 public abstract class Report {
 
 	private final String message;
-	private final Span loc;
+	private Span loc;
 
 	/**
 	 * Create a report (not referenced elsewhere) for the given place in the proof
@@ -59,6 +59,17 @@ public abstract class Report {
 		return loc;
 	}
 
+	/**
+	 * Drop the links from this report to the results of checking,
+	 * keeping what is needed to print it.
+	 * The span is replaced with a plain span with the same locations,
+	 * so that the report no longer refers to the syntax tree.
+	 */
+	public void detach() {
+		if (loc == null || loc instanceof Location || loc instanceof DefaultSpan || loc instanceof TokenSpan) return;
+		loc = new DefaultSpan(loc.getLocation(), loc.getEndLocation());
+	}
+
 	/**
 	 * Return true if this report is an error.
 	 * @return true if this report is an error.
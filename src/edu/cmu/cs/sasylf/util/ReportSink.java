@@ -0,0 +1,13 @@
+package edu.cmu.cs.sasylf.util;
+
+/**
+ * A destination for reports as they are logged.
+ * @see ErrorHandler#withFreshReports(ReportSink, Runnable)
+ */
+public interface ReportSink {
+	/**
+	 * Receive a report that has just been logged.
+	 * @param r report, never null
+	 */
+	public void report(Report r);
+}
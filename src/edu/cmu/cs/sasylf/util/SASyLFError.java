@@ -1,5 +1,12 @@
 package edu.cmu.cs.sasylf.util;
 
+/**
+ * An exception thrown after a report has been logged
+ * to abandon checking the current construct.
+ * Since these errors are used for control flow and are usually caught and muffled,
+ * they don't record a stack trace (unless {@link Util#DEBUG} is set),
+ * and the message is only formatted when it is asked for.
+ */
 public class SASyLFError extends RuntimeException {
 	/**
 	 * Keep Eclipse Happy
@@ -8,10 +15,15 @@ public class SASyLFError extends RuntimeException {
 
 	private Report report;
 
-	public SASyLFError(Report report) { 
-		super(report.formatMessage());
+	public SASyLFError(Report report) {
+		super(null, null, true, Util.DEBUG);
 		this.report = report;
 	}
 
 	public Report getReport() { return report; }
+
+	@Override
+	public String getMessage() {
+		return report.formatMessage();
+	}
 }
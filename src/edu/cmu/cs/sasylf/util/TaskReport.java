@@ -44,7 +44,7 @@ public class TaskReport extends Report {
 	public static CommentListener commentListener = (t,f) -> checkForTaskTag(t);
 	
 	public static void checkForTaskTag(Token s) {
-		// System.out.println(DSLToolkitParser.currentFile + ":" + s.beginLine + ":" + s.beginColumn + ": Looking at " + s.image + ", while map size = " + taskTagMap.size());
+		// System.out.println(DSLToolkitParser.getCurrentFile() + ":" + s.beginLine + ":" + s.beginColumn + ": Looking at " + s.image + ", while map size = " + taskTagMap.size());
 		int lineNumber = s.beginLine;
 		int startLine = 0;
 		int startCol = s.beginColumn;
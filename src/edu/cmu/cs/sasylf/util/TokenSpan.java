@@ -6,22 +6,23 @@ import edu.cmu.cs.sasylf.parser.Token;
  * The span of a single token.
  */
 public class TokenSpan implements Span {
-	private final Location starting;
-	private final Location ending;
+	// packed, see Location#pack
+	private final long starting;
+	private final long ending;
 	
 	public TokenSpan(Token t) {
-		starting = new Location(t);
-		ending = Location.endOf(t);
+		starting = Location.pack(new Location(t));
+		ending = Location.pack(Location.endOf(t));
 	}
 	
 	@Override
 	public Location getLocation() {
-		return starting;
+		return Location.unpack(starting);
 	}
 
 	@Override
 	public Location getEndLocation() {
-		return ending;
+		return Location.unpack(ending);
 	}
 
 }
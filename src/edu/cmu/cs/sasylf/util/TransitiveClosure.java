@@ -0,0 +1,124 @@
+package edu.cmu.cs.sasylf.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A transitive (but not reflexive) relation on a growing set of elements,
+ * kept closed as edges are added.
+ * Each element is given a number, and the elements reachable from an element
+ * are kept as a bit set, so that testing whether a pair is related
+ * is a bit test.  Adding an edge a &rarr; b adds everything reachable
+ * from b (and b itself) to every element that reaches a (and a itself),
+ * as in one step of Warshall's algorithm.
+ * Unlike {@link TransitiveRelation}, this class does not keep the reverse relation.
+ * @param <T> type of elements, which must have consistent equals and hashCode
+ */
+public class TransitiveClosure<T> implements Iterable<Pair<T,T>> {
+	private final Map<T,Integer> ids = new HashMap<T,Integer>();
+	private final List<T> elements = new ArrayList<T>();
+	private long[][] reach = new long[8][];
+
+	/**
+	 * Create an empty relation.
+	 */
+	public TransitiveClosure() { }
+
+	private int intern(T t) {
+		Integer id = ids.get(t);
+		if (id != null) return id;
+		int n = elements.size();
+		elements.add(t);
+		ids.put(t, n);
+		if (n == reach.length) reach = Arrays.copyOf(reach, n*2);
+		reach[n] = new long[0];
+		return n;
+	}
+
+	private static boolean test(long[] bits, int j) {
+		int w = j >> 6;
+		return w < bits.length && (bits[w] & (1L << j)) != 0;
+	}
+
+	/**
+	 * Relate the two elements, and thus everything that reaches the first
+	 * with everything reachable from the second.
+	 * @param t1 element that reaches
+	 * @param t2 element reached
+	 * @return whether the relation changed
+	 */
+	public boolean put(T t1, T t2) {
+		int a = intern(t1);
+		int b = intern(t2);
+		if (test(reach[a], b)) return false;
+		long[] added = Arrays.copyOf(reach[b], Math.max(reach[b].length, (b >> 6) + 1));
+		added[b >> 6] |= 1L << b;
+		for (int x=0; x < elements.size(); ++x) {
+			long[] row = reach[x];
+			if (x != a && !test(row, a)) continue;
+			if (row.length < added.length) reach[x] = row = Arrays.copyOf(row, added.length);
+			for (int w=0; w < added.length; ++w) {
+				row[w] |= added[w];
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return whether the first element reaches the second.
+	 * @param t1 element that may reach
+	 * @param t2 element that may be reached
+	 * @return whether the pair is in the relation
+	 */
+	public boolean contains(T t1, T t2) {
+		Integer a = ids.get(t1);
+		if (a == null) return false;
+		Integer b = ids.get(t2);
+		if (b == null) return false;
+		return test(reach[a], b);
+	}
+
+	/**
+	 * Iterate over all the pairs in the relation.
+	 */
+	@Override
+	public Iterator<Pair<T, T>> iterator() {
+		return new Iterator<Pair<T,T>>() {
+			private int i = 0;
+			private int j = -1;
+
+			{
+				advance();
+			}
+
+			private void advance() {
+				while (i < elements.size()) {
+					long[] row = reach[i];
+					for (++j; j < row.length << 6; ++j) {
+						if (test(row, j)) return;
+					}
+					++i;
+					j = -1;
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return i < elements.size();
+			}
+
+			@Override
+			public Pair<T, T> next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				Pair<T,T> result = new Pair<T,T>(elements.get(i), elements.get(j));
+				advance();
+				return result;
+			}
+		};
+	}
+}
@@ -1,5 +1,9 @@
 package edu.cmu.cs.sasylf.util;
 
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 public class UnitTests extends SimpleTestSuite {
 
@@ -93,6 +97,40 @@ public class UnitTests extends SimpleTestSuite {
 
 	}
 
+	private void testTransitiveClosure() {
+		// compare with Warshall's algorithm on random graphs, some larger than one word
+		java.util.Random r = new java.util.Random(38);
+		for (int n : new int[]{5, 20, 70, 150}) {
+			boolean[][] expected = new boolean[n][n];
+			TransitiveClosure<Integer> closure = new TransitiveClosure<Integer>();
+			for (int k=0; k < 2*n; ++k) {
+				int i = r.nextInt(n), j = r.nextInt(n);
+				closure.put(i, j);
+				expected[i][j] = true;
+			}
+			for (int k=0; k < n; ++k) {
+				for (int i=0; i < n; ++i) {
+					if (!expected[i][k]) continue;
+					for (int j=0; j < n; ++j) {
+						if (expected[k][j]) expected[i][j] = true;
+					}
+				}
+			}
+			int pairs = 0;
+			for (Pair<Integer,Integer> p : closure) {
+				assertTrue("extra pair " + p, expected[p.first][p.second]);
+				++pairs;
+			}
+			for (int i=0; i < n; ++i) {
+				for (int j=0; j < n; ++j) {
+					assertEqual("contains(" + i + "," + j + ")", expected[i][j], closure.contains(i, j));
+					if (expected[i][j]) --pairs;
+				}
+			}
+			assertEqual("number of pairs", 0, pairs);
+		}
+	}
+
 	protected boolean hiddenTruth() {
 		Object o = new Object();
 		return !o.equals(new Object());
@@ -129,10 +167,158 @@ public class UnitTests extends SimpleTestSuite {
 		assertEqual("wrong key", null, m.get(key2b));
 	}
 	
+	protected void testVSDocument() {
+		VSDocument doc = new VSDocument("ab\r\n\ncd\re\n", 4, "\n");
+		int[] offsets = { 0, 4, 5, 8, 10 };
+		int[] lengths = { 2, 0, 2, 1, 0 };
+		assertEqual("number of lines", offsets.length, doc.getNumberOfLines());
+		for (int i=0; i < offsets.length; ++i) {
+			assertEqual("offset of line " + i, offsets[i], doc.getLineOffset(i));
+			assertEqual("length of line " + i, lengths[i], doc.getLineLength(i));
+			assertEqual("line at start of line " + i, i, doc.getLineOfOffset(offsets[i]));
+		}
+		assertEqual("line of delimiter", 0, doc.getLineOfOffset(3));
+		assertEqual("line of end", 4, doc.getLineOfOffset(doc.getLength()));
+		assertEqual("text of line", "cd", doc.getLine(2));
+		assertEqual("found in region", 5, doc.indexOf("cd", 1, 7));
+		assertEqual("not within region", -1, doc.indexOf("cd", 1, 6));
+		assertEqual("not after start", -1, doc.indexOf("ab", 1, doc.getLength()));
+	}
+
+	protected void testQuickfixErrors() {
+		// the line and error information give every case of makeQuickfix something to fix
+		String text = "  d: a x c by theorem\n";
+		String[] infos = { "theorem\nlemma", "a...c\nb" };
+		VSDocument doc = new VSDocument(text, 4, "\n");
+		Set<Errors> fixed = EnumSet.noneOf(Errors.class);
+		for (Errors e : Errors.values()) {
+			for (String info : infos) {
+				VSMarker marker = new VSMarker();
+				marker.setAttribute(Marker.SASYLF_ERROR_TYPE, e);
+				marker.setAttribute(Marker.SASYLF_ERROR_INFO, info);
+				marker.setAttribute(Marker.LINE_NUMBER, 1);
+				marker.setAttribute(Marker.CHAR_START, 2);
+				marker.setAttribute(Marker.CHAR_END, 3);
+				Map<String,Object> fix;
+				try {
+					fix = new Quickfix().makeQuickfix(doc, marker);
+				} catch (RuntimeException ex) {
+					continue; // info not in the form this error uses
+				}
+				if (fix != null && !fix.isEmpty()) fixed.add(e);
+			}
+		}
+		assertEqual("errors with quick fixes", Quickfix.FIXABLE, fixed);
+	}
+
+	protected void testPackedLocation() {
+		assertEqual("packing null", Location.NONE, Location.pack(null));
+		assertEqual("unpacking NONE", null, Location.unpack(Location.NONE));
+		Location[] locs = new Location[] {
+				new Location("a.slf", 1, 1), new Location("b.slf", 1, 1),
+				new Location("a.slf", 1000000, 12345), new Location(null, 0, 0),
+				new Location("", 7, 0), new Location("b.slf", (1 << 24) - 1, (1 << 20) - 4)
+		};
+		for (Location l : locs) {
+			long packed = Location.pack(l);
+			assertTrue("packs as NONE: " + l, packed != Location.NONE);
+			assertEqual("round trip of " + l, l, Location.unpack(packed));
+			assertEqual("adding columns to " + l, l.add(3), Location.unpack(Location.add(packed, 3)));
+		}
+		assertEqual("same file", Location.pack(locs[0]) >>> 44, Location.pack(locs[2]) >>> 44);
+		assertTrue("different files", Location.pack(locs[0]) != Location.pack(locs[1]));
+		assertEqual("clamped column", new Location("a.slf", 3, (1 << 20) - 1),
+				Location.unpack(Location.pack(new Location("a.slf", 3, 1 << 21))));
+	}
+
+	protected void testPackedLocationBounds() {
+		final int maxLine = (1 << 24) - 1, maxColumn = (1 << 20) - 1, maxFile = (1 << 20) - 1;
+		Location[][] clamped = new Location[][] {
+			{ new Location("a.slf", maxLine + 1, 5), new Location("a.slf", maxLine, 5) },
+			{ new Location("a.slf", Integer.MAX_VALUE, 5), new Location("a.slf", maxLine, 5) },
+			{ new Location("a.slf", -1, 5), new Location("a.slf", 0, 5) },
+			{ new Location("a.slf", 5, maxColumn + 1), new Location("a.slf", 5, maxColumn) },
+			{ new Location("a.slf", 5, Integer.MIN_VALUE), new Location("a.slf", 5, 0) },
+			{ new Location("a.slf", maxLine, maxColumn), new Location("a.slf", maxLine, maxColumn) },
+		};
+		for (Location[] p : clamped) {
+			assertEqual("packing " + p[0] + "," + p[0].getColumn(), p[1], Location.unpack(Location.pack(p[0])));
+		}
+		// adding columns must not carry into the line or file
+		long last = Location.pack(new Location("a.slf", 9, maxColumn - 1));
+		assertEqual("added past the last column", new Location("a.slf", 9, maxColumn), Location.unpack(Location.add(last, 10)));
+		assertEqual("added a negative amount", new Location("a.slf", 9, 0), Location.unpack(Location.add(last, -maxColumn - 5)));
+
+		assertEqual("last file number", maxFile, Location.newFileNumber(maxFile));
+		boolean full = false;
+		try {
+			Location.newFileNumber(maxFile + 1);
+		} catch (IllegalStateException ex) {
+			full = true;
+		}
+		assertTrue("file numbers run out", full);
+	}
+
+	protected void testSharedBudget() {
+		final int threads = 4, each = 200000;
+		long savedSteps = Util.THEOREM_STEP_LIMIT;
+		long savedTime = Util.THEOREM_TIME_LIMIT;
+		Util.THEOREM_STEP_LIMIT = threads * each;
+		Util.THEOREM_TIME_LIMIT = 0;
+		Budget previous = Budget.start();
+		try {
+			final Budget shared = Budget.current();
+			final Throwable[] thrown = new Throwable[threads];
+			final CountDownLatch ready = new CountDownLatch(threads);
+			Thread[] helpers = new Thread[threads];
+			for (int i=0; i < threads; ++i) {
+				final int index = i;
+				helpers[i] = new Thread(() -> {
+					Budget.share(shared);
+					ready.countDown();
+					try {
+						ready.await();
+						for (int j=0; j < each; ++j) Budget.charge();
+					} catch (Throwable ex) {
+						thrown[index] = ex;
+					}
+				});
+				helpers[i].start();
+			}
+			for (Thread t : helpers) {
+				try {
+					t.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			for (int i=0; i < threads; ++i) {
+				assertEqual("helper " + i + " within budget", null, thrown[i]);
+			}
+			boolean exceeded = false;
+			try {
+				Budget.charge();
+			} catch (Budget.Exceeded ex) {
+				exceeded = true;
+			}
+			assertTrue("every shared step counted", exceeded);
+		} finally {
+			Budget.end(previous);
+			Util.THEOREM_STEP_LIMIT = savedSteps;
+			Util.THEOREM_TIME_LIMIT = savedTime;
+		}
+	}
+
 	@Override
 	protected void runTests() {
+		testSharedBudget();
 		testTransitiveRelation();
+		testTransitiveClosure();
 		testIdentityArrayMap();
+		testPackedLocation();
+		testPackedLocationBounds();
+		testVSDocument();
+		testQuickfixErrors();
 	}
 
 	public static void main(String[] args) {
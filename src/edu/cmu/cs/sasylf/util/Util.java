@@ -13,6 +13,13 @@ public class Util {
 	public static boolean SHOW_TASK_COMMENTS = false;
 	public static boolean PRINT_ERRORS = true;
 	public static boolean PRINT_SOLVE = true;
+	public static long THEOREM_TIME_LIMIT = 0; // milliseconds, see Budget
+	public static long THEOREM_STEP_LIMIT = 0; // see Budget
+	public static boolean PROFILE = false; // see Profile
+	public static int SOLVE_DEPTH = 5; // depth bound for 'by solve'
+	public static int SOLVE_PARALLEL_DEPTH = 0; // levels of 'by solve' choices searched in parallel
+	public static Invariants.Level INVARIANTS = Invariants.Level.INCREMENTAL; // see Invariants
+	public static boolean LOW_MEMORY = false; // keep only the interfaces of imported modules
 
 	public static void debug_parse(Object o) {
 		if (DEBUG_PARSE)
@@ -1,46 +1,129 @@
 package edu.cmu.cs.sasylf.util;
 
 import edu.cmu.cs.sasylf.util.VSRegion;
+import java.util.Arrays;
 
 /**
  * This simulates the IDocument class in Eclipse.
+ * Lines are numbered from zero, as in Eclipse.  The start of each line is kept
+ * in a table, so that finding where a line starts takes constant time, and
+ * finding the line of an offset takes logarithmic time.
  */
 
 public class VSDocument {
   private final String body;
-  private final String[] lines;
+  private final int[] lineStarts;
   private final int indentSize;
   private final String nl;
 
   public VSDocument(String body, int indentSize, String nl) {
     this.body = body;
-    this.lines = body.split("\r\n|\r|\n");
+    this.lineStarts = computeLineStarts(body);
 
     this.indentSize = indentSize;
     this.nl = nl;
   }
 
+  private static int[] computeLineStarts(String body) {
+    int[] starts = new int[16];
+    int n = 1;
+    int len = body.length();
+    for (int i = 0; i < len; ++i) {
+      char ch = body.charAt(i);
+      if (ch != '\r' && ch != '\n') continue;
+      if (ch == '\r' && i + 1 < len && body.charAt(i + 1) == '\n') ++i;
+      if (n == starts.length) starts = Arrays.copyOf(starts, n * 2);
+      starts[n++] = i + 1;
+    }
+    return Arrays.copyOf(starts, n);
+  }
+
   public String get(int start, int length) {
     return body.substring(start, start + length);
   }
 
   public int getLength() { return body.length(); }
 
+  /**
+   * Return the number of lines.  A document ending in a line delimiter
+   * has an empty last line.
+   */
+  public int getNumberOfLines() { return lineStarts.length; }
+
   public VSRegion getLineInformation(int line) {
-    return new VSRegion(this.getLineOffset(line), lines[line].length());
+    return new VSRegion(lineStarts[line], getLineLength(line));
   }
 
+  /**
+   * Return the offset of the start of a line.
+   * @param line line number, starting at zero
+   * @return offset of the first character of the line
+   */
   public int getLineOffset(int line) {
-    int offset = 0;
+    return lineStarts[line];
+  }
 
-    for (int i = 0; i < line; ++i) {
-      offset += lines[i].length() + ((i != line - 1) ? 1 : 0);
+  /**
+   * Return the length of a line, not including the line delimiter.
+   * @param line line number, starting at zero
+   * @return length of line
+   */
+  public int getLineLength(int line) {
+    if (line + 1 == lineStarts.length) return body.length() - lineStarts[line];
+    int end = lineStarts[line + 1] - 1;
+    if (end > lineStarts[line] && body.charAt(end) == '\n' &&
+        body.charAt(end - 1) == '\r') {
+      --end;
     }
+    return end - lineStarts[line];
+  }
 
-    return offset;
+  /**
+   * Return the line containing an offset (or the line delimiter
+   * at the end of the line).
+   * @param offset offset in the document, between 0 and the length
+   * @return line number, starting at zero
+   */
+  public int getLineOfOffset(int offset) {
+    int i = Arrays.binarySearch(lineStarts, offset);
+    if (i < 0) i = -i - 2;
+    return i;
   }
 
-  public String[] getLines() { return lines; }
+  /**
+   * Return the text of a line, not including the line delimiter.
+   * @param line line number, starting at zero
+   * @return text of the line
+   */
+  public String getLine(int line) {
+    return get(lineStarts[line], getLineLength(line));
+  }
+
+  /**
+   * Find text within a region of the document, without copying the region.
+   * @param text text to look for
+   * @param start offset at which to start looking
+   * @param end offset at which the text must end, at most the length
+   * @return offset of the first occurrence within the region, or -1 if none
+   */
+  public int indexOf(String text, int start, int end) {
+    for (int i = start, last = end - text.length(); i <= last; ++i) {
+      if (body.startsWith(text, i)) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Return the text of every line.  This creates the lines each time:
+   * use {@link #getLine(int)} when only some lines are needed.
+   */
+  public String[] getLines() {
+    String[] lines = new String[lineStarts.length];
+    for (int i = 0; i < lines.length; ++i) {
+      lines[i] = getLine(i);
+    }
+    return lines;
+  }
 
   public String getBody() { return body; }
 
@@ -24,26 +24,21 @@ public class VSFindReplaceDocumentAdapter {
 
     int searchDirection = searchForward ? 1 : -1;
 
+    String body = doc.getBody();
+    Matcher matcher = regExSearch ? pattern.matcher(body) : null;
+
+    // test for a match starting at each offset, without copying the text
     while (offset >= 0 && offset < doc.getLength()) {
-      String text = doc.get(offset, doc.getLength() - offset);
       int matchIndex;
 
       if (regExSearch) {
-        Matcher matcher = pattern.matcher(text);
-
-        if (matcher.find()) {
-          matchIndex = offset + matcher.start();
-        } else {
-          matchIndex = -1;
-        }
+        matcher.region(offset, body.length());
+        matchIndex = matcher.lookingAt() ? offset : -1;
       } else {
-        matchIndex = caseSensitive
-                         ? text.indexOf(search)
-                         : text.toLowerCase().indexOf(search.toLowerCase());
-
-        if (matchIndex != -1) {
-          matchIndex += offset;
-        }
+        matchIndex = body.regionMatches(!caseSensitive, offset, search, 0,
+                                        search.length())
+                         ? offset
+                         : -1;
       }
 
       if (matchIndex != -1) {
@@ -8,6 +8,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
@@ -24,7 +26,6 @@ import org.eclipse.jface.text.Position;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.texteditor.ITextEditor;
 import org.osgi.framework.Bundle;
-import org.sasylf.editors.MarkerResolutionGenerator;
 import org.sasylf.project.MyNature;
 import org.sasylf.project.ProofBuilder;
 import org.sasylf.util.DocumentUtil;
@@ -36,6 +37,7 @@ import edu.cmu.cs.sasylf.ast.CompUnit;
 import edu.cmu.cs.sasylf.module.Module;
 import edu.cmu.cs.sasylf.module.ModuleFinder;
 import edu.cmu.cs.sasylf.module.ModuleId;
+import edu.cmu.cs.sasylf.util.CancellationToken;
 import edu.cmu.cs.sasylf.util.ErrorReport;
 import edu.cmu.cs.sasylf.util.Report;
 import edu.cmu.cs.sasylf.util.TaskReport;
@@ -126,10 +128,9 @@ public class ProofChecker  {
 				if (er.errorType != null) {
 					marker.setAttribute(Marker.SASYLF_ERROR_TYPE, er.errorType.toString());
 				}
+				// whether there are quick fixes is only found out when asked,
+				// by MarkerResolutionGenerator.hasResolutions
 				marker.setAttribute(Marker.SASYLF_ERROR_INFO, er.getExtraInformation());
-				if (MarkerResolutionGenerator.hasProposals(marker)) {
-					marker.setAttribute(Marker.HAS_QUICK_FIX, true);
-				}
 			}
 		} catch (CoreException e) {
 			e.printStackTrace();
@@ -214,6 +215,9 @@ public class ProofChecker  {
 		return null;
 	}
 
+	// the token for the check in progress for each resource
+	private static final Map<IResource,CancellationToken> inFlight = new ConcurrentHashMap<IResource,CancellationToken>();
+
 	private static CompUnit analyzeSlf(ModuleFinder mf, ModuleId id, IResource res, IDocument doc, Reader contents) {
 		IDEProof oldProof = IDEProof.getProof(res);
 		
@@ -267,7 +271,19 @@ public class ProofChecker  {
 		Util.PRINT_SOLVE = false;
 		Util.COMP_WHERE = Preferences.isWhereCompulsory();
 		Util.X_CONTEXT_IS_SYNTAX = Preferences.experimentalfeature("ContextIsSyntax");
-		newProof.parseAndCheck(mf, contents);
+		CancellationToken token = new CancellationToken();
+		CancellationToken superseded = inFlight.put(res, token);
+		if (superseded != null) superseded.cancel();
+		newProof.setCancellationToken(token);
+		try {
+			newProof.parseAndCheck(mf, contents);
+		} finally {
+			inFlight.remove(res, token);
+		}
+		if (newProof.isCancelled()) {
+			// a newer check of this resource is under way and will report
+			return oldProof == null ? null : oldProof.getCompilation();
+		}
 		
 		int errors = 0;
 		deleteAuditMarkers(res);